@@ -0,0 +1,65 @@
+package com.aiscanner.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class GeminiExecutorConfig {
+
+    @Value("${gemini.executor.core.size:16}")
+    private int coreSize;
+
+    @Value("${gemini.executor.max.size:32}")
+    private int maxSize;
+
+    @Value("${gemini.executor.queue.capacity:256}")
+    private int queueCapacity;
+
+    @Value("${gemini.executor.keep.alive.seconds:60}")
+    private long keepAliveSeconds;
+
+    /**
+     * Bounded pool for Gemini work so that blocking network calls never park threads of the
+     * common ForkJoinPool. Submissions beyond the queue capacity are rejected and the caller
+     * answers with its fallback instead. Pool size, queue depth, queue wait ("executor.idle")
+     * and execution time are published under the name "gemini".
+     */
+    @Bean(name = "geminiExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService geminiExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                coreSize,
+                Math.max(coreSize, maxSize),
+                keepAliveSeconds,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("gemini-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "gemini");
+    }
+
+    /**
+     * With {@code spring.threads.virtual.enabled=true} on Java 21, every Gemini task gets its own
+     * virtual thread instead of a pool slot. Waiting for a call-guard permit then parks only the
+     * virtual thread, and the call guard alone bounds how many calls reach Gemini.
+     */
+    @Bean(name = "geminiExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Executor virtualGeminiExecutor() {
+        return new VirtualThreadTaskExecutor("gemini-");
+    }
+}
@@ -0,0 +1,35 @@
+package com.aiscanner.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class ScannerExecutorConfig {
+
+    /**
+     * Runs the CPU-bound steps of a page analysis (store reads, parsing, extraction, demo form
+     * assembly and the store write) once the page has been fetched. The common pool is shared
+     * and outlives the context, so it is not shut down with it.
+     */
+    @Bean(name = "scannerExecutor", destroyMethod = "")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Executor scannerExecutor() {
+        return ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Virtual-thread variant for {@code spring.threads.virtual.enabled=true} on Java 21, so any
+     * blocking parser I/O parks a virtual thread instead of a pool slot.
+     */
+    @Bean(name = "scannerExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Executor virtualScannerExecutor() {
+        return new VirtualThreadTaskExecutor("scanner-");
+    }
+}
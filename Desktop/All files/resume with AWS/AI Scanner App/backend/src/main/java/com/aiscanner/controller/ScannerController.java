@@ -1,14 +1,32 @@
 package com.aiscanner.controller;
 
+import com.aiscanner.dto.BatchAnalysisRequest;
 import com.aiscanner.dto.PageAnalysisRequest;
 import com.aiscanner.dto.PageAnalysisResponse;
 import com.aiscanner.dto.ChatRequest;
 import com.aiscanner.dto.ChatResponse;
+import com.aiscanner.service.BatchAnalysisService;
+import com.aiscanner.service.ClusterRouter;
 import com.aiscanner.service.ScannerService;
 import com.aiscanner.service.GeminiAIService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/scanner")
@@ -21,123 +39,281 @@ public class ScannerController {
     @Autowired
     private GeminiAIService geminiAIService;
     
+    @Autowired
+    private BatchAnalysisService batchAnalysisService;
+    
+    @Autowired
+    private ClusterRouter clusterRouter;
+    
+    private static final MediaType DEMO_FORM_TYPE = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+    
+    @Value("${scanner.batch.max.urls:500}")
+    private int maxBatchUrls;
+    
+    /**
+     * Completes once the page is analyzed; the servlet thread is released while the page is
+     * fetched and Gemini answers. In cluster mode the page's owner replica analyzes it.
+     */
     @PostMapping("/analyze")
-    public ResponseEntity<PageAnalysisResponse> analyzePage(@RequestBody PageAnalysisRequest request) {
-        try {
-            PageAnalysisResponse response = scannerService.analyzePage(request.getUrl());
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(
+    public CompletableFuture<ResponseEntity<PageAnalysisResponse>> analyzePage(@RequestBody PageAnalysisRequest request,
+            @RequestHeader(value = ClusterRouter.FORWARDED_HEADER, required = false) String forwardedBy) {
+        return clusterRouter.route(request.getUrl(), forwardedBy,
+            (client, owner) -> client.post().uri(owner.resolve("/api/scanner/analyze")).bodyValue(request),
+            PageAnalysisResponse.class,
+            () -> analyzePageLocally(request));
+    }
+    
+    private CompletableFuture<ResponseEntity<PageAnalysisResponse>> analyzePageLocally(PageAnalysisRequest request) {
+        return scannerService.analyzePage(request.getUrl())
+            .thenApply(ResponseEntity::ok)
+            .exceptionally(e -> ResponseEntity.badRequest().body(
+                PageAnalysisResponse.builder()
+                    .error("Failed to analyze page: " + causeOf(e).getMessage())
+                    .build()
+            ));
+    }
+    
+    /**
+     * Analyzes many URLs and streams one newline-delimited JSON {@link PageAnalysisResponse} per URL
+     * as soon as it completes, in completion order.
+     */
+    @PostMapping(value = "/analyze/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<PageAnalysisResponse>> analyzeBatch(@RequestBody BatchAnalysisRequest request) {
+        if (request.getUrls() == null || request.getUrls().isEmpty()) {
+            return ResponseEntity.badRequest().body(Flux.just(
                 PageAnalysisResponse.builder()
-                    .error("Failed to analyze page: " + e.getMessage())
+                    .error("At least one URL is required")
                     .build()
-            );
+            ));
         }
+        if (request.getUrls().size() > maxBatchUrls) {
+            return ResponseEntity.badRequest().body(Flux.just(
+                PageAnalysisResponse.builder()
+                    .error("A batch can contain at most " + maxBatchUrls + " URLs")
+                    .build()
+            ));
+        }
+        
+        return ResponseEntity.ok(batchAnalysisService.analyzeAll(request.getUrls()));
     }
     
+    /**
+     * Serves the demo form stored with the page's analysis; the page is only scanned when it has
+     * not been analyzed yet. The response carries a strong ETag so browsers and proxies can
+     * revalidate with {@code If-None-Match}; Spring answers a matching tag with a 304 instead of
+     * the form again.
+     */
     @GetMapping("/demo-form/{url}")
-    public ResponseEntity<String> getDemoForm(@PathVariable String url) {
+    public CompletableFuture<ResponseEntity<String>> getDemoForm(@PathVariable String url, HttpServletRequest httpRequest,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = ClusterRouter.FORWARDED_HEADER, required = false) String forwardedBy) {
+        String decodedUrl;
         try {
             // Decode the URL parameter
-            String decodedUrl = java.net.URLDecoder.decode(url, "UTF-8");
-            PageAnalysisResponse response = scannerService.analyzePage(decodedUrl);
-            
-            if (response.getDemoForm() != null) {
-                return ResponseEntity.ok()
-                    .header("Content-Type", "text/html")
-                    .body(response.getDemoForm());
-            } else {
-                return ResponseEntity.ok("Demo form not available for this URL.");
-            }
+            decodedUrl = java.net.URLDecoder.decode(url, "UTF-8");
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Failed to generate demo form: " + e.getMessage());
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body("Failed to generate demo form: " + e.getMessage()));
         }
+        
+        // The owner answers the conditional request itself, so an unchanged form never crosses the cluster
+        return clusterRouter.route(decodedUrl, forwardedBy,
+            (client, owner) -> client.get().uri(owner.resolve(httpRequest.getRequestURI()))
+                .headers(headers -> {
+                    if (ifNoneMatch != null) {
+                        headers.set(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+                    }
+                }),
+            String.class,
+            () -> getDemoFormLocally(decodedUrl));
+    }
+    
+    private CompletableFuture<ResponseEntity<String>> getDemoFormLocally(String decodedUrl) {
+        return scannerService.analyzePage(decodedUrl)
+            .thenApply(response -> {
+                String etag = scannerService.getDemoFormEtag(response);
+                if (etag == null) {
+                    return ResponseEntity.ok("Demo form not available for this URL.");
+                }
+                // The analysis can be refreshed at any time, so caches must revalidate before reuse
+                return ResponseEntity.ok()
+                    .contentType(DEMO_FORM_TYPE)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(response.getDemoForm());
+            })
+            .exceptionally(e -> ResponseEntity.badRequest().body("Failed to generate demo form: " + causeOf(e).getMessage()));
     }
     
+    /**
+     * Answers a question about a page. In cluster mode the page's owner replica answers, since it
+     * holds the page's analysis and chat context.
+     */
     @PostMapping("/chat")
-    public ResponseEntity<ChatResponse> chatAboutPage(@RequestBody ChatRequest request) {
-        try {
-            if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(
-                    ChatResponse.builder()
-                        .error("Question cannot be empty")
-                        .timestamp(System.currentTimeMillis())
-                        .build()
+    public CompletableFuture<ResponseEntity<ChatResponse>> chatAboutPage(@RequestBody ChatRequest request,
+            @RequestHeader(value = ClusterRouter.FORWARDED_HEADER, required = false) String forwardedBy) {
+        if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
+                ChatResponse.builder()
+                    .error("Question cannot be empty")
+                    .timestamp(System.currentTimeMillis())
+                    .build()
+            ));
+        }
+        
+        return clusterRouter.route(request.getUrl(), forwardedBy,
+            (client, owner) -> client.post().uri(owner.resolve("/api/scanner/chat")).bodyValue(request),
+            ChatResponse.class,
+            () -> chatAboutPageLocally(request));
+    }
+    
+    private CompletableFuture<ResponseEntity<ChatResponse>> chatAboutPageLocally(ChatRequest request) {
+        // First get the page analysis if URL is provided
+        CompletableFuture<PageAnalysisResponse> pageAnalysis = request.getUrl() != null && !request.getUrl().trim().isEmpty()
+            ? scannerService.analyzePage(request.getUrl())
+            : CompletableFuture.completedFuture(null);
+        
+        return pageAnalysis
+            .thenCompose(analysis -> {
+                // Answer the question using AI with comprehensive content
+                String pageContent = request.getPageContent() != null ? request.getPageContent() : "";
+                if (analysis != null && analysis.getPageSummary() != null) {
+                    pageContent = analysis.getPageSummary();
+                }
+                
+                return geminiAIService.answerQuestionAboutPage(
+                    request.getQuestion(),
+                    pageContent,
+                    analysis != null ? analysis.getFields() : java.util.Collections.emptyList(),
+                    analysis != null ? scannerService.getChunkIndex(analysis) : null
                 );
-            }
-            
-            // First get the page analysis if URL is provided
-            PageAnalysisResponse pageAnalysis = null;
-            if (request.getUrl() != null && !request.getUrl().trim().isEmpty()) {
-                pageAnalysis = scannerService.analyzePage(request.getUrl());
-            }
-            
-            // Answer the question using AI with comprehensive content
-            String pageContent = request.getPageContent() != null ? request.getPageContent() : "";
-            if (pageAnalysis != null && pageAnalysis.getPageSummary() != null) {
-                pageContent = pageAnalysis.getPageSummary();
-            }
-            
-            String answer = geminiAIService.answerQuestionAboutPage(
-                request.getQuestion(),
-                pageContent,
-                pageAnalysis != null ? pageAnalysis.getFields() : java.util.Collections.emptyList(),
-                pageAnalysis != null ? pageAnalysis.getPageContent() : "",
-                pageAnalysis != null ? pageAnalysis.getCodeContent() : "",
-                pageAnalysis != null ? pageAnalysis.getQuestionsContent() : ""
-            ).get();
-            
-            return ResponseEntity.ok(
+            })
+            .thenApply(answer -> ResponseEntity.ok(
                 ChatResponse.builder()
                     .answer(answer)
                     .question(request.getQuestion())
                     .url(request.getUrl())
                     .timestamp(System.currentTimeMillis())
                     .build()
-            );
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(
+            ))
+            .exceptionally(e -> ResponseEntity.badRequest().body(
                 ChatResponse.builder()
-                    .error("Failed to answer question: " + e.getMessage())
+                    .error("Failed to answer question: " + causeOf(e).getMessage())
                     .question(request.getQuestion())
                     .timestamp(System.currentTimeMillis())
                     .build()
-            );
-        }
+            ));
     }
     
     @PostMapping("/ask")
-    public ResponseEntity<ChatResponse> askGeneralQuestion(@RequestBody ChatRequest request) {
-        try {
-            if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(
-                    ChatResponse.builder()
-                        .error("Question cannot be empty")
-                        .timestamp(System.currentTimeMillis())
-                        .build()
-                );
-            }
-            
-            // For general questions, use the dedicated general question method
-            String answer = geminiAIService.answerGeneralQuestion(request.getQuestion()).get();
-            
-            return ResponseEntity.ok(
+    public CompletableFuture<ResponseEntity<ChatResponse>> askGeneralQuestion(@RequestBody ChatRequest request) {
+        if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
+                ChatResponse.builder()
+                    .error("Question cannot be empty")
+                    .timestamp(System.currentTimeMillis())
+                    .build()
+            ));
+        }
+        
+        // For general questions, use the dedicated general question method
+        return geminiAIService.answerGeneralQuestion(request.getQuestion())
+            .thenApply(answer -> ResponseEntity.ok(
                 ChatResponse.builder()
                     .answer(answer)
                     .question(request.getQuestion())
                     .url(null) // No URL for general questions
                     .timestamp(System.currentTimeMillis())
                     .build()
-            );
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(
+            ))
+            .exceptionally(e -> ResponseEntity.badRequest().body(
                 ChatResponse.builder()
-                    .error("Failed to answer question: " + e.getMessage())
+                    .error("Failed to answer question: " + causeOf(e).getMessage())
                     .question(request.getQuestion())
                     .timestamp(System.currentTimeMillis())
                     .build()
-            );
+            ));
+    }
+    
+    /**
+     * Streams the answer to a page question as Server-Sent Events: one "token" event per generated
+     * chunk, then a "done" event carrying the complete {@link ChatResponse}. In cluster mode the
+     * page's owner replica streams the answer and this replica relays its events.
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChatAboutPage(@RequestBody ChatRequest request,
+            @RequestHeader(value = ClusterRouter.FORWARDED_HEADER, required = false) String forwardedBy) {
+        if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
+            return Flux.just(errorEvent("Question cannot be empty", request));
+        }
+        
+        return clusterRouter.routeStream(request.getUrl(), forwardedBy,
+            (client, owner) -> client.post().uri(owner.resolve("/api/scanner/chat/stream"))
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(request),
+            new ParameterizedTypeReference<ServerSentEvent<Object>>() {},
+            () -> streamChatAboutPageLocally(request));
+    }
+    
+    private Flux<ServerSentEvent<Object>> streamChatAboutPageLocally(ChatRequest request) {
+        // Page analysis completes asynchronously, so no thread waits while the page is scraped
+        Mono<Optional<PageAnalysisResponse>> pageAnalysis = request.getUrl() != null && !request.getUrl().trim().isEmpty()
+            ? Mono.fromFuture(() -> scannerService.analyzePage(request.getUrl())).map(Optional::of)
+            : Mono.just(Optional.empty());
+        
+        return pageAnalysis.flatMapMany(analysis -> {
+            String pageContent = request.getPageContent() != null ? request.getPageContent() : "";
+            if (analysis.isPresent() && analysis.get().getPageSummary() != null) {
+                pageContent = analysis.get().getPageSummary();
+            }
+            
+            return streamAnswer(request, geminiAIService.streamAnswerQuestionAboutPage(
+                request.getQuestion(),
+                pageContent,
+                analysis.map(PageAnalysisResponse::getFields).orElse(java.util.Collections.emptyList()),
+                analysis.map(scannerService::getChunkIndex).orElse(null)
+            ), request.getUrl());
+        }).onErrorResume(e -> Flux.just(errorEvent("Failed to answer question: " + e.getMessage(), request)));
+    }
+    
+    /**
+     * Streaming variant of {@code /ask}, using the same "token" and "done" events as {@code /chat/stream}.
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamGeneralQuestion(@RequestBody ChatRequest request) {
+        if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
+            return Flux.just(errorEvent("Question cannot be empty", request));
         }
+        
+        return streamAnswer(request, geminiAIService.streamGeneralAnswer(request.getQuestion()), null) // No URL for general questions
+                .onErrorResume(e -> Flux.just(errorEvent("Failed to answer question: " + e.getMessage(), request)));
+    }
+    
+    private Flux<ServerSentEvent<Object>> streamAnswer(ChatRequest request, Flux<String> chunks, String url) {
+        return Flux.defer(() -> {
+            StringBuilder answer = new StringBuilder();
+            return chunks
+                    .doOnNext(answer::append)
+                    .map(chunk -> ServerSentEvent.<Object>builder(Map.of("text", chunk)).event("token").build())
+                    .concatWith(Mono.fromSupplier(() -> ServerSentEvent.<Object>builder(
+                        ChatResponse.builder()
+                            .answer(answer.toString())
+                            .question(request.getQuestion())
+                            .url(url)
+                            .timestamp(System.currentTimeMillis())
+                            .build()
+                    ).event("done").build()));
+        });
+    }
+    
+    private ServerSentEvent<Object> errorEvent(String error, ChatRequest request) {
+        return ServerSentEvent.<Object>builder(
+            ChatResponse.builder()
+                .error(error)
+                .question(request.getQuestion())
+                .timestamp(System.currentTimeMillis())
+                .build()
+        ).event("error").build();
     }
     
     @GetMapping("/health")
@@ -146,19 +322,20 @@ public class ScannerController {
     }
     
     @GetMapping("/test-gemini")
-    public ResponseEntity<String> testGemini() {
-        try {
-            String testResult = geminiAIService.answerQuestionAboutPage(
+    public CompletableFuture<ResponseEntity<String>> testGemini() {
+        return geminiAIService.answerQuestionAboutPage(
                 "Hello, this is a test", 
                 "Test content", 
                 java.util.Collections.emptyList(),
-                "",
-                "",
-                ""
-            ).get();
-            return ResponseEntity.ok("Gemini AI test successful: " + testResult);
-        } catch (Exception e) {
-            return ResponseEntity.ok("Gemini AI test failed: " + e.getMessage());
-        }
+                null
+            )
+            .thenApply(testResult -> ResponseEntity.ok("Gemini AI test successful: " + testResult))
+            .exceptionally(e -> ResponseEntity.ok("Gemini AI test failed: " + causeOf(e).getMessage()));
+    }
+    
+    // A failed future reports the exception that ended it wrapped in a CompletionException
+    private static Throwable causeOf(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
+
 }
@@ -0,0 +1,9 @@
+package com.aiscanner.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class BatchAnalysisRequest {
+    private List<String> urls;
+}
@@ -1,16 +1,21 @@
 package com.aiscanner.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class PageAnalysisResponse {
     private String url;
     private String title;
     private List<FieldInfo> fields;
     private String pageSummary;
+    private boolean summaryAiGenerated; // pageSummary was written by Gemini, not a fallback
     private String error;
     private AIAnalysisDetails aiAnalysis;
     private String demoForm; // Generated dummy form based on analysis
@@ -20,6 +25,8 @@ public class PageAnalysisResponse {
     
     @Data
     @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class FieldInfo {
         private String name;
         private String label;
@@ -28,6 +35,7 @@ public class PageAnalysisResponse {
         private String placeholder;
         private boolean required;
         private String aiExplanation;
+        private boolean aiGenerated; // aiExplanation was written by Gemini, not a fallback
         private String validationRules;
         private String bestPractices;
         private String securityNotes;
@@ -35,6 +43,8 @@ public class PageAnalysisResponse {
     
     @Data
     @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class AIAnalysisDetails {
         private String pagePurpose;
         private String userExperienceAssessment;
@@ -0,0 +1,119 @@
+package com.aiscanner.service;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD concurrency limit driven by observed latency. The limit grows by roughly one per round
+ * trip while calls complete near the best latency seen, shrinks gently when latency rises above
+ * {@code latencyTolerance} times that baseline (queueing upstream), and is cut by
+ * {@code backoffRatio} when the upstream signals overload (429 or timeout).
+ *
+ * <p>Guarded by a {@link ReentrantLock} rather than a monitor, so a virtual thread waiting for a
+ * slot unmounts from its carrier instead of pinning it.
+ */
+class AdaptiveConcurrencyLimit {
+    
+    // Multiplicative decrease applied when latency alone suggests queueing
+    private static final double LATENCY_BACKOFF_RATIO = 0.9;
+    
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+    }
+    
+    /**
+     * Takes a slot, waiting up to {@code timeoutNanos} for one to free up.
+     *
+     * @return false if no slot became available in time
+     */
+    boolean acquire(long timeoutNanos) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            long remaining = timeoutNanos;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = slotFreed.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void onSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            // Decaying minimum, so the baseline can recover if the upstream gets permanently slower
+            baselineNanos = latencyNanos < baselineNanos ? latencyNanos : baselineNanos + (latencyNanos - baselineNanos) / 100;
+            
+            if (latencyNanos > baselineNanos * latencyTolerance) {
+                limit = Math.max(minLimit, limit * LATENCY_BACKOFF_RATIO);
+            } else if (inFlight + 1 >= limit / 2) {
+                // Only grow while the current limit is actually being used
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void onOverload() {
+        lock.lock();
+        try {
+            inFlight--;
+            limit = Math.max(minLimit, limit * backoffRatio);
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void onIgnored() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisRequest;
+import com.aiscanner.dto.PageAnalysisResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Service
+@Slf4j
+public class BatchAnalysisService {
+    
+    @Autowired
+    private ScannerService scannerService;
+    
+    @Autowired
+    private ClusterRouter clusterRouter;
+    
+    @Value("${scanner.batch.max.concurrency:8}")
+    private int maxConcurrency;
+    
+    @Value("${scanner.batch.per.host.concurrency:2}")
+    private int perHostConcurrency;
+    
+    // Every batch analysis takes its slot under this one key of the global limiter
+    private static final String ALL_BATCHES = "*";
+    
+    // Both limiters are shared by all batches, so concurrent batches cannot exceed either cap between them
+    private HostConcurrencyLimiter hostLimiter;
+    private HostConcurrencyLimiter globalLimiter;
+    
+    @PostConstruct
+    void initLimiters() {
+        hostLimiter = new HostConcurrencyLimiter(perHostConcurrency);
+        globalLimiter = new HostConcurrencyLimiter(maxConcurrency);
+    }
+    
+    /**
+     * Analyzes every URL through the regular pipeline (cache, fetch, extract, AI) with at most
+     * {@code scanner.batch.max.concurrency} batch analyses across all batches and
+     * {@code scanner.batch.per.host.concurrency} per host running at once. Results are emitted in
+     * completion order; a URL that is missing or fails yields a response carrying only its URL and
+     * the error.
+     */
+    public Flux<PageAnalysisResponse> analyzeAll(List<String> urls) {
+        List<PageAnalysisResponse> missing = new ArrayList<>();
+        List<String> present = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            if (url == null || url.trim().isEmpty()) {
+                missing.add(failed(url, "URL is required"));
+            } else {
+                present.add(url);
+            }
+        }
+        
+        // The host slot comes first, so a URL waiting on a busy host never holds one of the global slots
+        return Flux.fromIterable(missing)
+                .concatWith(Flux.fromIterable(interleaveByHost(present))
+                        .flatMap(url -> hostLimiter.run(hostOf(url), () -> globalLimiter.run(ALL_BATCHES, () -> analyze(url))),
+                                Math.max(1, maxConcurrency)));
+    }
+    
+    // Each URL is analyzed on its owner replica, exactly as a single /analyze request for it would be
+    private Mono<PageAnalysisResponse> analyze(String url) {
+        PageAnalysisRequest request = new PageAnalysisRequest();
+        request.setUrl(url);
+        return Mono.fromFuture(() -> clusterRouter.route(url, null,
+                        (client, owner) -> client.post().uri(owner.resolve("/api/scanner/analyze")).bodyValue(request),
+                        PageAnalysisResponse.class,
+                        () -> scannerService.analyzePage(url).thenApply(ResponseEntity::ok)))
+                .mapNotNull(ResponseEntity::getBody)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Owner replica returned no analysis")))
+                .map(response -> {
+                    if (response.getError() != null && response.getUrl() == null) {
+                        response.setUrl(url); // The owner's error responses do not name the page
+                    }
+                    return response;
+                })
+                .onErrorResume(e -> {
+                    log.warn("Batch analysis failed for URL: {}. Error: {}", url, e.getMessage());
+                    return Mono.just(failed(url, "Failed to analyze page: " + e.getMessage()));
+                });
+    }
+    
+    private static PageAnalysisResponse failed(String url, String error) {
+        return PageAnalysisResponse.builder()
+                .url(url)
+                .error(error)
+                .build();
+    }
+    
+    /**
+     * Orders URLs round-robin across hosts so that a run of URLs for one host does not occupy
+     * every global slot while waiting for that host's permits.
+     */
+    private static List<String> interleaveByHost(List<String> urls) {
+        Map<String, Deque<String>> byHost = new LinkedHashMap<>();
+        for (String url : urls) {
+            byHost.computeIfAbsent(hostOf(url), host -> new ArrayDeque<>()).add(url);
+        }
+        
+        List<String> ordered = new ArrayList<>(urls.size());
+        while (ordered.size() < urls.size()) {
+            for (Deque<String> hostUrls : byHost.values()) {
+                if (!hostUrls.isEmpty()) {
+                    ordered.add(hostUrls.poll());
+                }
+            }
+        }
+        return ordered;
+    }
+    
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
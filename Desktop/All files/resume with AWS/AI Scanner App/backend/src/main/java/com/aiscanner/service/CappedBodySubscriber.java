@@ -0,0 +1,90 @@
+package com.aiscanner.service;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects a response body up to {@code maxBytes}, then cancels the rest of the transfer and
+ * completes with what was read so far. Jsoup copes with the cut-off markup.
+ */
+final class CappedBodySubscriber implements HttpResponse.BodySubscriber<CappedBodySubscriber.Body> {
+    
+    static final class Body {
+        final byte[] bytes;
+        final boolean truncated;
+        
+        Body(byte[] bytes, boolean truncated) {
+            this.bytes = bytes;
+            this.truncated = truncated;
+        }
+    }
+    
+    private final int maxBytes;
+    private final ByteArrayOutputStream out;
+    private final CompletableFuture<Body> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    
+    CappedBodySubscriber(int maxBytes, long contentLength) {
+        this.maxBytes = maxBytes;
+        // Size the buffer up front when the length is known, so it is not regrown while copying
+        this.out = new ByteArrayOutputStream(contentLength > 0 ? (int) Math.min(contentLength, maxBytes) : 8192);
+    }
+    
+    static HttpResponse.BodyHandler<Body> handler(int maxBytes) {
+        return responseInfo -> new CappedBodySubscriber(maxBytes,
+                responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1));
+    }
+    
+    @Override
+    public CompletionStage<Body> getBody() {
+        return result;
+    }
+    
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+    
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        if (result.isDone()) {
+            return; // Already capped, buffers still in flight after cancel
+        }
+        for (ByteBuffer buffer : buffers) {
+            int room = maxBytes - out.size();
+            if (buffer.remaining() > room) {
+                write(buffer, room);
+                subscription.cancel();
+                result.complete(new Body(out.toByteArray(), true));
+                return;
+            }
+            write(buffer, buffer.remaining());
+        }
+    }
+    
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+    
+    @Override
+    public void onComplete() {
+        result.complete(new Body(out.toByteArray(), false));
+    }
+    
+    private void write(ByteBuffer buffer, int length) {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            byte[] chunk = new byte[length];
+            buffer.get(chunk);
+            out.write(chunk, 0, length);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.aiscanner.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Gives every page one owner replica, so its analysis, cache entry and chat context are built
+ * once in the cluster instead of once per replica.
+ *
+ * <p>Replicas register with the service registry under {@code spring.application.name}. Each
+ * replica places itself and the peers it discovers on a {@link ConsistentHashRing} and routes
+ * a request for a page to the owner of the page's canonical URL. The ring is rebuilt whenever
+ * the registry reports a different set of instances; a membership change moves only the pages
+ * owned by the node that joined or left. A forwarded request carries {@link #FORWARDED_HEADER}
+ * and is always served where it lands, so replicas whose views of the membership disagree for
+ * a moment cost at most one extra hop and never loop. When the owner cannot be reached the
+ * request is served locally.
+ */
+@Component
+@Slf4j
+public class ClusterRouter {
+    
+    public static final String FORWARDED_HEADER = "X-Scanner-Forwarded-By";
+    
+    // Only headers that describe the payload travel back; hop-by-hop headers are the local server's business
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL);
+    
+    @Value("${scanner.cluster.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${spring.application.name}")
+    private String serviceId;
+    
+    @Value("${scanner.cluster.virtual.nodes:128}")
+    private int virtualNodes;
+    
+    @Value("${scanner.cluster.forward.timeout.ms:110000}")
+    private long forwardTimeoutMs;
+    
+    @Autowired
+    private DiscoveryClient discoveryClient;
+    
+    @Autowired
+    private ObjectProvider<Registration> registration;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final WebClient webClient = WebClient.create();
+    
+    private volatile Membership membership = new Membership(ConsistentHashRing.of(List.of(), 0), Map.of());
+    private String self;
+    private Counter servedLocally;
+    private Counter forwarded;
+    private Counter forwardFailed;
+    
+    @PostConstruct
+    void init() {
+        servedLocally = routeCounter("local");
+        forwarded = routeCounter("forwarded");
+        forwardFailed = routeCounter("forward_failed");
+        Gauge.builder("scanner.cluster.members", this, router -> router.membership.ring.nodes().size())
+                .description("Replicas on this replica's hash ring, itself included")
+                .register(meterRegistry);
+        
+        if (!enabled) {
+            return;
+        }
+        Registration local = registration.getIfAvailable();
+        if (local == null) {
+            log.warn("scanner.cluster.enabled is set but this instance is not registered with a service registry; serving every page locally");
+            enabled = false;
+            return;
+        }
+        self = nodeId(local);
+        membership = new Membership(ConsistentHashRing.of(List.of(self), virtualNodes), Map.of());
+    }
+    
+    /**
+     * Rebuilds the ring from the registry. Eureka publishes a heartbeat after every registry
+     * fetch, so membership changes are picked up within one fetch interval.
+     */
+    @EventListener({ApplicationReadyEvent.class, HeartbeatEvent.class})
+    public void refreshMembership() {
+        if (!enabled) {
+            return;
+        }
+        
+        Map<String, URI> peers = new HashMap<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+            String node = nodeId(instance);
+            if (!node.equals(self)) {
+                peers.put(node, instance.getUri());
+            }
+        }
+        // Always on our own ring, even before the registry lists us
+        Set<String> nodes = new HashSet<>(peers.keySet());
+        nodes.add(self);
+        
+        Membership current = membership;
+        if (nodes.equals(current.ring.nodes())) {
+            return;
+        }
+        Membership updated = new Membership(ConsistentHashRing.of(nodes, virtualNodes), Map.copyOf(peers));
+        membership = updated;
+        log.info("Cluster membership changed from {} to {}", current.ring.nodes(), updated.ring.nodes());
+    }
+    
+    /**
+     * Serves a page-keyed request on the page's owner. {@code forwardRequest} builds the request
+     * to the owner, given the owner's base URI; {@code local} serves it on this replica, which
+     * happens when this replica owns the page, the request was already forwarded once, routing is
+     * disabled, or the owner cannot be reached.
+     */
+    public <T> CompletableFuture<ResponseEntity<T>> route(String url, String forwardedBy,
+                                                          BiFunction<WebClient, URI, WebClient.RequestHeadersSpec<?>> forwardRequest,
+                                                          Class<T> responseType, Supplier<CompletableFuture<ResponseEntity<T>>> local) {
+        URI owner = remoteOwner(url, forwardedBy);
+        if (owner == null) {
+            servedLocally.increment();
+            return local.get();
+        }
+        
+        forwarded.increment();
+        return forwardRequest.apply(webClient, owner)
+                .header(FORWARDED_HEADER, self)
+                .exchangeToMono(response -> response.toEntity(responseType))
+                .timeout(Duration.ofMillis(forwardTimeoutMs))
+                .map(ClusterRouter::withPayloadHeaders)
+                .toFuture()
+                .exceptionallyCompose(e -> {
+                    log.warn("Could not forward {} to its owner {}, serving it locally: {}", url, owner, e.toString());
+                    forwardFailed.increment();
+                    return local.get();
+                });
+    }
+    
+    /**
+     * Streaming variant of {@link #route}: relays the owner's response stream element by element.
+     * The request falls back to {@code local} only while the owner has sent nothing, since a
+     * stream the client has already started reading cannot be restarted elsewhere.
+     */
+    public <T> Flux<T> routeStream(String url, String forwardedBy,
+                                   BiFunction<WebClient, URI, WebClient.RequestHeadersSpec<?>> forwardRequest,
+                                   ParameterizedTypeReference<T> elementType, Supplier<Flux<T>> local) {
+        URI owner = remoteOwner(url, forwardedBy);
+        if (owner == null) {
+            servedLocally.increment();
+            return local.get();
+        }
+        
+        forwarded.increment();
+        AtomicBoolean relayed = new AtomicBoolean();
+        return forwardRequest.apply(webClient, owner)
+                .header(FORWARDED_HEADER, self)
+                .retrieve()
+                .bodyToFlux(elementType)
+                .timeout(Duration.ofMillis(forwardTimeoutMs)) // Between elements, so a long answer is not cut off
+                .doOnNext(element -> relayed.set(true))
+                .onErrorResume(e -> {
+                    if (relayed.get()) {
+                        return Flux.error(e);
+                    }
+                    log.warn("Could not forward {} to its owner {}, serving it locally: {}", url, owner, e.toString());
+                    forwardFailed.increment();
+                    return local.get();
+                });
+    }
+    
+    private URI remoteOwner(String url, String forwardedBy) {
+        if (!enabled || forwardedBy != null || url == null || url.trim().isEmpty()) {
+            return null;
+        }
+        Membership current = membership;
+        String owner = current.ring.ownerOf(UrlCanonicalizer.canonicalize(url));
+        return owner == null || owner.equals(self) ? null : current.peers.get(owner);
+    }
+    
+    private static <T> ResponseEntity<T> withPayloadHeaders(ResponseEntity<T> response) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : FORWARDED_RESPONSE_HEADERS) {
+            List<String> values = response.getHeaders().get(name);
+            if (values != null) {
+                headers.put(name, values);
+            }
+        }
+        return ResponseEntity.status(response.getStatusCode()).headers(headers).body(response.getBody());
+    }
+    
+    private Counter routeCounter(String route) {
+        return Counter.builder("scanner.cluster.requests")
+                .description("Page-keyed requests by where they were served")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+    
+    private static String nodeId(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+    
+    // The ring and the peer addresses are swapped together, so a lookup never sees an owner without an address
+    private static final class Membership {
+        private final ConsistentHashRing ring;
+        private final Map<String, URI> peers;
+        
+        private Membership(ConsistentHashRing ring, Map<String, URI> peers) {
+            this.ring = ring;
+            this.peers = peers;
+        }
+    }
+}
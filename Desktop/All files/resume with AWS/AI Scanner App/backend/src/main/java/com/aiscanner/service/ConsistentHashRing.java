@@ -0,0 +1,68 @@
+package com.aiscanner.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring over node ids. Each node is placed at {@code virtualNodes}
+ * points on a 64-bit ring and a key belongs to the first node point at or after the key's hash.
+ *
+ * <p>Because a node's points depend only on its own id, adding or removing one node only moves
+ * the keys between its points and their predecessors, about {@code 1/n} of all keys; every
+ * other key keeps its owner. The virtual nodes keep each node's share close to {@code 1/n}.
+ */
+public final class ConsistentHashRing {
+    
+    private final NavigableMap<Long, String> points;
+    private final SortedSet<String> nodes;
+    
+    private ConsistentHashRing(NavigableMap<Long, String> points, SortedSet<String> nodes) {
+        this.points = points;
+        this.nodes = nodes;
+    }
+    
+    public static ConsistentHashRing of(Collection<String> nodeIds, int virtualNodes) {
+        SortedSet<String> nodes = new TreeSet<>(nodeIds);
+        NavigableMap<Long, String> points = new TreeMap<>();
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // On the rare hash collision the smaller node id keeps the point, so every replica builds the same ring
+                points.putIfAbsent(hash(node + '#' + i), node);
+            }
+        }
+        return new ConsistentHashRing(points, nodes);
+    }
+    
+    /**
+     * @return the node owning {@code key}, or null when the ring is empty
+     */
+    public String ownerOf(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+        return (point != null ? point : points.firstEntry()).getValue();
+    }
+    
+    public Set<String> nodes() {
+        return nodes;
+    }
+    
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
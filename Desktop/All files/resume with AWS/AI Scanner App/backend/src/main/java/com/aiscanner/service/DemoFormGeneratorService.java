@@ -4,271 +4,332 @@ import com.aiscanner.dto.PageAnalysisResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Random;
 
+/**
+ * Renders the demo form for an analysis. The static parts of the page are precompiled into
+ * string fragments, so rendering only appends fragments and field values to one presized buffer
+ * and never builds per-field intermediate strings. The form is rendered once per analysis and
+ * stored with it; {@code /demo-form} serves that stored copy rather than rendering again.
+ */
 @Service
 @Slf4j
 public class DemoFormGeneratorService {
     
-    private final Random random = new Random();
-    
-    public String generateDummyForm(PageAnalysisResponse analysis) {
-        StringBuilder html = new StringBuilder();
+    // Select and radio fields get realistic options when their label or name mentions one of these
+    private enum OptionTopic {
+        GENDER("Male", "Female", "Other", "Prefer not to say"),
+        COUNTRY("United States", "Canada", "United Kingdom", "Australia", "Germany", "France", "India", "Japan"),
+        STATE("California", "New York", "Texas", "Florida", "Illinois", "Pennsylvania", "Ohio", "Georgia"),
+        MARITAL("Single", "Married", "Divorced", "Widowed", "Separated"),
+        EDUCATION("High School", "Associate's Degree", "Bachelor's Degree", "Master's Degree", "Doctorate"),
+        INCOME("Under $25,000", "$25,000 - $50,000", "$50,000 - $75,000", "$75,000 - $100,000", "Over $100,000");
         
-        // Generate HTML header
-        html.append("<!DOCTYPE html>\n");
-        html.append("<html lang=\"en\">\n");
-        html.append("<head>\n");
-        html.append("    <meta charset=\"UTF-8\">\n");
-        html.append("    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n");
-        html.append("    <title>Demo Form - ").append(analysis.getTitle()).append("</title>\n");
-        html.append("    <style>\n");
-        html.append("        body { font-family: Arial, sans-serif; max-width: 800px; margin: 0 auto; padding: 20px; }\n");
-        html.append("        .form-container { background: #f9f9f9; padding: 30px; border-radius: 10px; margin: 20px 0; }\n");
-        html.append("        .form-group { margin-bottom: 20px; }\n");
-        html.append("        label { display: block; margin-bottom: 5px; font-weight: bold; color: #333; }\n");
-        html.append("        input, select, textarea { width: 100%; padding: 10px; border: 1px solid #ddd; border-radius: 5px; font-size: 16px; }\n");
-        html.append("        .required { color: red; }\n");
-        html.append("        .field-info { background: #e8f4fd; padding: 10px; border-radius: 5px; margin-top: 5px; font-size: 14px; color: #0066cc; }\n");
-        html.append("        .submit-btn { background: #007bff; color: white; padding: 12px 30px; border: none; border-radius: 5px; cursor: pointer; font-size: 16px; }\n");
-        html.append("        .submit-btn:hover { background: #0056b3; }\n");
-        html.append("        .form-header { text-align: center; margin-bottom: 30px; }\n");
-        html.append("        .form-header h1 { color: #333; margin-bottom: 10px; }\n");
-        html.append("        .form-header p { color: #666; }\n");
-        html.append("    </style>\n");
-        html.append("</head>\n");
-        html.append("<body>\n");
+        private final OptionSet options;
         
-        // Form header
-        html.append("    <div class=\"form-header\">\n");
-        html.append("        <h1>📋 Demo Form Generated from Analysis</h1>\n");
-        html.append("        <p><strong>Original URL:</strong> ").append(analysis.getUrl()).append("</p>\n");
-        html.append("        <p><strong>Form Type:</strong> ").append(determineFormType(analysis)).append("</p>\n");
-        html.append("        <p><strong>Total Fields:</strong> ").append(analysis.getFields().size()).append("</p>\n");
-        html.append("    </div>\n");
+        OptionTopic(String... labels) {
+            this.options = new OptionSet(labels);
+        }
+    }
+    
+    private static final KeywordMatcher<OptionTopic> OPTION_TOPICS = KeywordMatcher.builder(OptionTopic.class)
+            .add(OptionTopic.GENDER, "gender")
+            .add(OptionTopic.COUNTRY, "country")
+            .add(OptionTopic.STATE, "state")
+            .add(OptionTopic.MARITAL, "marital")
+            .add(OptionTopic.EDUCATION, "education")
+            .add(OptionTopic.INCOME, "income")
+            .build();
+    
+    private static final OptionSet GENERIC_OPTIONS = new OptionSet("Option 1", "Option 2", "Option 3", "Option 4");
+    
+    private static final String PAGE_START = "<!DOCTYPE html>\n"
+            + "<html lang=\"en\">\n"
+            + "<head>\n"
+            + "    <meta charset=\"UTF-8\">\n"
+            + "    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n"
+            + "    <title>Demo Form - ";
+    
+    private static final String TITLE_END = "</title>\n"
+            + "    <style>\n"
+            + "        body { font-family: Arial, sans-serif; max-width: 800px; margin: 0 auto; padding: 20px; }\n"
+            + "        .form-container { background: #f9f9f9; padding: 30px; border-radius: 10px; margin: 20px 0; }\n"
+            + "        .form-group { margin-bottom: 20px; }\n"
+            + "        label { display: block; margin-bottom: 5px; font-weight: bold; color: #333; }\n"
+            + "        input, select, textarea { width: 100%; padding: 10px; border: 1px solid #ddd; border-radius: 5px; font-size: 16px; }\n"
+            + "        .required { color: red; }\n"
+            + "        .field-info { background: #e8f4fd; padding: 10px; border-radius: 5px; margin-top: 5px; font-size: 14px; color: #0066cc; }\n"
+            + "        .submit-btn { background: #007bff; color: white; padding: 12px 30px; border: none; border-radius: 5px; cursor: pointer; font-size: 16px; }\n"
+            + "        .submit-btn:hover { background: #0056b3; }\n"
+            + "        .form-header { text-align: center; margin-bottom: 30px; }\n"
+            + "        .form-header h1 { color: #333; margin-bottom: 10px; }\n"
+            + "        .form-header p { color: #666; }\n"
+            + "    </style>\n"
+            + "</head>\n"
+            + "<body>\n"
+            + "    <div class=\"form-header\">\n"
+            + "        <h1>📋 Demo Form Generated from Analysis</h1>\n"
+            + "        <p><strong>Original URL:</strong> ";
+    
+    private static final String URL_END = "</p>\n"
+            + "        <p><strong>Form Type:</strong> ";
+    
+    private static final String FORM_TYPE_END = "</p>\n"
+            + "        <p><strong>Total Fields:</strong> ";
+    
+    private static final String FIELD_COUNT_END = "</p>\n"
+            + "    </div>\n"
+            + "    <div class=\"form-container\">\n"
+            + "        <form id=\"demoForm\">\n";
+    
+    private static final String PAGE_END = "            <div class=\"form-group\">\n"
+            + "                <button type=\"submit\" class=\"submit-btn\">🚀 Submit Demo Form</button>\n"
+            + "            </div>\n"
+            + "        </form>\n"
+            + "    </div>\n"
+            + "    <script>\n"
+            + "        document.getElementById('demoForm').addEventListener('submit', function(e) {\n"
+            + "            e.preventDefault();\n"
+            + "            alert('🎉 Demo form submitted! This is a demonstration form generated from AI analysis.');\n"
+            + "        });\n"
+            + "    </script>\n"
+            + "</body>\n"
+            + "</html>";
+    
+    private static final String FIELD_START = "            <div class=\"form-group\">\n"
+            + "                <label for=\"";
+    private static final String REQUIRED_MARK = " <span class=\"required\">*</span>";
+    private static final String LABEL_END = "</label>\n"
+            + "                ";
+    private static final String FIELD_INFO_START = "\n"
+            + "                <div class=\"field-info\">\n"
+            + "                    <strong>AI Analysis:</strong> ";
+    private static final String FIELD_END = "\n"
+            + "                </div>\n"
+            + "            </div>\n";
+    
+    // Generate default fields if none detected
+    private static final String DEFAULT_FIELDS = """
+            <div class="form-group">
+                <label for="fullName">Full Name <span class="required">*</span></label>
+                <input type="text" id="fullName" name="fullName" placeholder="Enter your full name" required>
+                <div class="field-info">
+                    <strong>AI Analysis:</strong> This field expects the user's complete legal name as it appears on official documents.
+                </div>
+            </div>
+            
+            <div class="form-group">
+                <label for="email">Email Address <span class="required">*</span></label>
+                <input type="email" id="email" name="email" placeholder="your.email@example.com" required>
+                <div class="field-info">
+                    <strong>AI Analysis:</strong> This field expects a valid email address format for communication purposes.
+                </div>
+            </div>
+            
+            <div class="form-group">
+                <label for="phone">Phone Number</label>
+                <input type="tel" id="phone" name="phone" placeholder="(555) 123-4567">
+                <div class="field-info">
+                    <strong>AI Analysis:</strong> This field expects a phone number format for contact purposes.
+                </div>
+            </div>
+            
+            <div class="form-group">
+                <label for="message">Message</label>
+                <textarea id="message" name="message" rows="4" placeholder="Enter your message here"></textarea>
+                <div class="field-info">
+                    <strong>AI Analysis:</strong> This field accepts general text input for user messages or comments.
+                </div>
+            </div>
+            """;
+    
+    // Rough size of one rendered field without its label and explanation, used to presize buffers
+    private static final int FIELD_MARKUP_CHARS = 320;
+    
+    public String generateDummyForm(PageAnalysisResponse analysis) {
+        StringBuilder html = new StringBuilder(estimateLength(analysis));
+        try {
+            render(analysis, html);
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return html.toString();
+    }
+    
+    private void render(PageAnalysisResponse analysis, Appendable out) throws IOException {
+        List<PageAnalysisResponse.FieldInfo> fields = analysis.getFields();
         
-        // Start form
-        html.append("    <div class=\"form-container\">\n");
-        html.append("        <form id=\"demoForm\">\n");
+        out.append(PAGE_START).append(analysis.getTitle())
+                .append(TITLE_END).append(analysis.getUrl())
+                .append(URL_END).append(determineFormType(analysis))
+                .append(FORM_TYPE_END).append(String.valueOf(fields != null ? fields.size() : 0))
+                .append(FIELD_COUNT_END);
         
         // Generate form fields based on analysis
-        if (analysis.getFields() != null && !analysis.getFields().isEmpty()) {
-            for (PageAnalysisResponse.FieldInfo field : analysis.getFields()) {
-                html.append(generateFormField(field));
+        if (fields != null && !fields.isEmpty()) {
+            for (PageAnalysisResponse.FieldInfo field : fields) {
+                renderFormField(field, out);
             }
         } else {
-            // Generate default fields if none detected
-            html.append(generateDefaultFields());
+            out.append(DEFAULT_FIELDS);
         }
         
-        // Submit button
-        html.append("            <div class=\"form-group\">\n");
-        html.append("                <button type=\"submit\" class=\"submit-btn\">🚀 Submit Demo Form</button>\n");
-        html.append("            </div>\n");
-        html.append("        </form>\n");
-        html.append("    </div>\n");
-        
-        // Add JavaScript for form handling
-        html.append("    <script>\n");
-        html.append("        document.getElementById('demoForm').addEventListener('submit', function(e) {\n");
-        html.append("            e.preventDefault();\n");
-        html.append("            alert('🎉 Demo form submitted! This is a demonstration form generated from AI analysis.');\n");
-        html.append("        });\n");
-        html.append("    </script>\n");
-        html.append("</body>\n");
-        html.append("</html>");
-        
-        return html.toString();
+        out.append(PAGE_END);
     }
     
-    private String generateFormField(PageAnalysisResponse.FieldInfo field) {
-        StringBuilder fieldHtml = new StringBuilder();
-        
-        fieldHtml.append("            <div class=\"form-group\">\n");
-        
-        // Generate label
+    private int estimateLength(PageAnalysisResponse analysis) {
+        int length = PAGE_START.length() + TITLE_END.length() + URL_END.length() + FORM_TYPE_END.length()
+                + FIELD_COUNT_END.length() + PAGE_END.length() + DEFAULT_FIELDS.length()
+                + length(analysis.getTitle()) + length(analysis.getUrl());
+        if (analysis.getFields() != null) {
+            for (PageAnalysisResponse.FieldInfo field : analysis.getFields()) {
+                length += FIELD_MARKUP_CHARS + length(field.getLabel()) + length(field.getAiExplanation());
+            }
+        }
+        return length;
+    }
+    
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+    
+    private void renderFormField(PageAnalysisResponse.FieldInfo field, Appendable out) throws IOException {
         String labelText = field.getLabel() != null ? field.getLabel() : field.getName();
         if (labelText == null || labelText.isEmpty()) {
             labelText = "Field " + field.getName();
         }
         
-        fieldHtml.append("                <label for=\"").append(field.getName()).append("\">");
-        fieldHtml.append(labelText);
+        out.append(FIELD_START).append(field.getName()).append("\">").append(labelText);
         if (field.isRequired()) {
-            fieldHtml.append(" <span class=\"required\">*</span>");
+            out.append(REQUIRED_MARK);
         }
-        fieldHtml.append("</label>\n");
-        
-        // Generate input field
-        fieldHtml.append("                ");
-        fieldHtml.append(generateInputElement(field, labelText));
-        fieldHtml.append("\n");
-        
-        // Add field information
-        fieldHtml.append("                <div class=\"field-info\">\n");
-        fieldHtml.append("                    <strong>AI Analysis:</strong> ").append(field.getAiExplanation()).append("\n");
-        fieldHtml.append("                </div>\n");
-        
-        fieldHtml.append("            </div>\n");
-        
-        return fieldHtml.toString();
+        out.append(LABEL_END);
+        renderInputElement(field, labelText, out);
+        out.append(FIELD_INFO_START).append(field.getAiExplanation()).append(FIELD_END);
     }
     
-    private String generateInputElement(PageAnalysisResponse.FieldInfo field, String labelText) {
+    private void renderInputElement(PageAnalysisResponse.FieldInfo field, String labelText, Appendable out) throws IOException {
         String type = field.getType() != null ? field.getType().toLowerCase() : "text";
         String name = field.getName() != null ? field.getName() : "field_" + System.currentTimeMillis();
-        String placeholder = field.getPlaceholder() != null ? field.getPlaceholder() : "";
+        String required = field.isRequired() ? "required" : "";
         
         switch (type) {
             case "email":
-                return String.format("<input type=\"email\" id=\"%s\" name=\"%s\" placeholder=\"%s\" %s>", 
-                    name, name, placeholder, field.isRequired() ? "required" : "");
-                
+                renderInput("<input type=\"email\" id=\"", name, field, out);
+                break;
+            
             case "password":
-                return String.format("<input type=\"password\" id=\"%s\" name=\"%s\" placeholder=\"%s\" %s>", 
-                    name, name, placeholder, field.isRequired() ? "required" : "");
-                
+                renderInput("<input type=\"password\" id=\"", name, field, out);
+                break;
+            
             case "tel":
             case "phone":
-                return String.format("<input type=\"tel\" id=\"%s\" name=\"%s\" placeholder=\"%s\" %s>", 
-                    name, name, placeholder, field.isRequired() ? "required" : "");
-                
+                renderInput("<input type=\"tel\" id=\"", name, field, out);
+                break;
+            
             case "date":
-                return String.format("<input type=\"date\" id=\"%s\" name=\"%s\" %s>", 
-                    name, name, field.isRequired() ? "required" : "");
-                
+                out.append("<input type=\"date\" id=\"").append(name).append("\" name=\"").append(name)
+                        .append("\" ").append(required).append('>');
+                break;
+            
             case "number":
-                return String.format("<input type=\"number\" id=\"%s\" name=\"%s\" placeholder=\"%s\" %s>", 
-                    name, name, placeholder, field.isRequired() ? "required" : "");
-                
+                renderInput("<input type=\"number\" id=\"", name, field, out);
+                break;
+            
             case "select":
-                return generateSelectElement(name, field);
-                
+                renderSelectElement(name, field, out);
+                break;
+            
             case "textarea":
-                return String.format("<textarea id=\"%s\" name=\"%s\" rows=\"4\" placeholder=\"%s\" %s></textarea>", 
-                    name, name, placeholder, field.isRequired() ? "required" : "");
-                
+                out.append("<textarea id=\"").append(name).append("\" name=\"").append(name)
+                        .append("\" rows=\"4\" placeholder=\"").append(placeholder(field))
+                        .append("\" ").append(required).append("></textarea>");
+                break;
+            
             case "checkbox":
-                return String.format("<input type=\"checkbox\" id=\"%s\" name=\"%s\" %s> <label for=\"%s\">%s</label>", 
-                    name, name, field.isRequired() ? "required" : "", name, labelText);
-                
+                out.append("<input type=\"checkbox\" id=\"").append(name).append("\" name=\"").append(name)
+                        .append("\" ").append(required).append("> <label for=\"").append(name).append("\">")
+                        .append(labelText).append("</label>");
+                break;
+            
             case "radio":
-                return generateRadioElements(name, field, labelText);
-                
+                renderRadioElements(name, field, out);
+                break;
+            
             default:
-                return String.format("<input type=\"text\" id=\"%s\" name=\"%s\" placeholder=\"%s\" %s>", 
-                    name, name, placeholder, field.isRequired() ? "required" : "");
+                renderInput("<input type=\"text\" id=\"", name, field, out);
+                break;
         }
     }
     
-    private String generateSelectElement(String name, PageAnalysisResponse.FieldInfo field) {
-        StringBuilder select = new StringBuilder();
-        select.append("<select id=\"").append(name).append("\" name=\"").append(name).append("\"");
+    private static void renderInput(String start, String name, PageAnalysisResponse.FieldInfo field, Appendable out) throws IOException {
+        out.append(start).append(name).append("\" name=\"").append(name)
+                .append("\" placeholder=\"").append(placeholder(field))
+                .append("\" ").append(field.isRequired() ? "required" : "").append('>');
+    }
+    
+    private static String placeholder(PageAnalysisResponse.FieldInfo field) {
+        return field.getPlaceholder() != null ? field.getPlaceholder() : "";
+    }
+    
+    private void renderSelectElement(String name, PageAnalysisResponse.FieldInfo field, Appendable out) throws IOException {
+        out.append("<select id=\"").append(name).append("\" name=\"").append(name).append('"');
         if (field.isRequired()) {
-            select.append(" required");
+            out.append(" required");
         }
-        select.append(">\n");
-        select.append("                    <option value=\"\">-- Select an option --</option>\n");
+        out.append(">\n");
         
         // Generate relevant options based on field type
-        String[] options = generateOptionsForField(field);
-        for (String option : options) {
-            select.append("                    <option value=\"").append(option.toLowerCase().replace(" ", "_")).append("\">").append(option).append("</option>\n");
-        }
-        
-        select.append("                </select>");
-        return select.toString();
+        out.append(optionsForField(field).selectOptions);
+        out.append("                </select>");
     }
     
-    private String generateRadioElements(String name, PageAnalysisResponse.FieldInfo field, String labelText) {
-        StringBuilder radio = new StringBuilder();
-        String[] options = generateOptionsForField(field);
+    private void renderRadioElements(String name, PageAnalysisResponse.FieldInfo field, Appendable out) throws IOException {
+        OptionSet options = optionsForField(field);
         
-        for (int i = 0; i < options.length; i++) {
-            String option = options[i];
-            String value = option.toLowerCase().replace(" ", "_");
-            radio.append(String.format("<input type=\"radio\" id=\"%s_%d\" name=\"%s\" value=\"%s\" %s>", 
-                name, i, name, value, i == 0 && field.isRequired() ? "required" : ""));
-            radio.append(String.format("<label for=\"%s_%d\">%s</label><br>", name, i, option));
+        for (int i = 0; i < options.labels.length; i++) {
+            String index = String.valueOf(i);
+            out.append("<input type=\"radio\" id=\"").append(name).append('_').append(index)
+                    .append("\" name=\"").append(name)
+                    .append("\" value=\"").append(options.values[i])
+                    .append("\" ").append(i == 0 && field.isRequired() ? "required" : "")
+                    .append("><label for=\"").append(name).append('_').append(index).append("\">")
+                    .append(options.labels[i]).append("</label><br>");
         }
-        
-        return radio.toString();
     }
     
-    private String[] generateOptionsForField(PageAnalysisResponse.FieldInfo field) {
-        String label = field.getLabel() != null ? field.getLabel().toLowerCase() : "";
-        String name = field.getName() != null ? field.getName().toLowerCase() : "";
-        
-        if (label.contains("gender") || name.contains("gender")) {
-            return new String[]{"Male", "Female", "Other", "Prefer not to say"};
-        } else if (label.contains("country") || name.contains("country")) {
-            return new String[]{"United States", "Canada", "United Kingdom", "Australia", "Germany", "France", "India", "Japan"};
-        } else if (label.contains("state") || name.contains("state")) {
-            return new String[]{"California", "New York", "Texas", "Florida", "Illinois", "Pennsylvania", "Ohio", "Georgia"};
-        } else if (label.contains("marital") || name.contains("marital")) {
-            return new String[]{"Single", "Married", "Divorced", "Widowed", "Separated"};
-        } else if (label.contains("education") || name.contains("education")) {
-            return new String[]{"High School", "Associate's Degree", "Bachelor's Degree", "Master's Degree", "Doctorate"};
-        } else if (label.contains("income") || name.contains("income")) {
-            return new String[]{"Under $25,000", "$25,000 - $50,000", "$50,000 - $75,000", "$75,000 - $100,000", "Over $100,000"};
-        } else {
-            return new String[]{"Option 1", "Option 2", "Option 3", "Option 4"};
-        }
+    private OptionSet optionsForField(PageAnalysisResponse.FieldInfo field) {
+        // Label and name are both checked for every topic; topics are tried in declaration order
+        OptionTopic topic = OPTION_TOPICS.first(field.getLabel(), field.getName());
+        return topic != null ? topic.options : GENERIC_OPTIONS;
     }
     
-    private String generateDefaultFields() {
-        return """
-                <div class="form-group">
-                    <label for="fullName">Full Name <span class="required">*</span></label>
-                    <input type="text" id="fullName" name="fullName" placeholder="Enter your full name" required>
-                    <div class="field-info">
-                        <strong>AI Analysis:</strong> This field expects the user's complete legal name as it appears on official documents.
-                    </div>
-                </div>
-                
-                <div class="form-group">
-                    <label for="email">Email Address <span class="required">*</span></label>
-                    <input type="email" id="email" name="email" placeholder="your.email@example.com" required>
-                    <div class="field-info">
-                        <strong>AI Analysis:</strong> This field expects a valid email address format for communication purposes.
-                    </div>
-                </div>
-                
-                <div class="form-group">
-                    <label for="phone">Phone Number</label>
-                    <input type="tel" id="phone" name="phone" placeholder="(555) 123-4567">
-                    <div class="field-info">
-                        <strong>AI Analysis:</strong> This field expects a phone number format for contact purposes.
-                    </div>
-                </div>
-                
-                <div class="form-group">
-                    <label for="message">Message</label>
-                    <textarea id="message" name="message" rows="4" placeholder="Enter your message here"></textarea>
-                    <div class="field-info">
-                        <strong>AI Analysis:</strong> This field accepts general text input for user messages or comments.
-                    </div>
-                </div>
-                """;
+    private String determineFormType(PageAnalysisResponse analysis) {
+        PageType type = PageType.detect(analysis.getTitle(), analysis.getPageSummary());
+        return type != null ? type.formName() : "Data Collection Form";
     }
     
-    private String determineFormType(PageAnalysisResponse analysis) {
-        String title = analysis.getTitle().toLowerCase();
-        String summary = analysis.getPageSummary().toLowerCase();
+    /**
+     * Option labels with their submitted values, and the {@code <option>} lines of a select
+     * rendered once up front.
+     */
+    private static final class OptionSet {
+        private final String[] labels;
+        private final String[] values;
+        private final String selectOptions;
         
-        if (title.contains("loan") || summary.contains("loan")) {
-            return "Loan Application Form";
-        } else if (title.contains("register") || summary.contains("register")) {
-            return "Registration Form";
-        } else if (title.contains("contact") || summary.contains("contact")) {
-            return "Contact Form";
-        } else if (title.contains("checkout") || summary.contains("checkout")) {
-            return "Checkout Form";
-        } else if (title.contains("survey") || summary.contains("survey")) {
-            return "Survey Form";
-        } else {
-            return "Data Collection Form";
+        private OptionSet(String... labels) {
+            this.labels = labels;
+            this.values = new String[labels.length];
+            StringBuilder select = new StringBuilder("                    <option value=\"\">-- Select an option --</option>\n");
+            for (int i = 0; i < labels.length; i++) {
+                values[i] = labels[i].toLowerCase().replace(" ", "_");
+                select.append("                    <option value=\"").append(values[i]).append("\">").append(labels[i]).append("</option>\n");
+            }
+            this.selectOptions = select.toString();
         }
     }
 }
@@ -0,0 +1,24 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Everything the analysis pipeline needs from a parsed page, collected in one DOM traversal.
+ */
+@Data
+@Builder
+public class ExtractedPage {
+    private String title;
+    private String bodyText; // Materialized once and shared by every consumer
+    private String headings; // One "- H2: text" line per heading, in document order
+    private List<PageAnalysisResponse.FieldInfo> fields;
+    private List<String> fieldContexts; // Index-aligned with fields
+    private String pageContent;
+    private String codeContent;
+    private String questionsContent;
+    private int statusCode; // HTTP status the page was served with
+}
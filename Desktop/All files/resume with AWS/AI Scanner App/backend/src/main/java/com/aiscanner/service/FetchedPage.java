@@ -0,0 +1,20 @@
+package com.aiscanner.service;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Raw result of fetching a page, before it is parsed into a Jsoup document.
+ */
+@Data
+@Builder
+public class FetchedPage {
+    private String url; // Final URL after redirects
+    private int statusCode;
+    private String contentType;
+    private String charset;
+    private String etag;
+    private String lastModified;
+    private byte[] body; // Empty for a 304 Not Modified response
+    private boolean truncated; // Cut off at scraper.max.body.bytes
+}
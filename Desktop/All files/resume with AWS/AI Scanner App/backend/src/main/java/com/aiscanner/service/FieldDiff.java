@@ -0,0 +1,86 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches the fields of a fresh extraction against the previous analysis of the same page on
+ * name, type, label and placeholder. Matched fields keep their earlier explanation if Gemini
+ * wrote it; added or changed fields, and fields that only got a fallback, go to Gemini again.
+ */
+final class FieldDiff {
+    
+    private final String[] carriedExplanations; // Index-aligned with the current fields, null when the field needs explaining
+    private final int unmatchedCurrent;
+    private final int unmatchedPrevious;
+    private final int total;
+    
+    private FieldDiff(String[] carriedExplanations, int unmatchedCurrent, int unmatchedPrevious, int total) {
+        this.carriedExplanations = carriedExplanations;
+        this.unmatchedCurrent = unmatchedCurrent;
+        this.unmatchedPrevious = unmatchedPrevious;
+        this.total = total;
+    }
+    
+    static FieldDiff between(List<PageAnalysisResponse.FieldInfo> previous, List<PageAnalysisResponse.FieldInfo> current) {
+        if (previous == null) {
+            previous = List.of();
+        }
+        
+        // Repeated keys (radio groups, unnamed fields) are matched in document order
+        Map<List<String>, Deque<PageAnalysisResponse.FieldInfo>> previousByKey = new HashMap<>();
+        for (PageAnalysisResponse.FieldInfo field : previous) {
+            previousByKey.computeIfAbsent(key(field), k -> new ArrayDeque<>()).add(field);
+        }
+        
+        String[] carried = new String[current.size()];
+        int unmatchedCurrent = 0;
+        for (int i = 0; i < current.size(); i++) {
+            Deque<PageAnalysisResponse.FieldInfo> candidates = previousByKey.get(key(current.get(i)));
+            PageAnalysisResponse.FieldInfo match = candidates != null ? candidates.poll() : null;
+            if (match == null) {
+                unmatchedCurrent++;
+            } else if (match.isAiGenerated() && match.getAiExplanation() != null && !match.getAiExplanation().isBlank()) {
+                carried[i] = match.getAiExplanation();
+            }
+        }
+        int unmatchedPrevious = previous.size() - (current.size() - unmatchedCurrent);
+        return new FieldDiff(carried, unmatchedCurrent, unmatchedPrevious, previous.size() + current.size());
+    }
+    
+    private static List<String> key(PageAnalysisResponse.FieldInfo field) {
+        return Arrays.asList(field.getName(), field.getType(), field.getLabel(), field.getPlaceholder());
+    }
+    
+    /**
+     * Indexes of the current fields that have no explanation to carry over.
+     */
+    List<Integer> fieldsToExplain() {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < carriedExplanations.length; i++) {
+            if (carriedExplanations[i] == null) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+    
+    String carriedExplanation(int index) {
+        return carriedExplanations[index];
+    }
+    
+    /**
+     * Share of fields on either side that have no counterpart on the other, from 0 (same fields)
+     * to 1 (nothing in common).
+     */
+    double changeRatio() {
+        return total == 0 ? 0 : (double) (unmatchedCurrent + unmatchedPrevious) / total;
+    }
+}
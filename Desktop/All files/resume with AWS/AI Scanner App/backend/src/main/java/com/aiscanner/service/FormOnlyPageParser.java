@@ -0,0 +1,144 @@
+package com.aiscanner.service;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lightweight parse for very large pages. Scripts, styles and similar never reach the DOM, and
+ * afterwards every subtree without a form control, label or heading is replaced by its text, up
+ * to {@code textBudget} characters for the whole page. What remains is what field extraction and
+ * the page summary need; lists, paragraphs and code blocks are not kept as elements.
+ */
+final class FormOnlyPageParser {
+    
+    private FormOnlyPageParser() {
+    }
+    
+    static Document parse(Reader html, String baseUri, int textBudget) {
+        // Jsoup needs a reader that supports mark()
+        Document doc = Parser.htmlParser().parseInput(new BufferedReader(new MarkupSkippingReader(html)), baseUri);
+        if (doc.body() == null) {
+            return doc;
+        }
+        
+        Set<Element> keep = findKept(doc.body());
+        int[] remaining = {textBudget};
+        prune(doc.body(), keep, remaining);
+        return doc;
+    }
+    
+    /**
+     * Elements that must survive: form-related elements and headings, and all their ancestors.
+     */
+    private static Set<Element> findKept(Element body) {
+        Set<Element> keep = Collections.newSetFromMap(new IdentityHashMap<>());
+        NodeTraversor.traverse(new NodeVisitor() {
+            @Override
+            public void head(Node node, int depth) {
+            }
+            
+            @Override
+            public void tail(Node node, int depth) {
+                // Children are finished before their parent, so one bottom-up pass marks every ancestor
+                if (!(node instanceof Element)) {
+                    return;
+                }
+                Element element = (Element) node;
+                if (keep.contains(element) || isKept(element)) {
+                    keep.add(element);
+                    Element parent = element.parent();
+                    if (parent != null) {
+                        keep.add(parent);
+                    }
+                }
+            }
+        }, body);
+        return keep;
+    }
+    
+    private static boolean isKept(Element element) {
+        switch (element.normalName()) {
+            case "form":
+            case "input":
+            case "select":
+            case "textarea":
+            case "button":
+            case "label":
+            case "h1":
+            case "h2":
+            case "h3":
+            case "h4":
+            case "h5":
+            case "h6":
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static void prune(Element element, Set<Element> keep, int[] remaining) {
+        // Form contents are kept whole: labels and nearby text are used to describe fields
+        if ("form".equals(element.normalName())) {
+            return;
+        }
+        for (Node child : new ArrayList<>(element.childNodes())) {
+            if (!(child instanceof Element)) {
+                continue;
+            }
+            Element childElement = (Element) child;
+            if (keep.contains(childElement)) {
+                prune(childElement, keep, remaining);
+                continue;
+            }
+            String text = boundedText(childElement, remaining[0]);
+            remaining[0] -= text.length();
+            if (text.isEmpty()) {
+                childElement.remove();
+            } else {
+                childElement.replaceWith(new TextNode(" " + text + " "));
+            }
+        }
+    }
+    
+    private static String boundedText(Element element, int limit) {
+        if (limit <= 0) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        NodeTraversor.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (node instanceof TextNode) {
+                    if (text.length() > 0) {
+                        text.append(' ');
+                    }
+                    StringUtil.appendNormalisedWhitespace(text, ((TextNode) node).getWholeText(), true);
+                }
+                return text.length() >= limit ? FilterResult.STOP : FilterResult.CONTINUE;
+            }
+            
+            @Override
+            public FilterResult tail(Node node, int depth) {
+                return FilterResult.CONTINUE;
+            }
+        }, element);
+        
+        String collapsed = text.toString().trim().replaceAll("\\s{2,}", " ");
+        return collapsed.length() > limit ? collapsed.substring(0, limit) : collapsed;
+    }
+}
@@ -1,163 +1,676 @@
 package com.aiscanner.service;
 
 import com.aiscanner.dto.PageAnalysisResponse;
+import com.aiscanner.store.GeminiRecordingStore;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class GeminiAIService {
     
+    // Call types used to tag the gemini.call timer and gemini.fallback counter
+    private static final String CALL_PAGE_ANALYSIS = "page.analysis";
+    private static final String CALL_FIELD = "field";
+    private static final String CALL_FIELD_BATCH = "field.batch";
+    private static final String CALL_PAGE_QUESTION = "page.question";
+    private static final String CALL_GENERAL_QUESTION = "general.question";
+    
+    // Keyword heuristics for questions, matched in one pass per question
+    private enum QuestionTopic {
+        GENERAL, CONCEPT, MONGODB, DATABASE, PROGRAMMING, TECHNOLOGY, TECHNICAL,
+        WHAT, FIELD_OR_ENTER, HOW, FILL, PURPOSE, PROCESS
+    }
+    
+    private static final KeywordMatcher<QuestionTopic> QUESTION_TOPICS = KeywordMatcher.builder(QuestionTopic.class)
+            // General topics that don't require page context
+            .add(QuestionTopic.GENERAL,
+                    "what is", "explain", "define", "describe", "how does", "tell me about",
+                    "mongodb", "database", "sql", "nosql", "javascript", "python", "java",
+                    "html", "css", "react", "node.js", "spring", "docker", "kubernetes",
+                    "aws", "azure", "cloud", "api", "rest", "graphql", "microservices",
+                    "machine learning", "ai", "artificial intelligence", "data science",
+                    "cybersecurity", "networking", "devops", "agile", "scrum")
+            .add(QuestionTopic.CONCEPT, "what is", "explain")
+            .add(QuestionTopic.MONGODB, "mongodb")
+            .add(QuestionTopic.DATABASE, "database")
+            // Programming questions about scanned content
+            .add(QuestionTopic.PROGRAMMING, "program", "code", "algorithm", "implement", "how to", "solve", "example", "structure")
+            // Technology questions about scanned content
+            .add(QuestionTopic.TECHNOLOGY, "mongodb", "database", "nosql", "kafka", "redis", "aws", "api", "microservice")
+            // Programming and technical general questions
+            .add(QuestionTopic.TECHNICAL, "program", "code", "algorithm", "java", "python", "javascript", "how to", "implement",
+                    "solve", "example", "array", "data structure", "mongodb", "database")
+            .add(QuestionTopic.WHAT, "what")
+            .add(QuestionTopic.FIELD_OR_ENTER, "field", "enter")
+            .add(QuestionTopic.HOW, "how")
+            .add(QuestionTopic.FILL, "fill")
+            .add(QuestionTopic.PURPOSE, "purpose", "for")
+            .add(QuestionTopic.PROCESS, "flow", "process")
+            .build();
+    
+    // Keyword heuristics for fallback field explanations; names and labels are matched on different keywords
+    private enum FieldTopic {
+        FIRST_NAME, LAST_NAME, INCOME, LOAN, AMOUNT, EMPLOYMENT, OCCUPATION, PHONE, MARITAL, BIRTH, NAME, ADDRESS
+    }
+    
+    private static final KeywordMatcher<FieldTopic> FIELD_NAME_TOPICS = KeywordMatcher.builder(FieldTopic.class)
+            .add(FieldTopic.FIRST_NAME, "firstname", "first_name")
+            .add(FieldTopic.LAST_NAME, "lastname", "last_name")
+            .add(FieldTopic.INCOME, "income")
+            .add(FieldTopic.LOAN, "loan")
+            .add(FieldTopic.AMOUNT, "amount")
+            .add(FieldTopic.EMPLOYMENT, "employment", "employer")
+            .add(FieldTopic.OCCUPATION, "occupation")
+            .add(FieldTopic.PHONE, "phone")
+            .add(FieldTopic.MARITAL, "marital")
+            .add(FieldTopic.BIRTH, "birth", "date")
+            .add(FieldTopic.NAME, "name")
+            .add(FieldTopic.ADDRESS, "address")
+            .build();
+    
+    private static final KeywordMatcher<FieldTopic> FIELD_LABEL_TOPICS = KeywordMatcher.builder(FieldTopic.class)
+            .add(FieldTopic.FIRST_NAME, "first name")
+            .add(FieldTopic.LAST_NAME, "last name")
+            .add(FieldTopic.INCOME, "income")
+            .add(FieldTopic.LOAN, "loan")
+            .add(FieldTopic.AMOUNT, "amount")
+            .add(FieldTopic.EMPLOYMENT, "employment")
+            .add(FieldTopic.OCCUPATION, "occupation")
+            .add(FieldTopic.PHONE, "phone")
+            .add(FieldTopic.MARITAL, "marital")
+            .add(FieldTopic.BIRTH, "birth")
+            .add(FieldTopic.NAME, "name")
+            .build();
+    
     @Value("${gemini.api.key}")
     private String apiKey;
     
+    // Point at a local stand-in (see loadtest/) to exercise the client without spending quota
+    @Value("${gemini.api.base.url:https://generativelanguage.googleapis.com/v1beta/models}")
+    private String apiBaseUrl;
+    
     @Value("${gemini.model.name:gemini-pro}")
     private String modelName;
     
+    // Initialized to the defaults too, so instances built outside Spring (benchmarks) use real budgets
     @Value("${gemini.max.tokens:2048}")
-    private int maxTokens;
+    private int maxTokens = 2048;
     
     @Value("${gemini.temperature:0.7}")
-    private float temperature;
+    private float temperature = 0.7f;
+    
+    @Value("${gemini.field.batch.tokens.per.field:150}")
+    private int batchTokensPerField;
+    
+    @Value("${gemini.chat.top.chunks:8}")
+    private int chatTopChunks = 8;
+    
+    @Value("${gemini.request.timeout.ms:30000}")
+    private long requestTimeoutMs;
+    
+    @Value("${gemini.cache.enabled:true}")
+    private boolean responseCacheEnabled;
     
-    private final WebClient webClient;
+    @Value("${gemini.cache.max.bytes:16777216}")
+    private long responseCacheMaxBytes;
+    
+    @Value("${gemini.cache.ttl.minutes:60}")
+    private long responseCacheTtlMinutes;
+    
+    @Autowired
+    @Qualifier("geminiExecutor")
+    private Executor geminiExecutor;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private GeminiCallGuard callGuard;
+    
+    @Autowired
+    private GeminiRecordingStore recording;
+    
+    private WebClient webClient;
     private final ObjectMapper objectMapper;
     
+    // Successful Gemini answers keyed by a hash of model, generation parameters and prompt; null when disabled
+    private Cache<String, String> responseCache;
+    
     public GeminiAIService() {
-        this.webClient = WebClient.builder()
-                .baseUrl("https://generativelanguage.googleapis.com/v1beta/models")
-                .build();
         this.objectMapper = new ObjectMapper();
     }
     
-    public CompletableFuture<String> analyzePageWithAI(String url, String title, String htmlContent, List<PageAnalysisResponse.FieldInfo> fields) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String prompt = buildAnalysisPrompt(url, title, htmlContent, fields);
-                return callGeminiAPI(prompt);
-            } catch (Exception e) {
-                log.error("Error in Gemini AI analysis for URL: {}", url, e);
-                return generateFallbackAnalysis(url, title, fields);
-            }
-        });
+    @PostConstruct
+    void initWebClient() {
+        webClient = WebClient.builder()
+                .baseUrl(apiBaseUrl)
+                .build();
     }
     
-    public CompletableFuture<String> analyzeFieldWithAI(String fieldName, String fieldType, String fieldLabel, String placeholder, String context) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String prompt = buildFieldAnalysisPrompt(fieldName, fieldType, fieldLabel, placeholder, context);
-                return callGeminiAPI(prompt);
-            } catch (Exception e) {
-                log.error("Error in Gemini AI field analysis for field: {}", fieldName, e);
-                return generateFallbackFieldExplanation(fieldName, fieldType, fieldLabel, placeholder);
-            }
-        });
+    @PostConstruct
+    void initResponseCache() {
+        if (!responseCacheEnabled) {
+            return;
+        }
+        responseCache = Caffeine.newBuilder()
+                .maximumWeight(responseCacheMaxBytes)
+                .weigher((String key, String answer) -> key.length() * 2 + answer.length() * 2)
+                .expireAfterWrite(Duration.ofMinutes(responseCacheTtlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responseCache, "geminiResponses");
     }
     
-    public CompletableFuture<String> answerQuestionAboutPage(String question, String pageContent, List<PageAnalysisResponse.FieldInfo> fields, 
-                                                             String fullPageContent, String codeContent, String questionsContent) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Check if this is a general question (not about the current page)
-                if (isGeneralQuestion(question)) {
-                    String prompt = buildGeneralQuestionPrompt(question);
-                    return callGeminiAPI(prompt);
-                } else {
-                    String prompt = buildAdvancedQuestionAnsweringPrompt(question, pageContent, fields, fullPageContent, codeContent, questionsContent);
-                    return callGeminiAPI(prompt);
-                }
-            } catch (Exception e) {
-                log.error("Error in Gemini AI question answering for question: {}", question, e);
-                return generateFallbackAnswer(question, fields);
+    /**
+     * @param headings    the page's heading outline, one heading per line
+     * @param visibleText the page's rendered text, without markup
+     */
+    public CompletableFuture<GeminiAnswer> analyzePageWithAI(String url, String title, String headings, String visibleText, List<PageAnalysisResponse.FieldInfo> fields) {
+        return callGeminiAPI(CALL_PAGE_ANALYSIS, () -> buildAnalysisPrompt(url, title, headings, visibleText, fields))
+                .exceptionally(error -> fallbackOnError(CALL_PAGE_ANALYSIS, error, "Error in Gemini AI analysis for URL: {}", url,
+                        () -> GeminiAnswer.fallback(generateFallbackAnalysis(url, title, fields))));
+    }
+    
+    public CompletableFuture<GeminiAnswer> analyzeFieldWithAI(String fieldName, String fieldType, String fieldLabel, String placeholder, String context) {
+        return callGeminiAPI(CALL_FIELD, () -> buildFieldAnalysisPrompt(fieldName, fieldType, fieldLabel, placeholder, context))
+                .exceptionally(error -> fallbackOnError(CALL_FIELD, error, "Error in Gemini AI field analysis for field: {}", fieldName,
+                        () -> GeminiAnswer.fallback(generateFallbackFieldExplanation(fieldName, fieldType, fieldLabel, placeholder))));
+    }
+    
+    /**
+     * Explains many fields with one Gemini request per chunk instead of one request per field.
+     * Fields are chunked so that the expected JSON answer stays within {@code gemini.max.tokens};
+     * fields missing from a partial or malformed answer get the heuristic fallback explanation.
+     *
+     * @param fields   fields to explain
+     * @param contexts surrounding page context for each field, index-aligned with {@code fields}
+     * @return explanations index-aligned with {@code fields}
+     */
+    public CompletableFuture<List<GeminiAnswer>> analyzeFieldsWithAI(List<PageAnalysisResponse.FieldInfo> fields, List<String> contexts) {
+        int fieldsPerChunk = Math.max(1, (int) (maxTokens * 0.9) / Math.max(1, batchTokensPerField));
+        
+        List<CompletableFuture<List<GeminiAnswer>>> chunks = new ArrayList<>();
+        for (int start = 0; start < fields.size(); start += fieldsPerChunk) {
+            int end = Math.min(fields.size(), start + fieldsPerChunk);
+            chunks.add(analyzeFieldChunk(fields.subList(start, end), contexts.subList(start, end)));
+        }
+        
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<GeminiAnswer> explanations = new ArrayList<>(fields.size());
+                    for (CompletableFuture<List<GeminiAnswer>> chunk : chunks) {
+                        explanations.addAll(chunk.join());
+                    }
+                    return explanations;
+                });
+    }
+    
+    private CompletableFuture<List<GeminiAnswer>> analyzeFieldChunk(List<PageAnalysisResponse.FieldInfo> fields, List<String> contexts) {
+        return callGeminiAPI(CALL_FIELD_BATCH, () -> buildBatchFieldAnalysisPrompt(fields, contexts))
+                .handle((answer, error) -> {
+                    Map<Integer, String> explained = new HashMap<>();
+                    if (error == null && !answer.isGenerated()) {
+                        log.debug("Gemini batch field analysis answered with an error message, using fallback explanations for {} fields", fields.size());
+                    } else if (error == null) {
+                        try {
+                            explained = parseBatchFieldExplanations(answer.getText());
+                        } catch (Exception e) {
+                            log.error("Error in Gemini AI batch field analysis for {} fields", fields.size(), e);
+                        }
+                    } else if (unwrap(error) instanceof GeminiUnavailableException) {
+                        log.debug("Gemini batch field analysis refused, using fallback explanations for {} fields", fields.size());
+                    } else {
+                        log.error("Error in Gemini AI batch field analysis for {} fields", fields.size(), unwrap(error));
+                    }
+                    return withFallbackExplanations(fields, explained);
+                });
+    }
+    
+    private List<GeminiAnswer> withFallbackExplanations(List<PageAnalysisResponse.FieldInfo> fields, Map<Integer, String> explained) {
+        List<GeminiAnswer> explanations = new ArrayList<>(fields.size());
+        int missing = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            String explanation = explained.get(i);
+            if (explanation == null || explanation.isBlank()) {
+                PageAnalysisResponse.FieldInfo field = fields.get(i);
+                explanations.add(GeminiAnswer.fallback(generateFallbackFieldExplanation(field.getName(), field.getType(), field.getLabel(), field.getPlaceholder())));
+                missing++;
+            } else {
+                explanations.add(GeminiAnswer.fromGemini(explanation));
             }
-        });
+        }
+        recordFallback(CALL_FIELD_BATCH, "missing_field", missing);
+        return explanations;
+    }
+    
+    public CompletableFuture<String> answerQuestionAboutPage(String question, String pageContent, List<PageAnalysisResponse.FieldInfo> fields,
+                                                             PageChunkIndex chunkIndex) {
+        // Check if this is a general question (not about the current page)
+        CompletableFuture<GeminiAnswer> answer = isGeneralQuestion(question)
+                ? callGeminiAPI(CALL_GENERAL_QUESTION, () -> buildGeneralQuestionPrompt(question))
+                : callGeminiAPI(CALL_PAGE_QUESTION, () -> buildAdvancedQuestionAnsweringPrompt(question, pageContent, fields, chunkIndex));
+        return answer.thenApply(GeminiAnswer::getText).exceptionally(error -> fallbackOnError(CALL_PAGE_QUESTION, error, "Error in Gemini AI question answering for question: {}", question,
+                () -> generateFallbackAnswer(question, fields)));
     }
     
     public CompletableFuture<String> answerGeneralQuestion(String question) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String prompt = buildGeneralQuestionPrompt(question);
-                return callGeminiAPI(prompt);
-            } catch (Exception e) {
-                log.error("Error in Gemini AI general question answering for question: {}", question, e);
-                return generateFallbackGeneralAnswer(question);
-            }
+        return callGeminiAPI(CALL_GENERAL_QUESTION, () -> buildGeneralQuestionPrompt(question))
+                .thenApply(GeminiAnswer::getText)
+                .exceptionally(error -> fallbackOnError(CALL_GENERAL_QUESTION, error, "Error in Gemini AI general question answering for question: {}", question,
+                        () -> generateFallbackGeneralAnswer(question)));
+    }
+    
+    /**
+     * Streaming variant of {@link #answerQuestionAboutPage}: emits answer text chunks as Gemini generates them.
+     */
+    public Flux<String> streamAnswerQuestionAboutPage(String question, String pageContent, List<PageAnalysisResponse.FieldInfo> fields,
+                                                      PageChunkIndex chunkIndex) {
+        return Flux.defer(() -> {
+            boolean general = isGeneralQuestion(question);
+            String prompt = general
+                    ? buildGeneralQuestionPrompt(question)
+                    : buildAdvancedQuestionAnsweringPrompt(question, pageContent, fields, chunkIndex);
+            return streamGeminiAPI(general ? CALL_GENERAL_QUESTION : CALL_PAGE_QUESTION, prompt, () -> generateFallbackAnswer(question, fields));
         });
     }
     
-    private String callGeminiAPI(String prompt) {
+    /**
+     * Streaming variant of {@link #answerGeneralQuestion}: emits answer text chunks as Gemini generates them.
+     */
+    public Flux<String> streamGeneralAnswer(String question) {
+        return Flux.defer(() -> streamGeminiAPI(CALL_GENERAL_QUESTION, buildGeneralQuestionPrompt(question), () -> generateFallbackGeneralAnswer(question)));
+    }
+    
+    /**
+     * Answers with {@code fallback} for a failed call. Refusals by the call guard or a full executor
+     * were already counted when they happened; anything else is logged and counted here.
+     */
+    private <T> T fallbackOnError(String callType, Throwable error, String message, Object subject, Supplier<T> fallback) {
+        Throwable cause = unwrap(error);
+        if (!(cause instanceof GeminiUnavailableException)) {
+            log.error(message, subject, cause);
+            recordFallback(callType, "exception", 1);
+        }
+        return fallback.get();
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    /**
+     * Counts answers that did not come from Gemini, so the fallback rate per call type is
+     * {@code gemini.fallback} over {@code gemini.call} count.
+     */
+    private void recordFallback(String callType, String reason, int count) {
+        if (count > 0) {
+            Counter.builder("gemini.fallback")
+                    .description("Answers served from a fallback instead of a Gemini response")
+                    .tag("type", callType)
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+    
+    private void recordCall(String callType, Timer.Sample sample, String outcome, boolean fallbackServed) {
+        sample.stop(Timer.builder("gemini.call")
+                .description("Gemini API calls by call type and outcome")
+                .tag("type", callType)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        if (fallbackServed) {
+            recordFallback(callType, outcome, 1);
+        }
+    }
+    
+    /**
+     * Calls Gemini through the call guard without holding a thread for the round trip: the prompt
+     * is built and the permit taken on the Gemini executor, the request itself runs on the
+     * WebClient's event loop. Upstream errors are answered with an explanatory message; a call
+     * the guard or a full executor refuses fails with {@link GeminiUnavailableException} so the
+     * caller can answer with its fallback instead.
+     */
+    private CompletableFuture<GeminiAnswer> callGeminiAPI(String callType, Supplier<String> prompt) {
         try {
-            // Validate API key
-            if (apiKey == null || apiKey.trim().isEmpty() || apiKey.equals("your_api_key_here") || 
-                apiKey.equals("5ed07087a223b82756b8096b5bf72d863bb430ca") || apiKey.equals("disabled")) {
-                log.warn("Invalid or test Gemini API key detected. Using fallback responses. Please set a valid API key from https://aistudio.google.com/app/apikey");
-                return "AI analysis is temporarily unavailable. Please configure a valid Gemini API key from https://aistudio.google.com/app/apikey to enable intelligent responses.";
+            return CompletableFuture.supplyAsync(() -> startGeminiCall(callType, prompt.get()), geminiExecutor)
+                    .thenCompose(Function.identity());
+        } catch (RejectedExecutionException e) {
+            log.warn("Gemini executor queue is full, answering with fallback");
+            recordFallback(callType, "rejected", 1);
+            return CompletableFuture.failedFuture(new GeminiUnavailableException("rejected"));
+        }
+    }
+    
+    private CompletableFuture<GeminiAnswer> startGeminiCall(String callType, String prompt) {
+        String promptHash = hashPrompt(prompt);
+        String cached = cachedResponse(promptHash);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(GeminiAnswer.fromGemini(cached));
+        }
+        
+        Timer.Sample sample = Timer.start(meterRegistry);
+        GeminiRecordingStore.Recorded replayed = null;
+        if (recording.isReplaying()) {
+            replayed = recording.replay(promptHash);
+            if (replayed == null) {
+                recordCall(callType, sample, "not_recorded", true);
+                throw new GeminiUnavailableException("not_recorded");
             }
-            
-            String requestBody = buildGeminiRequest(prompt);
-            log.debug("Sending request to Gemini API with prompt length: {}", prompt.length());
-            
-            String response = webClient.post()
+        } else if (!hasUsableApiKey()) {
+            // Validate API key
+            log.warn("Invalid or test Gemini API key detected. Using fallback responses. Please set a valid API key from https://aistudio.google.com/app/apikey");
+            recordCall(callType, sample, "no_api_key", true);
+            return CompletableFuture.completedFuture(GeminiAnswer.fallback("AI analysis is temporarily unavailable. Please configure a valid Gemini API key from https://aistudio.google.com/app/apikey to enable intelligent responses."));
+        }
+        
+        GeminiCallGuard.Permit permit;
+        try {
+            // Waiting for a permit is the only blocking step, and it happens on the Gemini executor
+            permit = callGuard.acquire();
+        } catch (GeminiUnavailableException e) {
+            recordCall(callType, sample, e.getReason(), true);
+            throw e;
+        }
+        long startedNanos = System.nanoTime();
+        if (replayed != null) {
+            // Replays go through the guard and the response parsing like a real call would
+            return replayResponse(replayed)
+                    .handle((response, error) -> completeGeminiCall(callType, promptHash, sample, startedNanos, permit, response, error));
+        }
+        
+        String requestBody = buildGeminiRequest(prompt);
+        log.debug("Sending request to Gemini API with prompt length: {}", prompt.length());
+        
+        try {
+            return webClient.post()
                     .uri("/{model}:generateContent?key={apiKey}", modelName, apiKey)
                     .header("Content-Type", "application/json")
                     .bodyValue(requestBody)
                     .retrieve()
                     .bodyToMono(String.class)
-                    .block();
-            
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .toFuture()
+                    .handle((response, error) -> completeGeminiCall(callType, promptHash, sample, startedNanos, permit, response, error));
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(completeGeminiCall(callType, promptHash, sample, startedNanos, permit, null, e));
+        }
+    }
+    
+    /**
+     * Wraps a recorded answer in a generateContent response body, delivered after the recorded
+     * latency (or at once when replaying with zero latency).
+     */
+    private CompletableFuture<String> replayResponse(GeminiRecordingStore.Recorded replayed) {
+        String response = objectMapper.createObjectNode()
+                .set("candidates", objectMapper.createArrayNode().add(objectMapper.createObjectNode()
+                        .set("content", objectMapper.createObjectNode()
+                                .set("parts", objectMapper.createArrayNode().add(objectMapper.createObjectNode()
+                                        .put("text", replayed.getAnswer()))))))
+                .toString();
+        Duration delay = recording.replayDelay(replayed);
+        if (delay.isZero()) {
+            return CompletableFuture.completedFuture(response);
+        }
+        return new CompletableFuture<String>().completeOnTimeout(response, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Turns a finished Gemini request into the answer, releases its permit and records the call.
+     * Anything but Gemini's own text is answered as a {@link GeminiAnswer#fallback}.
+     */
+    private GeminiAnswer completeGeminiCall(String callType, String promptHash, Timer.Sample sample, long startedNanos,
+                                            GeminiCallGuard.Permit permit, String response, Throwable error) {
+        String outcome = "error";
+        GeminiCallGuard.CallResult callResult = GeminiCallGuard.CallResult.FAILED;
+        try {
+            if (error != null) {
+                throw unwrap(error);
+            }
             if (response != null) {
                 JsonNode jsonResponse = objectMapper.readTree(response);
                 
                 // Check for error in response
                 if (jsonResponse.has("error")) {
-                    JsonNode error = jsonResponse.get("error");
-                    String errorMessage = error.path("message").asText();
+                    JsonNode apiError = jsonResponse.get("error");
+                    String errorMessage = apiError.path("message").asText();
                     log.error("Gemini API error: {}", errorMessage);
-                    return "AI analysis encountered an error: " + errorMessage;
+                    outcome = "api_error";
+                    callResult = GeminiCallGuard.CallResult.IGNORED;
+                    return GeminiAnswer.fallback("AI analysis encountered an error: " + errorMessage);
                 }
                 
                 JsonNode candidates = jsonResponse.path("candidates");
                 if (candidates.isArray() && candidates.size() > 0) {
                     JsonNode content = candidates.get(0).path("content");
                     if (content.has("parts") && content.get("parts").isArray() && content.get("parts").size() > 0) {
-                        return content.get("parts").get(0).path("text").asText();
+                        outcome = "success";
+                        callResult = GeminiCallGuard.CallResult.SUCCESS;
+                        String answer = content.get("parts").get(0).path("text").asText();
+                        cacheResponse(promptHash, answer);
+                        recording.record(promptHash, System.nanoTime() - startedNanos, answer);
+                        return GeminiAnswer.fromGemini(answer);
                     }
                 }
             }
             
             log.warn("Unexpected response format from Gemini API: {}", response);
-            return "AI analysis completed but response format was unexpected.";
+            outcome = "unexpected_format";
+            callResult = GeminiCallGuard.CallResult.IGNORED;
+            return GeminiAnswer.fallback("AI analysis completed but response format was unexpected.");
             
         } catch (org.springframework.web.reactive.function.client.WebClientResponseException e) {
             log.error("Gemini API HTTP error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
+            outcome = "http_" + e.getStatusCode().value();
+            callResult = classifyHttpError(e.getStatusCode().value());
             
             if (e.getStatusCode().value() == 400) {
-                return "AI analysis failed due to invalid request. The content might be too large or contain unsupported characters.";
+                return GeminiAnswer.fallback("AI analysis failed due to invalid request. The content might be too large or contain unsupported characters.");
             } else if (e.getStatusCode().value() == 401) {
-                return "AI analysis failed due to authentication issues. Please check your API key.";
+                return GeminiAnswer.fallback("AI analysis failed due to authentication issues. Please check your API key.");
             } else if (e.getStatusCode().value() == 403) {
-                return "AI analysis failed due to permission issues. Please check your API key permissions.";
+                return GeminiAnswer.fallback("AI analysis failed due to permission issues. Please check your API key permissions.");
             } else if (e.getStatusCode().value() == 429) {
-                return "AI analysis failed due to rate limiting. Please try again later.";
+                return GeminiAnswer.fallback("AI analysis failed due to rate limiting. Please try again later.");
             } else {
-                return "AI analysis temporarily unavailable due to service issues.";
+                return GeminiAnswer.fallback("AI analysis temporarily unavailable due to service issues.");
+            }
+        } catch (Throwable e) {
+            if (Exceptions.unwrap(e) instanceof TimeoutException) {
+                log.error("Gemini API call timed out after {} ms", requestTimeoutMs);
+                outcome = "timeout";
+                callResult = GeminiCallGuard.CallResult.OVERLOADED;
+                return GeminiAnswer.fallback("AI analysis temporarily unavailable due to service issues.");
             }
-        } catch (Exception e) {
             log.error("Error calling Gemini API", e);
-            return "AI analysis encountered an unexpected error.";
+            return GeminiAnswer.fallback("AI analysis encountered an unexpected error.");
+        } finally {
+            permit.release(callResult);
+            // Every non-success path answers with a canned message instead of Gemini's text
+            recordCall(callType, sample, outcome, !"success".equals(outcome));
         }
     }
     
-    private String buildGeminiRequest(String prompt) {
+    /**
+     * Hashes everything that determines Gemini's answer, so a key only matches a request that
+     * would be sent byte-for-byte identically. Keys both the response cache and the recording.
+     */
+    private String hashPrompt(String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((modelName + '\u0000' + temperature + '\u0000' + maxTokens + '\u0000').getBytes(StandardCharsets.UTF_8));
+            digest.update((prompt != null ? prompt : "").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private String cachedResponse(String promptHash) {
+        return responseCache != null ? responseCache.getIfPresent(promptHash) : null;
+    }
+    
+    // Only real Gemini answers are cached; error messages and fallbacks never reach this point
+    private void cacheResponse(String promptHash, String answer) {
+        if (responseCache != null && answer != null && !answer.isBlank()) {
+            responseCache.put(promptHash, answer);
+        }
+    }
+    
+    private static GeminiCallGuard.CallResult classifyHttpError(int status) {
+        if (status == 429) {
+            return GeminiCallGuard.CallResult.OVERLOADED;
+        }
+        // Other 4xx answers say nothing about upstream health
+        return status >= 500 ? GeminiCallGuard.CallResult.FAILED : GeminiCallGuard.CallResult.IGNORED;
+    }
+    
+    private Flux<String> streamGeminiAPI(String callType, String prompt, Supplier<String> fallback) {
+        String promptHash = hashPrompt(prompt);
+        String cached = cachedResponse(promptHash);
+        if (cached != null) {
+            return Flux.just(cached);
+        }
+        
+        Timer.Sample sample = Timer.start(meterRegistry);
+        GeminiRecordingStore.Recorded replayed = null;
+        if (recording.isReplaying()) {
+            replayed = recording.replay(promptHash);
+            if (replayed == null) {
+                recordCall(callType, sample, "not_recorded", true);
+                return Flux.just(fallback.get());
+            }
+        } else if (!hasUsableApiKey()) {
+            log.warn("Invalid or test Gemini API key detected. Using fallback responses. Please set a valid API key from https://aistudio.google.com/app/apikey");
+            recordCall(callType, sample, "no_api_key", true);
+            return Flux.just("AI analysis is temporarily unavailable. Please configure a valid Gemini API key from https://aistudio.google.com/app/apikey to enable intelligent responses.");
+        }
+        
+        GeminiCallGuard.Permit permit;
+        try {
+            // Reactive callers must not block, so only take a permit that is free right now
+            permit = callGuard.tryAcquire();
+        } catch (GeminiUnavailableException e) {
+            recordCall(callType, sample, e.getReason(), true);
+            return Flux.just(fallback.get());
+        }
+        long startedNanos = System.nanoTime();
+        
+        Flux<String> chunks;
+        if (replayed != null) {
+            // A recorded stream is replayed as its whole answer once the recorded stream duration has passed
+            chunks = Mono.delay(recording.replayDelay(replayed)).thenReturn(replayed.getAnswer()).flux();
+        } else {
+            log.debug("Sending streaming request to Gemini API with prompt length: {}", prompt.length());
+            chunks = webClient.post()
+                    .uri("/{model}:streamGenerateContent?alt=sse&key={apiKey}", modelName, apiKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(buildGeminiRequest(prompt))
+                    .retrieve()
+                    .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                    // Bounds the wait for the first event and then the silence between events, not the whole answer
+                    .timeout(Mono.delay(Duration.ofMillis(requestTimeoutMs)), event -> Mono.delay(Duration.ofMillis(requestTimeoutMs)))
+                    .mapNotNull(ServerSentEvent::data)
+                    .mapNotNull(this::extractCandidateText);
+        }
+        
+        AtomicBoolean emitted = new AtomicBoolean();
+        StringBuilder answer = new StringBuilder();
+        return chunks
+                .doOnNext(chunk -> {
+                    emitted.set(true);
+                    answer.append(chunk);
+                })
+                .doOnComplete(() -> {
+                    cacheResponse(promptHash, answer.toString());
+                    recording.record(promptHash, System.nanoTime() - startedNanos, answer.toString());
+                    // Stream duration tracks answer length rather than upstream load, so it does not feed the adaptive limit
+                    permit.release(GeminiCallGuard.CallResult.IGNORED);
+                    recordCall(callType, sample, "success", false);
+                })
+                .doOnCancel(() -> {
+                    permit.release(GeminiCallGuard.CallResult.IGNORED);
+                    recordCall(callType, sample, "cancelled", false);
+                })
+                .onErrorResume(e -> {
+                    String outcome = emitted.get() ? "stream_interrupted" : "error";
+                    if (e instanceof TimeoutException) {
+                        log.error("Gemini stream went {} ms without an event", requestTimeoutMs);
+                        outcome = "timeout";
+                        permit.release(GeminiCallGuard.CallResult.OVERLOADED);
+                    } else {
+                        log.error("Error streaming from Gemini API", e);
+                        permit.release(e instanceof org.springframework.web.reactive.function.client.WebClientResponseException
+                                ? classifyHttpError(((org.springframework.web.reactive.function.client.WebClientResponseException) e).getStatusCode().value())
+                                : GeminiCallGuard.CallResult.FAILED);
+                    }
+                    recordCall(callType, sample, outcome, !emitted.get());
+                    // Only fall back when nothing reached the client yet; otherwise end the partial answer
+                    return emitted.get() ? Flux.empty() : Flux.just(fallback.get());
+                });
+    }
+    
+    private String extractCandidateText(String chunkJson) {
+        try {
+            JsonNode parts = objectMapper.readTree(chunkJson).path("candidates").path(0).path("content").path("parts");
+            StringBuilder text = new StringBuilder();
+            for (JsonNode part : parts) {
+                text.append(part.path("text").asText(""));
+            }
+            return text.length() > 0 ? text.toString() : null;
+        } catch (Exception e) {
+            log.warn("Skipping unparseable Gemini stream chunk: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private boolean hasUsableApiKey() {
+        return !(apiKey == null || apiKey.trim().isEmpty() || apiKey.equals("your_api_key_here") || 
+                 apiKey.equals("5ed07087a223b82756b8096b5bf72d863bb430ca") || apiKey.equals("disabled"));
+    }
+    
+    String buildGeminiRequest(String prompt) {
         try {
             // Ensure prompt is not empty and trim it
             String cleanPrompt = prompt != null ? prompt.trim() : "";
@@ -184,34 +697,45 @@ public class GeminiAIService {
         }
     }
     
-    private String buildAnalysisPrompt(String url, String title, String htmlContent, List<PageAnalysisResponse.FieldInfo> fields) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("You are an expert web analyst and UX specialist. Analyze the following webpage and provide insights:\n\n");
-        prompt.append("URL: ").append(url).append("\n");
-        prompt.append("Title: ").append(title).append("\n");
-        prompt.append("Number of form fields: ").append(fields.size()).append("\n\n");
-        
-        prompt.append("Please provide a comprehensive analysis including:\n");
-        prompt.append("1. Page purpose and type (e.g., loan application, registration, e-commerce)\n");
-        prompt.append("2. Overall user experience assessment\n");
-        prompt.append("3. Form complexity and user journey\n");
-        prompt.append("4. Potential improvements or concerns\n");
-        prompt.append("5. Accessibility considerations\n\n");
-        
-        prompt.append("HTML Content (first 2000 characters):\n");
-        prompt.append(htmlContent.substring(0, Math.min(htmlContent.length(), 2000))).append("\n\n");
-        
-        prompt.append("Form Fields Detected:\n");
-        for (PageAnalysisResponse.FieldInfo field : fields) {
-            prompt.append("- ").append(field.getType()).append(" field: ").append(field.getLabel() != null ? field.getLabel() : field.getName()).append("\n");
-        }
+    String buildAnalysisPrompt(String url, String title, String headings, String visibleText, List<PageAnalysisResponse.FieldInfo> fields) {
+        StringBuilder intro = new StringBuilder();
+        intro.append("You are an expert web analyst and UX specialist. Analyze the following webpage and provide insights:\n\n");
+        intro.append("URL: ").append(url).append("\n");
+        intro.append("Title: ").append(title).append("\n");
+        intro.append("Number of form fields: ").append(fields.size()).append("\n\n");
         
-        prompt.append("\nProvide a professional, helpful analysis that would be useful for developers, UX designers, and business analysts.");
+        intro.append("Please provide a comprehensive analysis including:\n");
+        intro.append("1. Page purpose and type (e.g., loan application, registration, e-commerce)\n");
+        intro.append("2. Overall user experience assessment\n");
+        intro.append("3. Form complexity and user journey\n");
+        intro.append("4. Potential improvements or concerns\n");
+        intro.append("5. Accessibility considerations\n\n");
         
-        return prompt.toString();
+        // Form structure and outline first: they say most about the page per token
+        return new PromptAssembler(maxTokens)
+                .fixed(intro.toString())
+                .items("Form Fields Detected:", describeFields(fields, "- "), 3)
+                .items("Page Structure (Headings):", headings != null ? headings.lines().toList() : List.of(), 1)
+                .text("Visible Page Text:", visibleText, 4)
+                .fixed("Provide a professional, helpful analysis that would be useful for developers, UX designers, and business analysts.")
+                .build();
+    }
+    
+    private static List<String> describeFields(List<PageAnalysisResponse.FieldInfo> fields, String bullet) {
+        List<String> lines = new ArrayList<>(fields.size());
+        for (PageAnalysisResponse.FieldInfo field : fields) {
+            StringBuilder line = new StringBuilder(bullet);
+            line.append(field.getLabel() != null ? field.getLabel() : field.getName())
+                .append(" (").append(field.getType()).append(field.isRequired() ? ", required" : "").append(")");
+            if (field.getPlaceholder() != null && !field.getPlaceholder().isEmpty()) {
+                line.append(" - Example: ").append(field.getPlaceholder());
+            }
+            lines.add(line.toString());
+        }
+        return lines;
     }
     
-    private String buildFieldAnalysisPrompt(String fieldName, String fieldType, String fieldLabel, String placeholder, String context) {
+    String buildFieldAnalysisPrompt(String fieldName, String fieldType, String fieldLabel, String placeholder, String context) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("You are Gemini AI. Explain this form field to the user naturally and conversationally. ");
         prompt.append("Be clear, helpful, and straightforward - just like you normally are. ");
@@ -234,10 +758,66 @@ public class GeminiAIService {
         return prompt.toString();
     }
     
+    String buildBatchFieldAnalysisPrompt(List<PageAnalysisResponse.FieldInfo> fields, List<String> contexts) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("You are Gemini AI. Explain each of the following form fields to the user naturally and conversationally. ");
+        prompt.append("Be clear, helpful, and straightforward - just like you normally are. ");
+        prompt.append("For each field, explain what to enter with helpful examples and tips in two or three sentences. ");
+        prompt.append("If it's a choice field, explain the options clearly.\n\n");
+        
+        prompt.append("Fields:\n");
+        for (int i = 0; i < fields.size(); i++) {
+            PageAnalysisResponse.FieldInfo field = fields.get(i);
+            prompt.append("[").append(i).append("] ");
+            prompt.append("Name: ").append(field.getName() != null ? field.getName() : "Not specified");
+            prompt.append("; Type: ").append(field.getType());
+            prompt.append("; Label: ").append(field.getLabel() != null ? field.getLabel() : "Not specified");
+            prompt.append("; Placeholder: ").append(field.getPlaceholder() != null && !field.getPlaceholder().isEmpty() ? field.getPlaceholder() : "Not specified");
+            String context = contexts.get(i);
+            if (context != null && !context.isEmpty()) {
+                prompt.append("; Context: ").append(context);
+            }
+            prompt.append("\n");
+        }
+        
+        prompt.append("\nRespond with ONLY a JSON array and no other text, in exactly this shape:\n");
+        prompt.append("[{\"id\": 0, \"explanation\": \"...\"}, {\"id\": 1, \"explanation\": \"...\"}]\n");
+        prompt.append("Include one object per field, using the field number shown in brackets as the id.");
+        
+        return prompt.toString();
+    }
+    
+    private Map<Integer, String> parseBatchFieldExplanations(String response) {
+        Map<Integer, String> explanations = new HashMap<>();
+        if (response == null) {
+            return explanations;
+        }
+        
+        // Gemini often wraps JSON in a markdown fence, so only parse the outermost array
+        int start = response.indexOf('[');
+        int end = response.lastIndexOf(']');
+        if (start < 0 || end <= start) {
+            log.warn("Batch field analysis response did not contain a JSON array");
+            return explanations;
+        }
+        
+        try {
+            JsonNode items = objectMapper.readTree(response.substring(start, end + 1));
+            for (JsonNode item : items) {
+                if (item.hasNonNull("id") && item.hasNonNull("explanation")) {
+                    explanations.put(item.get("id").asInt(), item.get("explanation").asText().trim());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not parse batch field analysis response: {}", e.getMessage());
+        }
+        return explanations;
+    }
+    
     private String generateFallbackAnalysis(String url, String title, List<PageAnalysisResponse.FieldInfo> fields) {
         StringBuilder analysis = new StringBuilder();
         analysis.append("AI analysis temporarily unavailable. Here's a basic analysis:\n\n");
-        analysis.append("This appears to be a ").append(title.toLowerCase().contains("loan") ? "loan application" : "web form").append(" page.\n");
+        analysis.append("This appears to be a ").append(PageType.detect(title) == PageType.LOAN ? "loan application" : "web form").append(" page.\n");
         analysis.append("The page contains ").append(fields.size()).append(" form fields for data collection.\n");
         analysis.append("Based on the field types, this form is designed to gather user information systematically.\n");
         analysis.append("Consider implementing proper validation and clear user guidance for optimal user experience.");
@@ -249,7 +829,9 @@ public class GeminiAIService {
         StringBuilder explanation = new StringBuilder();
         
         // Determine what this field is for based on name and label
-        String fieldPurpose = determineFieldPurpose(fieldName, fieldLabel, fieldType);
+        EnumSet<FieldTopic> topics = FIELD_NAME_TOPICS.match(fieldName);
+        topics.addAll(FIELD_LABEL_TOPICS.match(fieldLabel));
+        String fieldPurpose = determineFieldPurpose(topics);
         
         if (fieldPurpose != null) {
             explanation.append(fieldPurpose).append(" ");
@@ -295,11 +877,10 @@ public class GeminiAIService {
                 break;
             case "text":
             default:
-                if (fieldName != null && (fieldName.toLowerCase().contains("name") || 
-                    (fieldLabel != null && fieldLabel.toLowerCase().contains("name")))) {
+                if (fieldName != null && topics.contains(FieldTopic.NAME)) {
                     explanation.append("Enter your name like 'John Smith' or 'Sarah Johnson'. ");
                     explanation.append("Use your full legal name if this is for official purposes.");
-                } else if (fieldName != null && fieldName.toLowerCase().contains("address")) {
+                } else if (topics.contains(FieldTopic.ADDRESS)) {
                     explanation.append("Enter your address like '123 Main Street' or 'Apt 4B, 456 Oak Avenue'. ");
                     explanation.append("Be as specific as possible for accurate delivery or contact.");
                 } else {
@@ -313,38 +894,35 @@ public class GeminiAIService {
         return explanation.toString();
     }
     
-    private String determineFieldPurpose(String fieldName, String fieldLabel, String fieldType) {
-        String name = (fieldName != null ? fieldName : "").toLowerCase();
-        String label = (fieldLabel != null ? fieldLabel : "").toLowerCase();
-        
-        if (name.contains("firstname") || name.contains("first_name") || label.contains("first name")) {
+    private String determineFieldPurpose(EnumSet<FieldTopic> topics) {
+        if (topics.contains(FieldTopic.FIRST_NAME)) {
             return "Enter your first name like 'John' or 'Sarah'.";
-        } else if (name.contains("lastname") || name.contains("last_name") || label.contains("last name")) {
+        } else if (topics.contains(FieldTopic.LAST_NAME)) {
             return "Enter your last name like 'Smith' or 'Johnson'.";
-        } else if (name.contains("income") || label.contains("income")) {
+        } else if (topics.contains(FieldTopic.INCOME)) {
             return "Enter your annual income amount like '75000' (without commas or dollar signs).";
-        } else if (name.contains("loan") || label.contains("loan")) {
-            if (name.contains("amount") || label.contains("amount")) {
+        } else if (topics.contains(FieldTopic.LOAN)) {
+            if (topics.contains(FieldTopic.AMOUNT)) {
                 return "Enter how much money you want to borrow like '25000' or '150000'.";
             } else {
                 return "Select what you'll use the loan for.";
             }
-        } else if (name.contains("employment") || label.contains("employment") || name.contains("employer")) {
+        } else if (topics.contains(FieldTopic.EMPLOYMENT)) {
             return "Enter your current employer's name like 'ABC Company' or 'XYZ Corporation'.";
-        } else if (name.contains("occupation") || label.contains("occupation")) {
+        } else if (topics.contains(FieldTopic.OCCUPATION)) {
             return "Enter your job title like 'Software Engineer' or 'Marketing Manager'.";
-        } else if (name.contains("phone") || label.contains("phone")) {
+        } else if (topics.contains(FieldTopic.PHONE)) {
             return "Enter your phone number including area code.";
-        } else if (name.contains("marital") || label.contains("marital")) {
+        } else if (topics.contains(FieldTopic.MARITAL)) {
             return "Select your marital status.";
-        } else if (name.contains("birth") || label.contains("birth") || name.contains("date")) {
+        } else if (topics.contains(FieldTopic.BIRTH)) {
             return "Enter your birth date.";
         }
         
         return null;
     }
     
-    private String buildQuestionAnsweringPrompt(String question, String pageContent, List<PageAnalysisResponse.FieldInfo> fields) {
+    String buildQuestionAnsweringPrompt(String question, String pageContent, List<PageAnalysisResponse.FieldInfo> fields) {
         // Check if the question is already an enhanced prompt from the frontend
         if (question.contains("SCANNED CONTENT") || question.contains("CODING TASK:") || 
             question.contains("EXPLANATION REQUEST:") || question.contains("CODE ANALYSIS:") || 
@@ -354,41 +932,33 @@ public class GeminiAIService {
         }
         
         // Otherwise, use the standard prompt for simple questions
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("You are a helpful chatbot assistant analyzing a webpage for a user. ");
-        prompt.append("Answer the user's question about this page in a conversational, friendly way.\n\n");
+        StringBuilder intro = new StringBuilder();
+        intro.append("You are a helpful chatbot assistant analyzing a webpage for a user. ");
+        intro.append("Answer the user's question about this page in a conversational, friendly way.\n\n");
         
-        prompt.append("User Question: ").append(question).append("\n\n");
+        intro.append("User Question: ").append(question).append("\n\n");
         
-        prompt.append("Page Information:\n");
-        prompt.append("Content (first 1500 characters): ").append(pageContent.substring(0, Math.min(pageContent.length(), 1500))).append("\n\n");
+        StringBuilder instructions = new StringBuilder();
+        instructions.append("Instructions:\n");
+        instructions.append("1. Answer the question directly and helpfully\n");
+        instructions.append("2. If asking about a specific field, explain what to enter with examples\n");
+        instructions.append("3. If asking about options, explain each choice clearly\n");
+        instructions.append("4. Use a conversational, chatbot-like tone\n");
+        instructions.append("5. Be specific and actionable in your response\n");
+        instructions.append("6. If the question is about the page purpose, explain what this form/page is for\n\n");
         
-        if (!fields.isEmpty()) {
-            prompt.append("Form Fields Available:\n");
-            for (PageAnalysisResponse.FieldInfo field : fields) {
-                prompt.append("- ").append(field.getType()).append(" field: ")
-                      .append(field.getLabel() != null ? field.getLabel() : field.getName())
-                      .append(field.getPlaceholder() != null ? " (example: " + field.getPlaceholder() + ")" : "")
-                      .append("\n");
-            }
-            prompt.append("\n");
-        }
-        
-        prompt.append("Instructions:\n");
-        prompt.append("1. Answer the question directly and helpfully\n");
-        prompt.append("2. If asking about a specific field, explain what to enter with examples\n");
-        prompt.append("3. If asking about options, explain each choice clearly\n");
-        prompt.append("4. Use a conversational, chatbot-like tone\n");
-        prompt.append("5. Be specific and actionable in your response\n");
-        prompt.append("6. If the question is about the page purpose, explain what this form/page is for\n\n");
+        instructions.append("Respond as if you're a helpful assistant guiding the user through this webpage.");
         
-        prompt.append("Respond as if you're a helpful assistant guiding the user through this webpage.");
-        
-        return prompt.toString();
+        return new PromptAssembler(maxTokens)
+                .fixed(intro.toString())
+                .text("Page Information:", pageContent, 3)
+                .items("Form Fields Available:", describeFields(fields, "- "), 2)
+                .fixed(instructions.toString())
+                .build();
     }
     
-    private String buildAdvancedQuestionAnsweringPrompt(String question, String pageContent, List<PageAnalysisResponse.FieldInfo> fields,
-                                                        String fullPageContent, String codeContent, String questionsContent) {
+    String buildAdvancedQuestionAnsweringPrompt(String question, String pageContent, List<PageAnalysisResponse.FieldInfo> fields,
+                                                PageChunkIndex chunkIndex) {
         // Check if the question is already an enhanced prompt from the frontend
         if (question.contains("SCANNED CONTENT") || question.contains("CODING TASK:") || 
             question.contains("EXPLANATION REQUEST:") || question.contains("CODE ANALYSIS:") || 
@@ -397,102 +967,80 @@ public class GeminiAIService {
             return question;
         }
         
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("You are Gemini AI. Answer the user's question about the scanned content naturally and conversationally. ");
-        prompt.append("Be clear, helpful, and straightforward - just like you normally are. ");
-        prompt.append("Don't use any special formatting, bullet points, numbered sections, or technical jargon. ");
-        prompt.append("Give a natural, conversational response as if you're explaining something to a friend.\n\n");
+        StringBuilder intro = new StringBuilder();
+        intro.append("You are Gemini AI. Answer the user's question about the scanned content naturally and conversationally. ");
+        intro.append("Be clear, helpful, and straightforward - just like you normally are. ");
+        intro.append("Don't use any special formatting, bullet points, numbered sections, or technical jargon. ");
+        intro.append("Give a natural, conversational response as if you're explaining something to a friend.\n\n");
         
-        prompt.append("USER QUESTION: ").append(question).append("\n\n");
-        
-        // Limit content size to avoid API limits
-        prompt.append("=== SCANNED CONTENT ===\n");
-        if (fullPageContent != null && !fullPageContent.trim().isEmpty()) {
-            String limitedContent = fullPageContent.length() > 2000 ? 
-                fullPageContent.substring(0, 2000) + "..." : fullPageContent;
-            prompt.append(limitedContent).append("\n\n");
-        }
-        
-        if (codeContent != null && !codeContent.trim().isEmpty()) {
-            prompt.append("=== CODE FOUND ===\n");
-            String limitedCode = codeContent.length() > 1000 ? 
-                codeContent.substring(0, 1000) + "..." : codeContent;
-            prompt.append(limitedCode).append("\n\n");
-        }
-        
-        if (questionsContent != null && !questionsContent.trim().isEmpty()) {
-            prompt.append("=== QUESTIONS ON PAGE ===\n");
-            String limitedQuestions = questionsContent.length() > 1000 ? 
-                questionsContent.substring(0, 1000) + "..." : questionsContent;
-            prompt.append(limitedQuestions).append("\n\n");
-        }
-        
-        if (!fields.isEmpty()) {
-            prompt.append("=== FORM FIELDS ===\n");
-            int fieldCount = 0;
-            for (PageAnalysisResponse.FieldInfo field : fields) {
-                if (fieldCount >= 10) { // Limit to 10 fields
-                    prompt.append("... and ").append(fields.size() - fieldCount).append(" more fields\n");
-                    break;
-                }
-                prompt.append("• ").append(field.getLabel() != null ? field.getLabel() : field.getName())
-                      .append(" (").append(field.getType()).append(")");
-                if (field.getPlaceholder() != null && !field.getPlaceholder().isEmpty()) {
-                    prompt.append(" - Example: ").append(field.getPlaceholder());
-                }
-                prompt.append("\n");
-                fieldCount++;
-            }
-            prompt.append("\n");
-        }
+        intro.append("USER QUESTION: ").append(question).append("\n\n");
         
+        StringBuilder prompt = new StringBuilder();
         prompt.append("Answer the question naturally and conversationally, just like Gemini AI would. ");
         prompt.append("Be clear, helpful, and straightforward without any special formatting. ");
         prompt.append("Focus only on answering the question directly. Keep it simple and to the point. ");
         prompt.append("Don't include 'common questions' sections or overly detailed explanations. ");
         
         // Special handling for programming questions in scanned content
-        String lowerQuestion = question.toLowerCase();
-        if (lowerQuestion.contains("program") || lowerQuestion.contains("code") || 
-            lowerQuestion.contains("algorithm") || lowerQuestion.contains("implement") ||
-            lowerQuestion.contains("how to") || lowerQuestion.contains("solve") ||
-            lowerQuestion.contains("example") || lowerQuestion.contains("structure")) {
+        EnumSet<QuestionTopic> topics = QUESTION_TOPICS.match(question);
+        if (topics.contains(QuestionTopic.PROGRAMMING)) {
             
             prompt.append("If this involves programming concepts, provide a structured response with clear explanation, code examples, and step-by-step approach. ");
             prompt.append("Keep it conversational but well-organized for learning.");
         }
         
         // Enhanced handling for technology questions in scanned content
-        if (lowerQuestion.contains("mongodb") || lowerQuestion.contains("database") || 
-            lowerQuestion.contains("nosql") || lowerQuestion.contains("kafka") ||
-            lowerQuestion.contains("redis") || lowerQuestion.contains("aws") ||
-            lowerQuestion.contains("api") || lowerQuestion.contains("microservice")) {
+        if (topics.contains(QuestionTopic.TECHNOLOGY)) {
             
             prompt.append("If this involves technology concepts, provide comprehensive technical details including core concepts, features, how it works, use cases, advantages, and implementation steps. ");
             prompt.append("Give detailed, developer-focused information.");
         }
         
-        return prompt.toString();
+        // Only the passages most relevant to the question, so long pages are not cut off after their first screens
+        List<PageChunkIndex.Chunk> chunks = chunkIndex != null ? chunkIndex.search(question, chatTopChunks) : List.of();
+        
+        // Sections share what the instructions leave of the budget
+        return new PromptAssembler(maxTokens)
+                .fixed(intro.toString())
+                .text("=== SCANNED CONTENT ===", joinChunks(chunks, PageChunkIndex.SOURCE_PAGE), 4)
+                .text("=== CODE FOUND ===", joinChunks(chunks, PageChunkIndex.SOURCE_CODE), 2)
+                .text("=== QUESTIONS ON PAGE ===", joinChunks(chunks, PageChunkIndex.SOURCE_QUESTIONS), 2)
+                .items("=== FORM FIELDS ===", describeFields(fields, "• "), 2)
+                .fixed(prompt.toString())
+                .build();
+    }
+    
+    private static String joinChunks(List<PageChunkIndex.Chunk> chunks, String source) {
+        StringBuilder joined = new StringBuilder();
+        for (PageChunkIndex.Chunk chunk : chunks) {
+            if (source.equals(chunk.getSource())) {
+                if (joined.length() > 0) {
+                    joined.append("\n...\n"); // Selected chunks are not necessarily adjacent on the page
+                }
+                joined.append(chunk.getText());
+            }
+        }
+        return joined.toString();
     }
     
     private String generateFallbackAnswer(String question, List<PageAnalysisResponse.FieldInfo> fields) {
         StringBuilder answer = new StringBuilder();
         
-        String lowerQuestion = question.toLowerCase();
+        EnumSet<QuestionTopic> topics = QUESTION_TOPICS.match(question);
         
         // Check if this is a general question first
-        if (isGeneralQuestion(question)) {
+        if (topics.contains(QuestionTopic.GENERAL)) {
             answer.append("I'd be happy to help you with that! ");
             
-            if (lowerQuestion.contains("mongodb")) {
+            if (topics.contains(QuestionTopic.MONGODB)) {
                 answer.append("MongoDB is a popular NoSQL database that stores data in flexible, JSON-like documents. ");
                 answer.append("It's great for applications that need to handle large amounts of data with varying structures. ");
                 answer.append("Think of it like a digital filing cabinet where each document can have different fields - perfect for modern web apps!");
-            } else if (lowerQuestion.contains("database")) {
+            } else if (topics.contains(QuestionTopic.DATABASE)) {
                 answer.append("A database is like a digital storage system for your information. ");
                 answer.append("It's organized, searchable, and keeps your data safe and accessible. ");
                 answer.append("Think of it like a super-powered spreadsheet that can handle millions of records!");
-            } else if (lowerQuestion.contains("what is") || lowerQuestion.contains("explain")) {
+            } else if (topics.contains(QuestionTopic.CONCEPT)) {
                 answer.append("I'd love to explain that concept to you! ");
                 answer.append("However, I'm currently experiencing some technical difficulties with my AI analysis. ");
                 answer.append("Could you try asking your question again in a moment? I should be back to full capacity soon!");
@@ -505,19 +1053,19 @@ public class GeminiAIService {
             // Page-specific questions - make them more conversational
             answer.append("I'd be happy to help you with that! ");
             
-            if (lowerQuestion.contains("what") && (lowerQuestion.contains("field") || lowerQuestion.contains("enter"))) {
+            if (topics.contains(QuestionTopic.WHAT) && topics.contains(QuestionTopic.FIELD_OR_ENTER)) {
                 answer.append("This page has ").append(fields.size()).append(" form fields for you to fill out. ");
                 answer.append("Each field is designed to collect specific information from you. ");
                 answer.append("Look for the field labels and any placeholder text - they'll give you guidance on what to enter.");
-            } else if (lowerQuestion.contains("how") && lowerQuestion.contains("fill")) {
+            } else if (topics.contains(QuestionTopic.HOW) && topics.contains(QuestionTopic.FILL)) {
                 answer.append("Filling out this form is straightforward! Start from the top and work your way down. ");
                 answer.append("Read each field label carefully and enter the requested information in the format shown. ");
                 answer.append("Required fields (usually marked with *) must be completed. ");
                 answer.append("Just take your time and double-check your entries before submitting.");
-            } else if (lowerQuestion.contains("purpose") || lowerQuestion.contains("for")) {
+            } else if (topics.contains(QuestionTopic.PURPOSE)) {
                 answer.append("This appears to be a form for collecting information. ");
                 answer.append("Based on the fields present, it's designed to gather your details systematically.");
-            } else if (lowerQuestion.contains("flow") || lowerQuestion.contains("process")) {
+            } else if (topics.contains(QuestionTopic.PROCESS)) {
                 answer.append("Based on what I can see on this page, there's a clear flow of information being collected. ");
                 answer.append("The form is designed to gather data step by step, making it easy for you to provide what's needed.");
             } else {
@@ -530,38 +1078,11 @@ public class GeminiAIService {
     }
     
     private boolean isGeneralQuestion(String question) {
-        String lowerQuestion = question.toLowerCase();
-        
-        // List of general topics that don't require page context
-        String[] generalTopics = {
-            "what is", "explain", "define", "describe", "how does", "tell me about",
-            "mongodb", "database", "sql", "nosql", "javascript", "python", "java",
-            "html", "css", "react", "node.js", "spring", "docker", "kubernetes",
-            "aws", "azure", "cloud", "api", "rest", "graphql", "microservices",
-            "machine learning", "ai", "artificial intelligence", "data science",
-            "cybersecurity", "networking", "devops", "agile", "scrum"
-        };
-        
-        // Check if the question contains general topics
-        for (String topic : generalTopics) {
-            if (lowerQuestion.contains(topic)) {
-                return true;
-            }
-        }
-        
-        // Check if it's a conceptual question (doesn't ask about specific page elements)
-        if (lowerQuestion.contains("what is") || 
-            lowerQuestion.contains("explain") || 
-            lowerQuestion.contains("define") || 
-            lowerQuestion.contains("how does") ||
-            lowerQuestion.contains("tell me about")) {
-            return true;
-        }
-        
-        return false;
+        // General topics (including conceptual questions) don't require page context
+        return QUESTION_TOPICS.match(question).contains(QuestionTopic.GENERAL);
     }
     
-    private String buildGeneralQuestionPrompt(String question) {
+    String buildGeneralQuestionPrompt(String question) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("You are Gemini AI. Answer the user's question naturally and conversationally, just like you normally do. ");
         prompt.append("Be clear, helpful, and straightforward. ");
@@ -571,14 +1092,7 @@ public class GeminiAIService {
         prompt.append("Just give a natural, conversational response as if you're talking to a friend.\n\n");
         
         // For programming and technical questions, let the AI provide structured responses naturally
-        String lowerQuestion = question.toLowerCase();
-        if (lowerQuestion.contains("program") || lowerQuestion.contains("code") || 
-            lowerQuestion.contains("algorithm") || lowerQuestion.contains("java") || 
-            lowerQuestion.contains("python") || lowerQuestion.contains("javascript") ||
-            lowerQuestion.contains("how to") || lowerQuestion.contains("implement") ||
-            lowerQuestion.contains("solve") || lowerQuestion.contains("example") ||
-            lowerQuestion.contains("array") || lowerQuestion.contains("data structure") ||
-            lowerQuestion.contains("mongodb") || lowerQuestion.contains("database")) {
+        if (QUESTION_TOPICS.match(question).contains(QuestionTopic.TECHNICAL)) {
             
             prompt.append("This appears to be a programming or technical question. ");
             prompt.append("Provide a clear, structured response that's helpful for developers. ");
@@ -599,17 +1113,17 @@ public class GeminiAIService {
     private String generateFallbackGeneralAnswer(String question) {
         StringBuilder answer = new StringBuilder();
         
-        String lowerQuestion = question.toLowerCase();
+        EnumSet<QuestionTopic> topics = QUESTION_TOPICS.match(question);
         
-        if (lowerQuestion.contains("mongodb")) {
+        if (topics.contains(QuestionTopic.MONGODB)) {
             answer.append("MongoDB is a popular NoSQL database that stores data in flexible, JSON-like documents. ");
             answer.append("It's great for applications that need to handle large amounts of data with varying structures. ");
             answer.append("Think of it like a digital filing cabinet where each document can have different fields - perfect for modern web apps!");
-        } else if (lowerQuestion.contains("database")) {
+        } else if (topics.contains(QuestionTopic.DATABASE)) {
             answer.append("A database is like a digital storage system for your information. ");
             answer.append("It's organized, searchable, and keeps your data safe and accessible. ");
             answer.append("Think of it like a super-powered spreadsheet that can handle millions of records!");
-        } else if (lowerQuestion.contains("what is") || lowerQuestion.contains("explain")) {
+        } else if (topics.contains(QuestionTopic.CONCEPT)) {
             answer.append("I'd love to explain that concept to you! ");
             answer.append("However, I'm currently experiencing some technical difficulties with my AI analysis. ");
             answer.append("Could you try asking your question again in a moment? I should be back to full capacity soon!");
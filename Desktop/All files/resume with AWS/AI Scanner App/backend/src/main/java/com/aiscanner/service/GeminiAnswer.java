@@ -0,0 +1,22 @@
+package com.aiscanner.service;
+
+import lombok.Data;
+
+/**
+ * Text answered for a Gemini call, and whether Gemini actually wrote it. Canned error messages
+ * and heuristic fallbacks are answered in the same place but must never be reused as if they
+ * came from Gemini.
+ */
+@Data
+public class GeminiAnswer {
+    private final String text;
+    private final boolean generated; // false for error messages and fallbacks
+    
+    public static GeminiAnswer fromGemini(String text) {
+        return new GeminiAnswer(text, true);
+    }
+    
+    public static GeminiAnswer fallback(String text) {
+        return new GeminiAnswer(text, false);
+    }
+}
@@ -0,0 +1,215 @@
+package com.aiscanner.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Client-side protection for the Gemini API. Every call must hold a {@link Permit}, which is
+ * only granted while the circuit breaker is closed (or probing), a rate-limit token is
+ * available and the adaptive concurrency limit has room. When Gemini returns 429s, times out
+ * or fails, the limit shrinks and eventually the breaker opens, so callers get their fallback
+ * answer immediately instead of queueing behind a struggling upstream.
+ */
+@Component
+@Slf4j
+public class GeminiCallGuard {
+    
+    /**
+     * How a guarded call ended, as far as upstream health is concerned.
+     */
+    public enum CallResult {
+        SUCCESS,    // Answered; latency feeds the adaptive limit
+        OVERLOADED, // 429 or timeout: shrink the limit and count as a failure
+        FAILED,     // 5xx or transport error: count as a failure
+        IGNORED     // No signal about upstream health (e.g. bad request, streamed answer)
+    }
+    
+    @Value("${gemini.guard.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${gemini.guard.acquire.timeout.ms:2000}")
+    private long acquireTimeoutMs;
+    
+    @Value("${gemini.guard.concurrency.initial:8}")
+    private int initialConcurrency;
+    
+    @Value("${gemini.guard.concurrency.min:1}")
+    private int minConcurrency;
+    
+    @Value("${gemini.guard.concurrency.max:32}")
+    private int maxConcurrency;
+    
+    @Value("${gemini.guard.concurrency.backoff.ratio:0.5}")
+    private double backoffRatio;
+    
+    @Value("${gemini.guard.concurrency.latency.tolerance:2.0}")
+    private double latencyTolerance;
+    
+    @Value("${gemini.guard.rate.per.second:10}")
+    private double ratePerSecond;
+    
+    @Value("${gemini.guard.rate.burst:20}")
+    private int rateBurst;
+    
+    @Value("${gemini.guard.breaker.window.size:20}")
+    private int breakerWindowSize;
+    
+    @Value("${gemini.guard.breaker.min.calls:10}")
+    private int breakerMinCalls;
+    
+    @Value("${gemini.guard.breaker.failure.rate:0.5}")
+    private double breakerFailureRate;
+    
+    @Value("${gemini.guard.breaker.open.seconds:30}")
+    private long breakerOpenSeconds;
+    
+    @Value("${gemini.guard.breaker.half.open.calls:3}")
+    private int breakerHalfOpenCalls;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+    private TokenBucket rateLimit; // null when rate limiting is disabled
+    private CircuitBreaker circuitBreaker;
+    
+    @PostConstruct
+    void initGuard() {
+        concurrencyLimit = new AdaptiveConcurrencyLimit(initialConcurrency, minConcurrency, maxConcurrency, backoffRatio, latencyTolerance);
+        rateLimit = ratePerSecond > 0 ? new TokenBucket(ratePerSecond, rateBurst) : null;
+        circuitBreaker = new CircuitBreaker(breakerWindowSize, breakerMinCalls, breakerFailureRate,
+                TimeUnit.SECONDS.toNanos(breakerOpenSeconds), breakerHalfOpenCalls);
+        
+        Gauge.builder("gemini.guard.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive concurrency limit for Gemini calls")
+                .register(meterRegistry);
+        Gauge.builder("gemini.guard.inflight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Gemini calls currently holding a permit")
+                .register(meterRegistry);
+        Gauge.builder("gemini.guard.breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Waits up to {@code gemini.guard.acquire.timeout.ms} for a permit. Only call this from a
+     * thread that may block, such as the Gemini executor.
+     *
+     * @throws GeminiUnavailableException if the call should not be made
+     */
+    public Permit acquire() {
+        return acquire(TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs));
+    }
+    
+    /**
+     * Grants a permit only if one is available right now, for callers that must not block.
+     *
+     * @throws GeminiUnavailableException if the call should not be made
+     */
+    public Permit tryAcquire() {
+        return acquire(0);
+    }
+    
+    private Permit acquire(long timeoutNanos) {
+        if (!enabled) {
+            return new Permit(false);
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        
+        if (!circuitBreaker.tryPass()) {
+            throw reject("circuit_open");
+        }
+        
+        if (rateLimit != null) {
+            long waitNanos = rateLimit.reserve(timeoutNanos);
+            if (waitNanos < 0) {
+                circuitBreaker.onIgnored();
+                throw reject("rate_limited");
+            }
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+        }
+        
+        try {
+            if (!concurrencyLimit.acquire(Math.max(0, deadline - System.nanoTime()))) {
+                refundRateToken();
+                circuitBreaker.onIgnored();
+                throw reject("concurrency_limited");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            refundRateToken();
+            circuitBreaker.onIgnored();
+            throw reject("interrupted");
+        }
+        return new Permit(true);
+    }
+    
+    // A call refused after reserving its token never reaches Gemini, so the token goes back
+    private void refundRateToken() {
+        if (rateLimit != null) {
+            rateLimit.refund();
+        }
+    }
+    
+    private GeminiUnavailableException reject(String reason) {
+        Counter.builder("gemini.guard.rejected")
+                .description("Gemini calls refused by the call guard")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.debug("Gemini call refused by call guard: {}", reason);
+        return new GeminiUnavailableException(reason);
+    }
+    
+    /**
+     * Admission for one Gemini call. Must be released exactly once with the call's result.
+     */
+    public final class Permit {
+        
+        private final boolean guarded;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        private Permit(boolean guarded) {
+            this.guarded = guarded;
+        }
+        
+        public void release(CallResult result) {
+            if (!guarded || !released.compareAndSet(false, true)) {
+                return;
+            }
+            
+            switch (result) {
+                case SUCCESS:
+                    concurrencyLimit.onSuccess(System.nanoTime() - startNanos);
+                    circuitBreaker.onResult(false);
+                    break;
+                case OVERLOADED:
+                    concurrencyLimit.onOverload();
+                    circuitBreaker.onResult(true);
+                    break;
+                case FAILED:
+                    concurrencyLimit.onIgnored();
+                    circuitBreaker.onResult(true);
+                    break;
+                default:
+                    // No verdict either way: must not count towards closing a half-open breaker
+                    concurrencyLimit.onIgnored();
+                    circuitBreaker.onIgnored();
+                    break;
+            }
+        }
+    }
+}
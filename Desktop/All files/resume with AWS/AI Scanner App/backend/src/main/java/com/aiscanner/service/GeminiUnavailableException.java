@@ -0,0 +1,19 @@
+package com.aiscanner.service;
+
+/**
+ * Thrown instead of calling Gemini when the call guard refuses the call (circuit open, rate or
+ * concurrency limit reached). Callers answer with their fallback response.
+ */
+public class GeminiUnavailableException extends RuntimeException {
+    
+    private final String reason;
+    
+    public GeminiUnavailableException(String reason) {
+        super("Gemini call refused: " + reason);
+        this.reason = reason;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,106 @@
+package com.aiscanner.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many tasks run concurrently against one host. Tasks over the cap wait in a per-host
+ * queue without holding a thread and start as soon as an earlier task for that host finishes.
+ * Running every task under the same key turns it into a plain non-blocking concurrency cap.
+ */
+public class HostConcurrencyLimiter {
+    
+    private static final int WAITING = 0;
+    private static final int ACQUIRED = 1;
+    private static final int CANCELLED = 2;
+    
+    private final int maxPerHost;
+    private final Map<String, HostSlots> hosts = new ConcurrentHashMap<>();
+    
+    public HostConcurrencyLimiter(int maxPerHost) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+    }
+    
+    public <T> Mono<T> run(String host, Supplier<Mono<T>> task) {
+        return Mono.defer(() -> {
+            AtomicInteger state = new AtomicInteger(WAITING);
+            return Mono.<Void>create(sink -> {
+                        sink.onCancel(() -> state.compareAndSet(WAITING, CANCELLED));
+                        acquire(host, () -> {
+                            if (state.compareAndSet(WAITING, ACQUIRED)) {
+                                sink.success();
+                            } else {
+                                release(host); // Cancelled while queued, hand the slot on
+                            }
+                        });
+                    })
+                    .then(Mono.defer(task))
+                    .doFinally(signal -> {
+                        if (state.get() == ACQUIRED) {
+                            release(host);
+                        }
+                    });
+        });
+    }
+    
+    private void acquire(String host, Runnable start) {
+        while (true) {
+            HostSlots slots = hosts.computeIfAbsent(host, key -> new HostSlots());
+            boolean startNow;
+            slots.lock.lock();
+            try {
+                if (slots.retired) {
+                    continue; // Lost a race with the last release for this host, use the fresh entry
+                }
+                startNow = slots.active < maxPerHost;
+                if (startNow) {
+                    slots.active++;
+                } else {
+                    slots.waiting.add(start);
+                }
+            } finally {
+                slots.lock.unlock();
+            }
+            if (startNow) {
+                start.run();
+            }
+            return;
+        }
+    }
+    
+    private void release(String host) {
+        HostSlots slots = hosts.get(host);
+        Runnable next;
+        slots.lock.lock();
+        try {
+            next = slots.waiting.poll();
+            if (next == null) {
+                slots.active--;
+                if (slots.active == 0) {
+                    slots.retired = true;
+                    hosts.remove(host, slots);
+                }
+            }
+        } finally {
+            slots.lock.unlock();
+        }
+        // The freed slot passes straight to the next waiting task for this host
+        if (next != null) {
+            next.run();
+        }
+    }
+    
+    private static final class HostSlots {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int active;
+        private boolean retired;
+        private final Deque<Runnable> waiting = new ArrayDeque<>();
+    }
+}
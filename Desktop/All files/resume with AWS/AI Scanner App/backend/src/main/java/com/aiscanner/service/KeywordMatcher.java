@@ -0,0 +1,224 @@
+package com.aiscanner.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Case-insensitive multi-keyword matcher (Aho–Corasick compiled to a DFA). Every keyword belongs
+ * to one or more categories of an enum, and one pass over the text finds all categories with a
+ * keyword anywhere in it, like a chain of {@code text.toLowerCase().contains(keyword)} checks but
+ * without lowercased copies or a scan per keyword.
+ *
+ * <p>Instances are immutable and safe to share between threads.
+ */
+final class KeywordMatcher<E extends Enum<E>> {
+    
+    private final Class<E> type;
+    private final E[] categories;
+    private final int[] asciiClasses; // Alphabet index per ASCII char, 0 for chars in no keyword
+    private final Map<Character, Integer> otherClasses;
+    private final int alphabetSize;
+    // Indexed by state offset (state * alphabetSize) + class; holds the next state's offset, bit-flipped
+    // (negative) when a keyword ends in that state, so the scan loop only branches on matches
+    private final int[] transitions;
+    private final long[] outputs; // Category bits of every keyword ending in a state, via its failure chain
+    
+    private KeywordMatcher(Class<E> type, int[] asciiClasses, Map<Character, Integer> otherClasses, int alphabetSize,
+                           int[] transitions, long[] outputs) {
+        this.type = type;
+        this.categories = type.getEnumConstants();
+        this.asciiClasses = asciiClasses;
+        this.otherClasses = otherClasses;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+    
+    static <E extends Enum<E>> Builder<E> builder(Class<E> type) {
+        return new Builder<>(type);
+    }
+    
+    /**
+     * Categories with at least one keyword in any of {@code texts}. Null texts are skipped;
+     * keywords never match across two texts.
+     */
+    EnumSet<E> match(CharSequence... texts) {
+        long all = categories.length == 64 ? -1L : (1L << categories.length) - 1;
+        long hits = 0;
+        for (CharSequence text : texts) {
+            hits = scan(text, hits, all);
+            if (hits == all) {
+                break;
+            }
+        }
+        return toSet(hits);
+    }
+    
+    /**
+     * The matched category declared first in the enum, or null when nothing matches. Stops
+     * as soon as the first-declared category is seen, so put the most likely winners first.
+     */
+    E first(CharSequence... texts) {
+        long hits = 0;
+        for (CharSequence text : texts) {
+            hits = scan(text, hits, 1L);
+            if ((hits & 1L) != 0) {
+                break;
+            }
+        }
+        return hits == 0 ? null : categories[Long.numberOfTrailingZeros(hits)];
+    }
+    
+    private long scan(CharSequence text, long hits, long stopMask) {
+        if (text == null) {
+            return hits;
+        }
+        int[] transitions = this.transitions;
+        int[] asciiClasses = this.asciiClasses;
+        int offset = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            int next = transitions[offset + (c < 128 ? asciiClasses[c] : classOf(c))];
+            if (next >= 0) {
+                offset = next;
+                continue;
+            }
+            offset = ~next;
+            hits |= outputs[offset / alphabetSize];
+            if ((hits & stopMask) == stopMask) {
+                return hits;
+            }
+        }
+        return hits;
+    }
+    
+    private int classOf(char c) {
+        char lower = Character.toLowerCase(c); // May be ASCII, e.g. the Kelvin sign
+        if (lower < 128) {
+            return asciiClasses[lower];
+        }
+        Integer index = otherClasses.get(lower);
+        return index != null ? index : 0;
+    }
+    
+    private EnumSet<E> toSet(long hits) {
+        EnumSet<E> set = EnumSet.noneOf(type);
+        while (hits != 0) {
+            set.add(categories[Long.numberOfTrailingZeros(hits)]);
+            hits &= hits - 1;
+        }
+        return set;
+    }
+    
+    static final class Builder<E extends Enum<E>> {
+        private final Class<E> type;
+        private final Map<String, Long> keywords = new HashMap<>();
+        
+        private Builder(Class<E> type) {
+            if (type.getEnumConstants().length > 64) {
+                throw new IllegalArgumentException("At most 64 categories are supported: " + type.getName());
+            }
+            this.type = type;
+        }
+        
+        Builder<E> add(E category, String... words) {
+            for (String word : words) {
+                if (word.isEmpty()) {
+                    throw new IllegalArgumentException("Empty keyword for " + category);
+                }
+                keywords.merge(lowerCase(word), 1L << category.ordinal(), (a, b) -> a | b);
+            }
+            return this;
+        }
+        
+        KeywordMatcher<E> build() {
+            // Alphabet: every distinct (lowercased) keyword char, class 0 for everything else
+            int[] asciiClasses = new int[128];
+            Map<Character, Integer> otherClasses = new HashMap<>();
+            int alphabetSize = 1;
+            for (String word : keywords.keySet()) {
+                for (char c : word.toCharArray()) {
+                    if (c < 128) {
+                        if (asciiClasses[c] == 0) {
+                            asciiClasses[c] = alphabetSize++;
+                        }
+                    } else if (!otherClasses.containsKey(c)) {
+                        otherClasses.put(c, alphabetSize++);
+                    }
+                }
+            }
+            // Upper-case ASCII letters share their lower-case class
+            for (char c = 'A'; c <= 'Z'; c++) {
+                asciiClasses[c] = asciiClasses[Character.toLowerCase(c)];
+            }
+            
+            // Trie
+            List<int[]> trie = new ArrayList<>();
+            List<Long> trieOutputs = new ArrayList<>();
+            trie.add(new int[alphabetSize]);
+            trieOutputs.add(0L);
+            for (Map.Entry<String, Long> keyword : keywords.entrySet()) {
+                int state = 0;
+                for (char c : keyword.getKey().toCharArray()) {
+                    int symbol = c < 128 ? asciiClasses[c] : otherClasses.get(c);
+                    if (trie.get(state)[symbol] == 0) {
+                        trie.get(state)[symbol] = trie.size();
+                        trie.add(new int[alphabetSize]);
+                        trieOutputs.add(0L);
+                    }
+                    state = trie.get(state)[symbol];
+                }
+                trieOutputs.set(state, trieOutputs.get(state) | keyword.getValue());
+            }
+            
+            // Breadth-first: resolve failure links into full DFA transitions and merge outputs
+            int states = trie.size();
+            int[] transitions = new int[states * alphabetSize];
+            long[] outputs = new long[states];
+            int[] failure = new int[states];
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int child = trie.get(0)[symbol];
+                transitions[symbol] = child;
+                if (child != 0) {
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                outputs[state] = trieOutputs.get(state) | outputs[failure[state]];
+                for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                    int child = trie.get(state)[symbol];
+                    int fallback = transitions[failure[state] * alphabetSize + symbol];
+                    if (child != 0) {
+                        failure[child] = fallback;
+                        transitions[state * alphabetSize + symbol] = child;
+                        queue.add(child);
+                    } else {
+                        transitions[state * alphabetSize + symbol] = fallback;
+                    }
+                }
+            }
+            
+            // Store offsets instead of state numbers, flagged when the target state completes a keyword
+            for (int i = 0; i < transitions.length; i++) {
+                int target = transitions[i];
+                transitions[i] = outputs[target] != 0 ? ~(target * alphabetSize) : target * alphabetSize;
+            }
+            return new KeywordMatcher<>(type, asciiClasses, otherClasses, alphabetSize, transitions, outputs);
+        }
+        
+        private static String lowerCase(String word) {
+            char[] chars = word.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(chars[i]);
+            }
+            return new String(chars);
+        }
+    }
+}
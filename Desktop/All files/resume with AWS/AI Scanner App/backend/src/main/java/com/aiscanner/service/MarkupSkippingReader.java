@@ -0,0 +1,138 @@
+package com.aiscanner.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Drops comments and the contents of {@code script}, {@code style}, {@code noscript},
+ * {@code template} and {@code svg} elements from HTML as it is read, so they are never
+ * materialized as DOM nodes. Inline state blobs and icon sprites are often most of a large page.
+ */
+final class MarkupSkippingReader extends Reader {
+    
+    private static final String[] SKIPPED_ELEMENTS = {"script", "style", "noscript", "template", "svg"};
+    private static final int LOOKAHEAD = 10; // "<noscript" plus the delimiter after the name
+    
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private boolean eof;
+    
+    MarkupSkippingReader(Reader in) {
+        this.in = in;
+    }
+    
+    @Override
+    public int read(char[] target, int offset, int length) throws IOException {
+        int written = 0;
+        while (written < length) {
+            if (position == limit && !fill(1)) {
+                break;
+            }
+            char c = buffer[position];
+            if (c == '<') {
+                position++;
+                if (!skipMarkup()) {
+                    target[offset + written++] = c;
+                }
+                continue;
+            }
+            
+            // Copy the run up to the next tag in one go
+            int end = position;
+            int max = Math.min(limit, position + (length - written));
+            while (end < max && buffer[end] != '<') {
+                end++;
+            }
+            System.arraycopy(buffer, position, target, offset + written, end - position);
+            written += end - position;
+            position = end;
+        }
+        return written == 0 && length > 0 ? -1 : written;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    /**
+     * Called just after a '<'. Skips a comment or a skipped element through its end tag and
+     * returns true, or leaves the input untouched and returns false.
+     */
+    private boolean skipMarkup() throws IOException {
+        fill(LOOKAHEAD);
+        if (matches("!--", false)) {
+            position += 3;
+            skipPast("-->");
+            return true;
+        }
+        for (String name : SKIPPED_ELEMENTS) {
+            if (matches(name, true) && isNameEnd(position + name.length())) {
+                position += name.length();
+                skipPast("</" + name);
+                skipPast(">");
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void skipPast(String terminator) throws IOException {
+        while (fill(terminator.length())) {
+            if (matches(terminator, true)) {
+                position += terminator.length();
+                return;
+            }
+            position++;
+        }
+        position = limit; // Unterminated: drop the rest
+    }
+    
+    private boolean matches(String text, boolean ignoreCase) {
+        if (limit - position < text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = buffer[position + i];
+            char expected = text.charAt(i);
+            if (c != expected && !(ignoreCase && Character.toLowerCase(c) == expected)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean isNameEnd(int index) {
+        if (index >= limit) {
+            return eof;
+        }
+        char c = buffer[index];
+        return c == '>' || c == '/' || Character.isWhitespace(c);
+    }
+    
+    /**
+     * Makes at least {@code needed} characters available from {@code position}, unless the input
+     * ends first. Returns whether they are available.
+     */
+    private boolean fill(int needed) throws IOException {
+        if (limit - position >= needed) {
+            return true;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (!eof && limit < needed) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+        return limit - position >= needed;
+    }
+}
@@ -0,0 +1,234 @@
+package com.aiscanner.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Small BM25 index over one page's extracted content. The page text, code and on-page questions
+ * are split into chunks of about {@code maxChunkTokens} tokens at analysis time; at question
+ * time {@link #search} returns the chunks most relevant to the question, so chat prompts carry
+ * the parts of a long page the question is about instead of its first few thousand characters.
+ */
+public final class PageChunkIndex {
+    
+    public static final String SOURCE_PAGE = "page";
+    public static final String SOURCE_CODE = "code";
+    public static final String SOURCE_QUESTIONS = "questions";
+    
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int CHARS_PER_TOKEN = 4;
+    
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "how", "i",
+            "in", "is", "it", "of", "on", "or", "that", "the", "this", "to", "was", "what", "when", "where",
+            "which", "who", "why", "will", "with", "you", "your", "me", "my", "should", "about");
+    
+    @Data
+    @AllArgsConstructor
+    public static class Chunk {
+        private String source;
+        private String text;
+    }
+    
+    private final List<Chunk> chunks;
+    private final int[] chunkLengths; // In index terms
+    private final double averageLength;
+    private final Map<String, int[][]> postings; // term -> {chunk ids, term frequencies}
+    
+    private PageChunkIndex(List<Chunk> chunks, List<List<String>> chunkTerms) {
+        this.chunks = chunks;
+        this.chunkLengths = new int[chunks.size()];
+        
+        Map<String, List<int[]>> building = new HashMap<>();
+        long totalLength = 0;
+        for (int id = 0; id < chunkTerms.size(); id++) {
+            List<String> terms = chunkTerms.get(id);
+            chunkLengths[id] = terms.size();
+            totalLength += terms.size();
+            
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String term : terms) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                building.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(new int[]{id, entry.getValue()});
+            }
+        }
+        this.averageLength = chunks.isEmpty() ? 0 : (double) totalLength / chunks.size();
+        
+        this.postings = new HashMap<>(building.size() * 2);
+        for (Map.Entry<String, List<int[]>> entry : building.entrySet()) {
+            List<int[]> list = entry.getValue();
+            int[] ids = new int[list.size()];
+            int[] frequencies = new int[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                ids[i] = list.get(i)[0];
+                frequencies[i] = list.get(i)[1];
+            }
+            postings.put(entry.getKey(), new int[][]{ids, frequencies});
+        }
+    }
+    
+    public static PageChunkIndex build(String pageContent, String codeContent, String questionsContent, int maxChunkTokens) {
+        int maxChars = Math.max(1, maxChunkTokens) * CHARS_PER_TOKEN;
+        List<Chunk> chunks = new ArrayList<>();
+        addChunks(chunks, SOURCE_PAGE, pageContent, maxChars);
+        addChunks(chunks, SOURCE_CODE, codeContent, maxChars);
+        addChunks(chunks, SOURCE_QUESTIONS, questionsContent, maxChars);
+        
+        List<List<String>> chunkTerms = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            chunkTerms.add(terms(chunk.getText()));
+        }
+        return new PageChunkIndex(chunks, chunkTerms);
+    }
+    
+    public int size() {
+        return chunks.size();
+    }
+    
+    /**
+     * Returns up to {@code limit} chunks ranked by BM25 against {@code question}, in page order.
+     * When no chunk shares a term with the question, the leading chunks are returned instead.
+     */
+    public List<Chunk> search(String question, int limit) {
+        if (chunks.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        double[] scores = new double[chunks.size()];
+        boolean matched = false;
+        for (String term : new LinkedHashSet<>(terms(question))) {
+            int[][] posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            matched = true;
+            int[] ids = posting[0];
+            int[] frequencies = posting[1];
+            double idf = Math.log(1 + (chunks.size() - ids.length + 0.5) / (ids.length + 0.5));
+            for (int i = 0; i < ids.length; i++) {
+                double tf = frequencies[i];
+                double lengthNorm = 1 - B + B * chunkLengths[ids[i]] / averageLength;
+                scores[ids[i]] += idf * tf * (K1 + 1) / (tf + K1 * lengthNorm);
+            }
+        }
+        
+        int[] selected;
+        if (!matched) {
+            selected = new int[Math.min(limit, chunks.size())];
+            Arrays.setAll(selected, i -> i);
+        } else {
+            // Min-heap of the best ids seen so far
+            PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingDouble(id -> scores[id]));
+            for (int id = 0; id < scores.length; id++) {
+                if (scores[id] <= 0) {
+                    continue;
+                }
+                best.add(id);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            selected = best.stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+        
+        List<Chunk> result = new ArrayList<>(selected.length);
+        for (int id : selected) {
+            result.add(chunks.get(id));
+        }
+        return result;
+    }
+    
+    private static void addChunks(List<Chunk> chunks, String source, String content, int maxChars) {
+        if (content == null || content.isBlank()) {
+            return;
+        }
+        StringBuilder current = new StringBuilder();
+        for (String unit : units(content, maxChars)) {
+            if (current.length() > 0 && current.length() + unit.length() + 1 > maxChars) {
+                chunks.add(new Chunk(source, current.toString()));
+                current.setLength(0);
+            }
+            if (current.length() > 0) {
+                current.append('\n');
+            }
+            current.append(unit);
+        }
+        if (current.length() > 0) {
+            chunks.add(new Chunk(source, current.toString()));
+        }
+    }
+    
+    /**
+     * Splits content into lines, and lines that are too long into sentences and then words,
+     * so that no unit exceeds {@code maxChars} unless it is a single overlong word.
+     */
+    private static List<String> units(String content, int maxChars) {
+        List<String> units = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.length() <= maxChars) {
+                units.add(trimmed);
+                continue;
+            }
+            for (String sentence : SENTENCE_END.split(trimmed)) {
+                if (sentence.length() <= maxChars) {
+                    units.add(sentence);
+                    continue;
+                }
+                StringBuilder piece = new StringBuilder();
+                for (String word : sentence.split("\\s+")) {
+                    if (piece.length() > 0 && piece.length() + word.length() + 1 > maxChars) {
+                        units.add(piece.toString());
+                        piece.setLength(0);
+                    }
+                    if (piece.length() > 0) {
+                        piece.append(' ');
+                    }
+                    piece.append(word);
+                }
+                if (piece.length() > 0) {
+                    units.add(piece.toString());
+                }
+            }
+        }
+        return units;
+    }
+    
+    private static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() < 2 || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            // Fold simple plurals so "fields" matches "field"
+            if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+                token = token.substring(0, token.length() - 1);
+            }
+            terms.add(token);
+        }
+        return terms;
+    }
+}
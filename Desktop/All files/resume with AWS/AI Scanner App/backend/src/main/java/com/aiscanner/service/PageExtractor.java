@@ -0,0 +1,349 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Extracts form fields, page text, headings, lists, paragraphs, code blocks and questions
+ * from a parsed document in a single traversal. Each element's text is computed at most once,
+ * even when it matches several of the content selectors (e.g. a {@code pre} block is both a
+ * code block and programming content).
+ */
+@Component
+public class PageExtractor {
+    
+    public ExtractedPage extract(Document doc) {
+        ExtractionVisitor visitor = new ExtractionVisitor();
+        NodeTraversor.traverse(visitor, doc);
+        
+        String bodyText = doc.body() != null ? doc.body().text() : "";
+        
+        List<String> fieldContexts = new ArrayList<>(visitor.fields.size());
+        for (PageAnalysisResponse.FieldInfo field : visitor.fields) {
+            Element fieldElement = field.getName() != null
+                    ? visitor.elementsByNameOrId.get(field.getName().trim().toLowerCase(Locale.ROOT))
+                    : null;
+            fieldContexts.add(fieldElement != null ? "Field context: " + getFieldContext(fieldElement) : "");
+        }
+        
+        return ExtractedPage.builder()
+                .title(doc.title())
+                .bodyText(bodyText)
+                .headings(visitor.headings.toString())
+                .fields(visitor.fields)
+                .fieldContexts(fieldContexts)
+                .pageContent(visitor.buildPageContent(bodyText))
+                .codeContent(visitor.buildCodeContent())
+                .questionsContent(visitor.buildQuestionsContent(bodyText))
+                .build();
+    }
+    
+    public String findLabel(Element input) {
+        // Strategy 1: Find label by for attribute
+        String id = input.attr("id");
+        if (!id.isEmpty()) {
+            Element label = input.parent().selectFirst("label[for=" + id + "]");
+            if (label != null) {
+                return label.text().trim();
+            }
+        }
+        
+        // Strategy 2: Find label as parent or sibling
+        Element parentLabel = input.parent().selectFirst("label");
+        if (parentLabel != null) {
+            return parentLabel.text().trim();
+        }
+        
+        // Strategy 3: Find label in nearby text
+        Element nearbyText = input.parent().selectFirst("span, div, p");
+        if (nearbyText != null && !nearbyText.text().trim().isEmpty()) {
+            return nearbyText.text().trim();
+        }
+        
+        // Strategy 4: Use placeholder or name as fallback
+        String placeholder = input.attr("placeholder");
+        if (!placeholder.isEmpty()) {
+            return placeholder;
+        }
+        
+        String name = input.attr("name");
+        if (!name.isEmpty()) {
+            return name.replaceAll("[_-]", " ").trim();
+        }
+        
+        return "Unnamed Field";
+    }
+    
+    public String getFieldContext(Element input) {
+        StringBuilder context = new StringBuilder();
+        
+        // Get parent form context
+        Element form = input.closest("form");
+        if (form != null) {
+            context.append("Located in form. ");
+            String formAction = form.attr("action");
+            if (!formAction.isEmpty()) {
+                context.append("Form action: ").append(formAction).append(". ");
+            }
+        }
+        
+        // Get nearby text context
+        Element parent = input.parent();
+        if (parent != null) {
+            String parentText = parent.text().trim();
+            if (parentText.length() > 0 && parentText.length() < 200) {
+                context.append("Nearby text: ").append(parentText).append(". ");
+            }
+        }
+        
+        return context.toString();
+    }
+    
+    private PageAnalysisResponse.FieldInfo toFieldInfo(Element input) {
+        String name = input.attr("name");
+        String type = input.attr("type");
+        
+        return PageAnalysisResponse.FieldInfo.builder()
+                .name(name.isEmpty() ? input.attr("id") : name)
+                .label(findLabel(input))
+                .type(type.isEmpty() ? input.tagName() : type)
+                .placeholder(input.attr("placeholder"))
+                .required(input.hasAttr("required"))
+                .aiExplanation("Analyzing with AI...") // Will be updated by AI service
+                .build();
+    }
+    
+    private static boolean isFormControl(Element element) {
+        switch (element.normalName()) {
+            case "input":
+            case "select":
+            case "textarea":
+                return true;
+            case "button":
+                return element.attr("type").trim().equalsIgnoreCase("submit");
+            default:
+                return false;
+        }
+    }
+    
+    private static boolean isCodeBlock(Element element, String tag) {
+        return "code".equals(tag) || "pre".equals(tag)
+                || element.hasClass("code") || element.hasClass("highlight")
+                || ("script".equals(tag) && element.attr("type").trim().equalsIgnoreCase("text/javascript"));
+    }
+    
+    private static boolean isProgrammingElement(Element element, String tag) {
+        if ("pre".equals(tag)) {
+            return true;
+        }
+        if (!element.hasAttr("class")) {
+            return false;
+        }
+        String className = element.attr("class").toLowerCase(Locale.ROOT);
+        return className.contains("java") || className.contains("code") || className.contains("program");
+    }
+    
+    private static boolean looksLikeCode(String text) {
+        return text.contains("public") || text.contains("class") || text.contains("function") ||
+               text.contains("for") || text.contains("if") || text.contains("while");
+    }
+    
+    private final class ExtractionVisitor implements NodeVisitor {
+        private final List<PageAnalysisResponse.FieldInfo> fields = new ArrayList<>();
+        private final Map<String, Element> elementsByNameOrId = new HashMap<>();
+        
+        private final StringBuilder headings = new StringBuilder();
+        private boolean hasHeadings;
+        
+        // One buffer per ul/ol in document order; items of nested lists are repeated in every enclosing list
+        private final List<StringBuilder> lists = new ArrayList<>();
+        private final Deque<StringBuilder> openLists = new ArrayDeque<>();
+        
+        private final StringBuilder paragraphs = new StringBuilder();
+        private boolean hasParagraphs;
+        
+        private final StringBuilder codeBlocks = new StringBuilder();
+        private boolean hasCodeBlocks;
+        private final StringBuilder programmingContent = new StringBuilder();
+        
+        private final StringBuilder labels = new StringBuilder();
+        private boolean hasLabels;
+        
+        @Override
+        public void head(Node node, int depth) {
+            if (!(node instanceof Element)) {
+                return;
+            }
+            Element element = (Element) node;
+            String tag = element.normalName();
+            
+            indexNameAndId(element);
+            
+            if (isFormControl(element)) {
+                String type = element.attr("type");
+                // Skip submit buttons and hidden fields for analysis
+                if (!"submit".equals(type) && !"hidden".equals(type)) {
+                    fields.add(toFieldInfo(element));
+                }
+            }
+            
+            String text = null;
+            switch (tag) {
+                case "h1":
+                case "h2":
+                case "h3":
+                case "h4":
+                case "h5":
+                case "h6":
+                    hasHeadings = true;
+                    headings.append("- ").append(tag.toUpperCase()).append(": ").append(element.text()).append("\n");
+                    break;
+                case "ul":
+                case "ol":
+                    StringBuilder list = new StringBuilder();
+                    lists.add(list);
+                    openLists.push(list);
+                    break;
+                case "li":
+                    if (!openLists.isEmpty()) {
+                        text = element.text();
+                        for (StringBuilder openList : openLists) {
+                            openList.append("• ").append(text).append("\n");
+                        }
+                    }
+                    break;
+                case "p":
+                    hasParagraphs = true;
+                    String paragraph = element.text().trim();
+                    if (paragraph.length() > 20) { // Only include substantial paragraphs
+                        paragraphs.append("- ").append(paragraph).append("\n");
+                    }
+                    break;
+                case "label":
+                    hasLabels = true;
+                    String labelText = element.text().trim();
+                    if (!labelText.isEmpty()) {
+                        labels.append("- ").append(labelText).append("\n");
+                    }
+                    break;
+                default:
+                    break;
+            }
+            
+            boolean codeBlock = isCodeBlock(element, tag);
+            boolean programming = isProgrammingElement(element, tag);
+            if (codeBlock || programming) {
+                String codeText = (text != null ? text : element.text()).trim();
+                if (codeBlock) {
+                    hasCodeBlocks = true;
+                    if (codeText.length() > 10) {
+                        codeBlocks.append("Code Block:\n```\n").append(codeText).append("\n```\n\n");
+                    }
+                }
+                if (programming && looksLikeCode(codeText)) {
+                    programmingContent.append("Programming Content:\n").append(codeText).append("\n\n");
+                }
+            }
+        }
+        
+        @Override
+        public void tail(Node node, int depth) {
+            if (node instanceof Element) {
+                String tag = ((Element) node).normalName();
+                if ("ul".equals(tag) || "ol".equals(tag)) {
+                    openLists.pop();
+                }
+            }
+        }
+        
+        private void indexNameAndId(Element element) {
+            // First element in document order wins, like doc.select("[name='x'], [id='x']").first()
+            if (element.hasAttr("name")) {
+                elementsByNameOrId.putIfAbsent(element.attr("name").trim().toLowerCase(Locale.ROOT), element);
+            }
+            if (element.hasAttr("id")) {
+                elementsByNameOrId.putIfAbsent(element.attr("id").trim().toLowerCase(Locale.ROOT), element);
+            }
+        }
+        
+        private String buildPageContent(String bodyText) {
+            StringBuilder content = new StringBuilder();
+            
+            // Extract main text content
+            content.append("Page Text Content:\n").append(bodyText).append("\n\n");
+            
+            // Extract headings structure
+            if (hasHeadings) {
+                content.append("Page Structure (Headings):\n").append(headings).append("\n");
+            }
+            
+            // Extract lists and important content
+            if (!lists.isEmpty()) {
+                content.append("Lists Found:\n");
+                for (StringBuilder list : lists) {
+                    content.append(list);
+                }
+                content.append("\n");
+            }
+            
+            // Extract paragraphs
+            if (hasParagraphs) {
+                content.append("Main Content Paragraphs:\n").append(paragraphs);
+            }
+            
+            return content.toString();
+        }
+        
+        private String buildCodeContent() {
+            StringBuilder codeContent = new StringBuilder();
+            if (hasCodeBlocks) {
+                codeContent.append("Code Content Found:\n").append(codeBlocks);
+            }
+            codeContent.append(programmingContent);
+            return codeContent.toString();
+        }
+        
+        private String buildQuestionsContent(String bodyText) {
+            StringBuilder questions = new StringBuilder();
+            
+            // Look for question patterns in text
+            String[] sentences = bodyText.split("[.!?]");
+            
+            questions.append("Questions/Prompts Found:\n");
+            for (String sentence : sentences) {
+                sentence = sentence.trim();
+                String lowerSentence = sentence.toLowerCase();
+                if (sentence.contains("?") ||
+                    lowerSentence.startsWith("what") ||
+                    lowerSentence.startsWith("how") ||
+                    lowerSentence.startsWith("why") ||
+                    lowerSentence.startsWith("when") ||
+                    lowerSentence.startsWith("where") ||
+                    lowerSentence.contains("answer") ||
+                    lowerSentence.contains("question")) {
+                    questions.append("Q: ").append(sentence).append("\n");
+                }
+            }
+            
+            // Extract form labels as questions
+            if (hasLabels) {
+                questions.append("\nForm Questions/Labels:\n").append(labels);
+            }
+            
+            return questions.toString();
+        }
+    }
+}
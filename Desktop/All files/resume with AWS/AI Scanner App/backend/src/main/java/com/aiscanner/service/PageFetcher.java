@@ -0,0 +1,281 @@
+package com.aiscanner.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetches pages without blocking the calling thread. All requests share one pooled
+ * {@link HttpClient}; failed attempts are retried with jittered exponential backoff
+ * scheduled on a timer instead of sleeping on a worker thread. Given the validators of an earlier
+ * fetch, the request is made conditional and a 304 comes back as a page with an empty body.
+ *
+ * <p>Bodies are cut off at {@code scraper.max.body.bytes}, so the memory one page can take
+ * while it is being analyzed stays bounded. Operators can also opt in to parsing pages of at
+ * least {@code scraper.form.only.threshold.bytes} with {@link FormOnlyPageParser}.
+ *
+ * <p>Records the {@code fetch} and {@code parse} stages of {@code scanner.stage}, retries
+ * ({@code scanner.fetch.retries}), response sizes ({@code scanner.page.html.bytes}), cut-off
+ * bodies ({@code scanner.fetch.truncated}) and parses by mode ({@code scanner.parse.pages}).
+ */
+@Component
+@Slf4j
+public class PageFetcher {
+    
+    private static final Pattern META_CHARSET = Pattern.compile("(?i)<meta[^>]+charset\\s*=\\s*[\"']?([\\w.:-]+)");
+    
+    @Value("${scraper.user.agent}")
+    private String userAgent;
+    
+    @Value("${scraper.timeout:15000}")
+    private int timeout;
+    
+    @Value("${scraper.max.retries:3}")
+    private int maxRetries;
+    
+    @Value("${scraper.retry.base.delay.ms:500}")
+    private long retryBaseDelayMs;
+    
+    @Value("${scraper.retry.max.delay.ms:8000}")
+    private long retryMaxDelayMs;
+    
+    @Value("${scraper.max.body.bytes:5242880}")
+    private int maxBodyBytes;
+    
+    // Negative (the default) parses every page in full, 0 parses every page form-only
+    @Value("${scraper.form.only.threshold.bytes:-1}")
+    private int formOnlyThresholdBytes;
+    
+    @Value("${scraper.form.only.text.chars:16384}")
+    private int formOnlyTextChars;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private HttpClient httpClient;
+    private Counter retryCounter;
+    private Counter truncatedCounter;
+    private DistributionSummary htmlBytes;
+    
+    @PostConstruct
+    void initHttpClient() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        
+        retryCounter = Counter.builder("scanner.fetch.retries")
+                .description("Page fetch attempts retried after a failed attempt")
+                .register(meterRegistry);
+        truncatedCounter = Counter.builder("scanner.fetch.truncated")
+                .description("Page bodies cut off at scraper.max.body.bytes")
+                .register(meterRegistry);
+        htmlBytes = DistributionSummary.builder("scanner.page.html.bytes")
+                .description("Size of fetched page bodies")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Fetches {@code url}, sending {@code If-None-Match} / {@code If-Modified-Since} from
+     * {@code validators} when it is not null.
+     */
+    public CompletableFuture<FetchedPage> fetch(String url, PageValidators validators) {
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofMillis(timeout)) // Read deadline for the response headers
+                    .header("User-Agent", userAgent)
+                    .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+                    .GET();
+            if (validators != null && validators.getEtag() != null) {
+                builder.header("If-None-Match", validators.getEtag());
+            }
+            if (validators != null && validators.getLastModified() != null) {
+                builder.header("If-Modified-Since", validators.getLastModified());
+            }
+            request = builder.build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Malformed URL: " + url, e));
+        }
+        
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<FetchedPage> result = new CompletableFuture<>();
+        result.whenComplete((page, error) ->
+                sample.stop(ScannerMetrics.stageTimer(meterRegistry, "fetch", error == null ? "success" : "failure")));
+        attempt(request, 1, result);
+        return result;
+    }
+    
+    private void attempt(HttpRequest request, int attempt, CompletableFuture<FetchedPage> result) {
+        CompletableFuture<HttpResponse<CappedBodySubscriber.Body>> exchange =
+                httpClient.sendAsync(request, CappedBodySubscriber.handler(maxBodyBytes));
+        // Overall deadline including the body, on a copy: only cancelling the client's own future
+        // aborts the exchange, so a timed-out download does not keep running next to its retry
+        exchange.copy()
+                .orTimeout(timeout * 2L, TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> {
+                    if (error == null) {
+                        try {
+                            result.complete(toFetchedPage(response));
+                        } catch (IOException e) {
+                            result.completeExceptionally(e);
+                        }
+                        return;
+                    }
+                    
+                    exchange.cancel(true); // Only has an effect when the deadline fired first
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    log.warn("Attempt {} failed for URL: {}. Error: {}", attempt, request.uri(), cause.toString());
+                    if (attempt >= maxRetries) {
+                        result.completeExceptionally(new IOException("Failed to retrieve page after " + attempt + " attempts: " + cause, cause));
+                        return;
+                    }
+                    
+                    retryCounter.increment();
+                    long delay = backoffDelay(attempt);
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                            .execute(() -> attempt(request, attempt + 1, result));
+                });
+    }
+    
+    private long backoffDelay(int attempt) {
+        long ceiling = Math.min(retryMaxDelayMs, retryBaseDelayMs << Math.min(attempt - 1, 20));
+        // "Equal jitter": keep half the exponential delay, randomize the other half
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+    
+    private FetchedPage toFetchedPage(HttpResponse<CappedBodySubscriber.Body> response) throws IOException {
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        if (response.statusCode() == 304) {
+            return FetchedPage.builder()
+                    .url(response.uri().toString())
+                    .statusCode(304)
+                    .etag(etag)
+                    .lastModified(lastModified)
+                    .body(new byte[0])
+                    .build();
+        }
+        
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        if (contentType != null && !isSupportedContentType(contentType)) {
+            throw new IOException("Unhandled content type " + contentType + " for URL: " + response.uri());
+        }
+        
+        byte[] body = response.body().bytes;
+        if (response.body().truncated) {
+            truncatedCounter.increment();
+            log.warn("Body of {} exceeds {} bytes, analyzing the first {} bytes only", response.uri(), maxBodyBytes, body.length);
+        }
+        htmlBytes.record(body.length);
+        return FetchedPage.builder()
+                .url(response.uri().toString())
+                .statusCode(response.statusCode())
+                .contentType(contentType)
+                .charset(charsetOf(contentType))
+                .etag(etag)
+                .lastModified(lastModified)
+                .body(body)
+                .truncated(response.body().truncated)
+                .build();
+    }
+    
+    public Document parse(FetchedPage page) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            boolean formOnly = formOnlyThresholdBytes >= 0 && page.getBody().length >= formOnlyThresholdBytes;
+            Document doc;
+            if (formOnly) {
+                Charset charset = Charset.forName(page.getCharset() != null ? page.getCharset() : sniffCharset(page.getBody()));
+                doc = FormOnlyPageParser.parse(new InputStreamReader(new ByteArrayInputStream(page.getBody()), charset),
+                        page.getUrl(), formOnlyTextChars);
+            } else {
+                // A null charset lets Jsoup detect it from the BOM or meta tags
+                doc = Jsoup.parse(new ByteArrayInputStream(page.getBody()), page.getCharset(), page.getUrl());
+            }
+            Counter.builder("scanner.parse.pages")
+                    .description("Parsed pages by parse mode")
+                    .tag("mode", formOnly ? "form_only" : "full")
+                    .register(meterRegistry)
+                    .increment();
+            outcome = "success";
+            return doc;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            sample.stop(ScannerMetrics.stageTimer(meterRegistry, "parse", outcome));
+        }
+    }
+    
+    /**
+     * Charset from a {@code <meta charset>} or {@code http-equiv} tag near the start of the page,
+     * for the form-only parser which, unlike {@link Jsoup#parse}, does not detect it itself.
+     */
+    private static String sniffCharset(byte[] body) {
+        String head = new String(body, 0, Math.min(body.length, 1024), StandardCharsets.ISO_8859_1);
+        Matcher matcher = META_CHARSET.matcher(head);
+        if (matcher.find()) {
+            try {
+                if (Charset.isSupported(matcher.group(1))) {
+                    return matcher.group(1);
+                }
+            } catch (IllegalCharsetNameException e) {
+                // Fall through to the default
+            }
+        }
+        return StandardCharsets.UTF_8.name();
+    }
+    
+    private static boolean isSupportedContentType(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("xml");
+    }
+    
+    private static String charsetOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String param : contentType.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                String charset = trimmed.substring(8).replace("\"", "").replace("'", "").trim();
+                try {
+                    return Charset.isSupported(charset) ? charset : null;
+                } catch (IllegalCharsetNameException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
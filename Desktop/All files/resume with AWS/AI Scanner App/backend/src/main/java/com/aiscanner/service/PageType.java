@@ -0,0 +1,44 @@
+package com.aiscanner.service;
+
+/**
+ * Kind of form a page looks like, guessed from keywords in its title and text. Declared in
+ * priority order: when a page mentions several, the first one wins.
+ */
+enum PageType {
+    LOAN("Loan Application Form", "loan application"),
+    REGISTER("Registration Form", "registration"),
+    CONTACT("Contact Form", "contact"),
+    CHECKOUT("Checkout Form", "checkout"),
+    SURVEY("Survey Form", "survey");
+    
+    private static final KeywordMatcher<PageType> KEYWORDS = KeywordMatcher.builder(PageType.class)
+            .add(LOAN, "loan")
+            .add(REGISTER, "register")
+            .add(CONTACT, "contact")
+            .add(CHECKOUT, "checkout")
+            .add(SURVEY, "survey")
+            .build();
+    
+    private final String formName;
+    private final String description;
+    
+    PageType(String formName, String description) {
+        this.formName = formName;
+        this.description = description;
+    }
+    
+    /**
+     * The highest-priority type mentioned in any of {@code texts}, or null.
+     */
+    static PageType detect(CharSequence... texts) {
+        return KEYWORDS.first(texts);
+    }
+    
+    String formName() {
+        return formName;
+    }
+    
+    String description() {
+        return description;
+    }
+}
@@ -0,0 +1,16 @@
+package com.aiscanner.service;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * What is remembered about the last fetch of a page, so a refresh can ask the server whether it
+ * changed and recognize an unchanged body without re-running the analysis.
+ */
+@Data
+@Builder
+public class PageValidators {
+    private String etag;
+    private String lastModified;
+    private String contentHash; // SHA-256 of the body bytes, hex encoded
+}
@@ -0,0 +1,171 @@
+package com.aiscanner.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a prompt that fits a token budget. Fixed parts (instructions, the question) are always
+ * kept; the remaining budget is shared between content sections in proportion to their weight,
+ * and a section that needs less than its share passes the rest on to the others. Text sections
+ * are cut at a word boundary, list sections only ever include whole items.
+ */
+class PromptAssembler {
+    
+    // Rough average for English prose and markup-free page text
+    private static final int CHARS_PER_TOKEN = 4;
+    
+    private final int budgetTokens;
+    private final List<Part> parts = new ArrayList<>();
+    
+    PromptAssembler(int budgetTokens) {
+        this.budgetTokens = budgetTokens;
+    }
+    
+    static int estimateTokens(CharSequence text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+    
+    PromptAssembler fixed(String text) {
+        parts.add(new Part(null, text, null, 0));
+        return this;
+    }
+    
+    /**
+     * Adds a free-text section, omitted entirely when {@code content} is blank.
+     */
+    PromptAssembler text(String header, String content, int weight) {
+        if (content != null && !content.isBlank()) {
+            parts.add(new Part(header, content.trim(), null, weight));
+        }
+        return this;
+    }
+    
+    /**
+     * Adds a section of one-line items, omitted entirely when there are none. Items that do not
+     * fit are summarized as "... and N more".
+     */
+    PromptAssembler items(String header, List<String> items, int weight) {
+        if (items != null && !items.isEmpty()) {
+            parts.add(new Part(header, null, items, weight));
+        }
+        return this;
+    }
+    
+    String build() {
+        int available = budgetTokens;
+        List<Part> sections = new ArrayList<>();
+        for (Part part : parts) {
+            if (part.weight == 0) {
+                available -= estimateTokens(part.text);
+            } else {
+                available -= estimateTokens(part.header) + 1;
+                sections.add(part);
+            }
+        }
+        allocate(sections, Math.max(0, available));
+        
+        StringBuilder prompt = new StringBuilder(budgetTokens * CHARS_PER_TOKEN);
+        for (Part part : parts) {
+            if (part.weight == 0) {
+                prompt.append(part.text);
+            } else if (part.allowanceTokens > 0) {
+                prompt.append(part.header).append("\n");
+                if (part.items != null) {
+                    appendItems(prompt, part.items, part.allowanceTokens * CHARS_PER_TOKEN);
+                } else {
+                    appendText(prompt, part.text, part.allowanceTokens * CHARS_PER_TOKEN);
+                }
+                prompt.append("\n");
+            }
+        }
+        return prompt.toString();
+    }
+    
+    /**
+     * Water-filling: sections whose whole content fits in their weighted share take only what
+     * they need, and what they leave is shared again among the rest.
+     */
+    private static void allocate(List<Part> sections, int available) {
+        List<Part> open = new ArrayList<>(sections);
+        boolean settled = false;
+        while (!open.isEmpty() && !settled) {
+            int totalWeight = 0;
+            for (Part section : open) {
+                totalWeight += section.weight;
+            }
+            settled = true;
+            for (int i = open.size() - 1; i >= 0; i--) {
+                Part section = open.get(i);
+                int share = (int) ((long) available * section.weight / totalWeight);
+                if (section.demandTokens() <= share) {
+                    section.allowanceTokens = section.demandTokens();
+                    available -= section.allowanceTokens;
+                    open.remove(i);
+                    settled = false;
+                }
+            }
+        }
+        int totalWeight = 0;
+        for (Part section : open) {
+            totalWeight += section.weight;
+        }
+        for (Part section : open) {
+            section.allowanceTokens = (int) ((long) available * section.weight / totalWeight);
+        }
+    }
+    
+    private static void appendText(StringBuilder prompt, String text, int maxChars) {
+        if (text.length() <= maxChars) {
+            prompt.append(text).append("\n");
+            return;
+        }
+        int cut = maxChars;
+        int lastSpace = text.lastIndexOf(' ', maxChars);
+        if (lastSpace > maxChars / 2) {
+            cut = lastSpace;
+        }
+        prompt.append(text, 0, cut).append("...\n");
+    }
+    
+    private static void appendItems(StringBuilder prompt, List<String> items, int maxChars) {
+        int used = 0;
+        int included = 0;
+        for (String item : items) {
+            if (used + item.length() + 1 > maxChars) {
+                break;
+            }
+            prompt.append(item).append("\n");
+            used += item.length() + 1;
+            included++;
+        }
+        if (included < items.size()) {
+            prompt.append("... and ").append(items.size() - included).append(" more\n");
+        }
+    }
+    
+    private static final class Part {
+        private final String header;
+        private final String text;
+        private final List<String> items;
+        private final int weight; // 0 for fixed parts
+        private int allowanceTokens;
+        
+        private Part(String header, String text, List<String> items, int weight) {
+            this.header = header;
+            this.text = text;
+            this.items = items;
+            this.weight = weight;
+        }
+        
+        private int demandTokens() {
+            if (items == null) {
+                return estimateTokens(text) + 1;
+            }
+            int chars = 0;
+            for (String item : items) {
+                chars += item.length() + 1;
+            }
+            return (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.aiscanner.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meter names shared by the stages of the analyze pipeline. Every stage reports to one
+ * {@code scanner.stage} timer tagged with the stage name, so a slow {@code /analyze} can be
+ * broken down per stage from a single metric.
+ */
+final class ScannerMetrics {
+    
+    static final String STAGE_TIMER = "scanner.stage";
+    
+    private ScannerMetrics() {
+    }
+    
+    static Timer stageTimer(MeterRegistry meterRegistry, String stage, String outcome) {
+        // The registry returns the already registered timer for the same name and tags
+        return Timer.builder(STAGE_TIMER)
+                .description("Time spent in each stage of a page analysis")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
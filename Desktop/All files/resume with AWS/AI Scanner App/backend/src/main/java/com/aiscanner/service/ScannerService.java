@@ -1,20 +1,41 @@
 package com.aiscanner.service;
 
 import com.aiscanner.dto.PageAnalysisResponse;
-import org.jsoup.Jsoup;
+import com.aiscanner.store.AnalysisStore;
+import com.aiscanner.store.StoredAnalysis;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -26,309 +47,590 @@ public class ScannerService {
     @Autowired
     private DemoFormGeneratorService demoFormGeneratorService;
     
-    @Value("${scraper.user.agent}")
-    private String userAgent;
+    @Autowired
+    private PageFetcher pageFetcher;
     
-    @Value("${scraper.timeout:15000}")
-    private int timeout;
+    @Autowired
+    private PageExtractor pageExtractor;
     
-    @Value("${scraper.max.retries:3}")
-    private int maxRetries;
+    @Autowired
+    private AnalysisStore analysisStore;
     
-    public PageAnalysisResponse analyzePage(String url) throws IOException {
-        Document doc = null;
-        int retryCount = 0;
-        
-        // Retry logic for web scraping
-        while (retryCount < maxRetries) {
-            try {
-                doc = Jsoup.connect(url)
-                        .userAgent(userAgent)
-                        .timeout(timeout)
-                        .followRedirects(true)
-                        .ignoreHttpErrors(true)
-                        .get();
-                break;
-            } catch (IOException e) {
-                retryCount++;
-                log.warn("Attempt {} failed for URL: {}. Error: {}", retryCount, url, e.getMessage());
-                if (retryCount >= maxRetries) {
-                    throw e;
-                }
-                try {
-                    Thread.sleep(1000 * retryCount); // Exponential backoff
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("Scraping interrupted", ie);
-                }
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    @Qualifier("scannerExecutor")
+    private Executor scannerExecutor;
+    
+    @Value("${gemini.field.batch.enabled:true}")
+    private boolean fieldBatchEnabled;
+    
+    @Value("${scanner.cache.max.bytes:67108864}")
+    private long cacheMaxBytes;
+    
+    @Value("${scanner.cache.ttl.minutes:60}")
+    private long cacheTtlMinutes;
+    
+    @Value("${scanner.cache.refresh.minutes:15}")
+    private long cacheRefreshMinutes;
+    
+    @Value("${scanner.cache.degraded.ttl.minutes:1}")
+    private long degradedTtlMinutes;
+    
+    @Value("${scanner.incremental.enabled:true}")
+    private boolean incrementalEnabled;
+    
+    @Value("${scanner.incremental.summary.change.ratio:0.2}")
+    private double summaryChangeRatio;
+    
+    @Value("${scanner.validators.max.entries:10000}")
+    private long validatorsMaxEntries;
+    
+    @Value("${scanner.chat.chunk.tokens:120}")
+    private int chatChunkTokens;
+    
+    // Analyses keyed by canonical URL, bounded by the payload bytes they hold. An analysis still
+    // running is cached as its future, so concurrent callers for one URL share a single scrape and AI fan-out
+    private AsyncLoadingCache<String, PageAnalysisResponse> analysisCache;
+    
+    // ETag, Last-Modified and body hash of the last fetch per canonical URL, used to short-circuit refreshes
+    private Cache<String, PageValidators> pageValidators;
+    
+    private DistributionSummary extractedBytes;
+    private Counter coalescedRequests;
+    
+    // Chat retrieval index per analysis, keyed by identity and dropped with the analysis it was built from
+    private final Cache<PageAnalysisResponse, PageChunkIndex> chunkIndexes = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+    
+    // Strong validator of the stored demo form per analysis, so revalidations never rehash it
+    private final Cache<PageAnalysisResponse, String> demoFormEtags = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+    
+    // Analyses of error pages or made mostly of fallback output, keyed by identity
+    private final Cache<PageAnalysisResponse, Boolean> degradedAnalyses = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+    
+    // Analyses read back from the store past their refresh interval, keyed by identity until a
+    // background refresh has been started for them
+    private final Cache<PageAnalysisResponse, Boolean> staleStoredAnalyses = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+    
+    @PostConstruct
+    void initAnalysisCache() {
+        analysisCache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String key, PageAnalysisResponse value) -> estimateBytes(key, value))
+                .expireAfter(new Expiry<String, PageAnalysisResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, PageAnalysisResponse value, long currentTime) {
+                        return timeToLive(value);
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, PageAnalysisResponse value, long currentTime, long currentDuration) {
+                        return timeToLive(value);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, PageAnalysisResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .refreshAfterWrite(Duration.ofMinutes(cacheRefreshMinutes))
+                .recordStats()
+                .executor(scannerExecutor)
+                .buildAsync(new AsyncCacheLoader<String, PageAnalysisResponse>() {
+                    @Override
+                    public CompletableFuture<PageAnalysisResponse> asyncLoad(String key, Executor executor) {
+                        return load(key, executor);
+                    }
+                    
+                    @Override
+                    public CompletableFuture<PageAnalysisResponse> asyncReload(String key, PageAnalysisResponse oldValue, Executor executor) {
+                        // Conditional re-fetch: an unchanged page keeps its analysis and costs no Gemini calls
+                        return scanAndStore(key, oldValue, executor);
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, analysisCache, "pageAnalysis");
+        coalescedRequests = Counter.builder("scanner.analysis.coalesced")
+                .description("Analysis requests that joined an analysis of the same page already running")
+                .register(meterRegistry);
+        extractedBytes = DistributionSummary.builder("scanner.page.extracted.bytes")
+                .description("Estimated heap held by a page's extracted text and fields while it is analyzed")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        pageValidators = Caffeine.newBuilder()
+                .maximumSize(validatorsMaxEntries)
+                .build();
+    }
+    
+    /**
+     * Degraded analyses live for {@code scanner.cache.degraded.ttl.minutes} only, so a page that
+     * errored or was explained by fallbacks is scanned again soon instead of for the full TTL.
+     */
+    private long timeToLive(PageAnalysisResponse analysis) {
+        return TimeUnit.MINUTES.toNanos(isDegraded(analysis) ? Math.min(degradedTtlMinutes, cacheTtlMinutes) : cacheTtlMinutes);
+    }
+    
+    private boolean isDegraded(PageAnalysisResponse analysis) {
+        return degradedAnalyses.getIfPresent(analysis) != null;
+    }
+    
+    /**
+     * Analyzes {@code url} without blocking the calling thread. The future fails with the
+     * {@link IOException} that made the page unreadable, or the runtime exception that broke the
+     * analysis. Cancelling it only detaches this caller; callers sharing the analysis keep it.
+     */
+    public CompletableFuture<PageAnalysisResponse> analyzePage(String url) {
+        CompletableFuture<PageAnalysisResponse> result = new CompletableFuture<>();
+        try {
+            String key = UrlCanonicalizer.canonicalize(url);
+            boolean[] loadedHere = new boolean[1];
+            CompletableFuture<PageAnalysisResponse> shared = analysisCache.get(key, (k, executor) -> {
+                loadedHere[0] = true;
+                return load(k, executor);
+            });
+            if (!loadedHere[0] && !shared.isDone()) {
+                coalescedRequests.increment(); // Joined another caller's analysis of this page
             }
+            shared.whenComplete((analysis, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(analysisFailure(url, error));
+                } else {
+                    result.complete(analysis);
+                    revalidateIfStale(key, analysis);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
         }
-        
-        if (doc == null) {
-            throw new IOException("Failed to retrieve page after " + maxRetries + " attempts");
+        return result;
+    }
+    
+    // Reads through the on-disk store so a restarted instance starts warm
+    private CompletableFuture<PageAnalysisResponse> load(String url, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> analysisStore.get(url), executor)
+                .thenCompose(stored -> stored.isPresent()
+                        ? CompletableFuture.completedFuture(fromStore(url, stored.get()))
+                        : scanAndStore(url, null, executor));
+    }
+    
+    /**
+     * Starts the cache's own refresh for a stale analysis served from the store. The entry is in
+     * the cache by now, so the refresh goes through {@code asyncReload} and the stored analysis
+     * keeps being served until it completes.
+     */
+    private void revalidateIfStale(String key, PageAnalysisResponse analysis) {
+        if (staleStoredAnalyses.asMap().remove(analysis) != null) {
+            analysisCache.synchronous().refresh(key);
+        }
+    }
+    
+    private static Throwable analysisFailure(String url, Throwable error) {
+        Throwable cause = error;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException || cause instanceof RuntimeException) {
+            return cause;
+        }
+        return new IOException("Failed to analyze page: " + url, cause);
+    }
+    
+    /**
+     * Returns the chunk index used to pick chat context for {@code analysis}. Indexes are built
+     * when a page is scanned; analyses read back from the store are indexed on first use.
+     */
+    public PageChunkIndex getChunkIndex(PageAnalysisResponse analysis) {
+        return chunkIndexes.get(analysis, this::buildChunkIndex);
+    }
+    
+    /**
+     * Returns a strong ETag (quoted SHA-256 of the UTF-8 bytes) for the demo form stored with
+     * {@code analysis}, or {@code null} when it has none. A refresh that changes the page yields a
+     * new analysis instance and therefore a new tag.
+     */
+    public String getDemoFormEtag(PageAnalysisResponse analysis) {
+        if (analysis.getDemoForm() == null) {
+            return null;
+        }
+        return demoFormEtags.get(analysis, a -> '"' + contentHash(a.getDemoForm().getBytes(StandardCharsets.UTF_8)) + '"');
+    }
+    
+    private PageChunkIndex buildChunkIndex(PageAnalysisResponse analysis) {
+        return PageChunkIndex.build(analysis.getPageContent(), analysis.getCodeContent(), analysis.getQuestionsContent(), chatChunkTokens);
+    }
+    
+    /**
+     * Serves a stored analysis straight away, without touching the network. One older than
+     * {@code scanner.cache.refresh.minutes} is marked for a background refresh, which revalidates
+     * it with its stored validators once the caller has its answer.
+     */
+    private PageAnalysisResponse fromStore(String url, StoredAnalysis stored) {
+        pageValidators.put(url, PageValidators.builder()
+                .etag(stored.getEtag())
+                .lastModified(stored.getLastModified())
+                .contentHash(stored.getContentHash())
+                .build());
+        PageAnalysisResponse analysis = stored.getAnalysis();
+        if (System.currentTimeMillis() - stored.getWrittenAt() >= TimeUnit.MINUTES.toMillis(cacheRefreshMinutes)) {
+            staleStoredAnalyses.put(analysis, Boolean.TRUE);
+        }
+        return analysis;
+    }
+    
+    /**
+     * Scans {@code url} and stores the result with its validators, unless it is degraded. When
+     * {@code previous} is given and the page has not changed since it was analyzed (304, or the same
+     * body bytes), {@code previous} is returned as is. Parsing, extraction and assembly run on {@code executor}; no thread waits for the fetch or
+     * the Gemini calls.
+     */
+    private CompletableFuture<PageAnalysisResponse> scanAndStore(String url, PageAnalysisResponse previous, Executor executor) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return ingest(url, previous, executor)
+                .thenCompose(extracted -> extracted != null
+                        ? scanPage(url, extracted, previous, executor)
+                        : CompletableFuture.completedFuture(previous))
+                .thenApply(analysis -> {
+                    // An unchanged page is stored again too, so the record's age says when the page was last confirmed
+                    if (!isDegraded(analysis)) {
+                        analysisStore.put(url, stored(url, analysis));
+                    }
+                    return analysis;
+                })
+                .whenComplete((analysis, error) -> sample.stop(Timer.builder("scanner.scan")
+                        .description("End-to-end time of a page scan that missed the cache")
+                        .tag("outcome", error != null ? "failure" : analysis == previous ? "unchanged" : "success")
+                        .register(meterRegistry)));
+    }
+    
+    private StoredAnalysis stored(String url, PageAnalysisResponse analysis) {
+        PageValidators validators = pageValidators.getIfPresent(url);
+        return StoredAnalysis.builder()
+                .analysis(analysis)
+                .etag(validators != null ? validators.getEtag() : null)
+                .lastModified(validators != null ? validators.getLastModified() : null)
+                .contentHash(validators != null ? validators.getContentHash() : null)
+                .build();
+    }
+    
+    private CompletableFuture<PageAnalysisResponse> scanPage(String url, ExtractedPage extracted, PageAnalysisResponse previous, Executor executor) {
+        String title = extracted.getTitle();
+        List<PageAnalysisResponse.FieldInfo> fields = extracted.getFields();
+        
+        // A page that changed since its last analysis only sends what changed to Gemini
+        FieldDiff diff = incrementalEnabled && previous != null ? FieldDiff.between(previous.getFields(), fields) : null;
+        boolean regenerateSummary = diff == null || structureChanged(previous, extracted, diff);
+        if (diff != null) {
+            countIncremental("summary", regenerateSummary ? "regenerated" : "reused", 1);
         }
-        
-        String title = doc.title();
-        List<PageAnalysisResponse.FieldInfo> fields = extractFields(doc);
-        String htmlContent = doc.html();
-        
-        // Extract comprehensive page content for better AI analysis
-        String pageContent = extractPageContent(doc);
-        String codeContent = extractCodeContent(doc);
-        String questionsContent = extractQuestionsContent(doc);
         
         // Use Gemini AI for intelligent analysis
-        CompletableFuture<String> aiAnalysis = geminiAIService.analyzePageWithAI(url, title, htmlContent, fields);
+        CompletableFuture<GeminiAnswer> aiAnalysis;
+        if (regenerateSummary) {
+            Timer.Sample aiPageSample = Timer.start(meterRegistry);
+            aiAnalysis = geminiAIService.analyzePageWithAI(url, title, extracted.getHeadings(), extracted.getBodyText(), fields)
+                    .whenComplete((summary, error) -> aiPageSample.stop(
+                            ScannerMetrics.stageTimer(meterRegistry, "ai.page", error == null ? "success" : "failure")));
+        } else {
+            aiAnalysis = CompletableFuture.completedFuture(GeminiAnswer.fromGemini(previous.getPageSummary()));
+        }
         
         // Process fields with AI explanations
-        List<PageAnalysisResponse.FieldInfo> enhancedFields = enhanceFieldsWithAI(fields, doc);
-        
-        try {
-            String pageSummary = aiAnalysis.get();
-            
-            // Generate demo form based on the analysis
-            String demoForm = demoFormGeneratorService.generateDummyForm(
-                PageAnalysisResponse.builder()
-                    .url(url)
-                    .title(title)
-                    .fields(enhancedFields)
-                    .pageSummary(pageSummary)
-                    .build()
-            );
-            
-            return PageAnalysisResponse.builder()
-                    .url(url)
-                    .title(title)
-                    .fields(enhancedFields)
-                    .pageSummary(pageSummary)
-                    .demoForm(demoForm)
-                    .pageContent(pageContent)
-                    .codeContent(codeContent)
-                    .questionsContent(questionsContent)
-                    .build();
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Error getting AI analysis for URL: {}", url, e);
-            Thread.currentThread().interrupt();
-            String fallbackSummary = generateFallbackPageSummary(doc, enhancedFields);
-            
-            // Generate demo form even with fallback analysis
-            String demoForm = demoFormGeneratorService.generateDummyForm(
-                PageAnalysisResponse.builder()
-                    .url(url)
-                    .title(title)
-                    .fields(enhancedFields)
-                    .pageSummary(fallbackSummary)
-                    .build()
-            );
-            
-            return PageAnalysisResponse.builder()
-                    .url(url)
-                    .title(title)
-                    .fields(enhancedFields)
-                    .pageSummary(fallbackSummary)
-                    .demoForm(demoForm)
-                    .pageContent(pageContent)
-                    .codeContent(codeContent)
-                    .questionsContent(questionsContent)
-                    .build();
-        }
+        Timer.Sample aiFieldsSample = Timer.start(meterRegistry);
+        CompletableFuture<List<PageAnalysisResponse.FieldInfo>> enhancedFields = (diff != null
+                ? enhanceChangedFieldsWithAI(fields, extracted.getFieldContexts(), diff)
+                : enhanceFieldsWithAI(fields, extracted.getFieldContexts()))
+                .whenComplete((explained, error) -> aiFieldsSample.stop(
+                        ScannerMetrics.stageTimer(meterRegistry, "ai.fields", error == null ? "success" : "failure")));
+        
+        return aiAnalysis
+                .handle((pageSummary, error) -> {
+                    if (error != null) {
+                        log.error("Error getting AI analysis for URL: {}", url, error);
+                        return null;
+                    }
+                    return pageSummary;
+                })
+                .thenCombineAsync(enhancedFields, (pageSummary, explainedFields) -> assemble(url, extracted, explainedFields,
+                        pageSummary != null ? pageSummary : GeminiAnswer.fallback(generateFallbackPageSummary(title, extracted.getBodyText(), explainedFields))), executor);
     }
     
-    private List<PageAnalysisResponse.FieldInfo> extractFields(Document doc) {
-        List<PageAnalysisResponse.FieldInfo> fields = new ArrayList<>();
-        
-        // Extract form inputs with enhanced detection
-        Elements inputs = doc.select("input, select, textarea, button[type=submit]");
-        for (Element input : inputs) {
-            String name = input.attr("name");
-            String type = input.attr("type");
-            String placeholder = input.attr("placeholder");
-            String id = input.attr("id");
-            boolean required = input.hasAttr("required");
-            String value = input.attr("value");
-            
-            // Skip submit buttons and hidden fields for analysis
-            if ("submit".equals(type) || "hidden".equals(type)) {
-                continue;
-            }
-            
-            // Find associated label with multiple strategies
-            String label = findLabel(input);
-            
-            // Get field context for better AI analysis
-            String context = getFieldContext(input, doc);
-            
-            fields.add(PageAnalysisResponse.FieldInfo.builder()
-                    .name(name.isEmpty() ? id : name)
-                    .label(label)
-                    .type(type.isEmpty() ? input.tagName() : type)
-                    .placeholder(placeholder)
-                    .required(required)
-                    .aiExplanation("Analyzing with AI...") // Will be updated by AI service
-                    .build());
+    private PageAnalysisResponse assemble(String url, ExtractedPage extracted, List<PageAnalysisResponse.FieldInfo> fields, GeminiAnswer pageSummary) {
+        // Generate demo form based on the analysis
+        String demoForm = timeStage("demo.form", () -> demoFormGeneratorService.generateDummyForm(
+            PageAnalysisResponse.builder()
+                .url(url)
+                .title(extracted.getTitle())
+                .fields(fields)
+                .pageSummary(pageSummary.getText())
+                .build()
+        ));
+        
+        PageAnalysisResponse analysis = indexed(PageAnalysisResponse.builder()
+                .url(url)
+                .title(extracted.getTitle())
+                .fields(fields)
+                .pageSummary(pageSummary.getText())
+                .summaryAiGenerated(pageSummary.isGenerated())
+                .demoForm(demoForm)
+                .pageContent(extracted.getPageContent())
+                .codeContent(extracted.getCodeContent())
+                .questionsContent(extracted.getQuestionsContent())
+                .build());
+        if (degraded(extracted.getStatusCode(), analysis)) {
+            degradedAnalyses.put(analysis, Boolean.TRUE);
         }
-        
-        return fields;
+        return analysis;
     }
     
-    private List<PageAnalysisResponse.FieldInfo> enhanceFieldsWithAI(List<PageAnalysisResponse.FieldInfo> fields, Document doc) {
-        List<CompletableFuture<PageAnalysisResponse.FieldInfo>> enhancedFields = new ArrayList<>();
-        
-        for (PageAnalysisResponse.FieldInfo field : fields) {
-            CompletableFuture<PageAnalysisResponse.FieldInfo> enhancedField = geminiAIService
-                    .analyzeFieldWithAI(field.getName(), field.getType(), field.getLabel(), field.getPlaceholder(), getFieldContext(field, doc))
-                    .thenApply(aiExplanation -> {
-                        return PageAnalysisResponse.FieldInfo.builder()
-                                .name(field.getName())
-                                .label(field.getLabel())
-                                .type(field.getType())
-                                .placeholder(field.getPlaceholder())
-                                .required(field.isRequired())
-                                .aiExplanation(aiExplanation)
-                                .build();
-                    });
-            
-            enhancedFields.add(enhancedField);
+    /**
+     * An analysis is degraded when the page was served with an error status, or when its summary
+     * or most of its field explanations are fallbacks rather than Gemini answers.
+     */
+    private static boolean degraded(int statusCode, PageAnalysisResponse analysis) {
+        if (statusCode < 200 || statusCode >= 300 || !analysis.isSummaryAiGenerated()) {
+            return true;
         }
-        
-        // Wait for all AI analyses to complete
-        CompletableFuture<Void> allFields = CompletableFuture.allOf(
-                enhancedFields.toArray(new CompletableFuture[0])
-        );
-        
+        long fallbackFields = analysis.getFields().stream().filter(field -> !field.isAiGenerated()).count();
+        return fallbackFields * 2 > analysis.getFields().size();
+    }
+    
+    private PageAnalysisResponse indexed(PageAnalysisResponse analysis) {
+        chunkIndexes.put(analysis, timeStage("chunk.index", () -> buildChunkIndex(analysis)));
+        return analysis;
+    }
+    
+    private <T> T timeStage(String stage, Supplier<T> work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
         try {
-            allFields.get(); // Wait for completion
-            
-            List<PageAnalysisResponse.FieldInfo> result = new ArrayList<>();
-            for (CompletableFuture<PageAnalysisResponse.FieldInfo> future : enhancedFields) {
-                result.add(future.get());
-            }
+            T result = work.get();
+            outcome = "success";
             return result;
-            
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Error enhancing fields with AI", e);
-            Thread.currentThread().interrupt();
-            return fields; // Return original fields if AI enhancement fails
+        } finally {
+            sample.stop(ScannerMetrics.stageTimer(meterRegistry, stage, outcome));
         }
     }
     
-    private String findLabel(Element input) {
-        // Strategy 1: Find label by for attribute
-        String id = input.attr("id");
-        if (!id.isEmpty()) {
-            Element label = input.parent().selectFirst("label[for=" + id + "]");
-            if (label != null) {
-                return label.text().trim();
+    /**
+     * Fetches, parses and extracts {@code url}, or completes with null when {@code previous} is
+     * still current (304, or the same body bytes). The DOM and body bytes stay local to the parse
+     * step, so they can be collected while the AI calls run.
+     */
+    private CompletableFuture<ExtractedPage> ingest(String url, PageAnalysisResponse previous, Executor executor) {
+        PageValidators validators = previous != null ? pageValidators.getIfPresent(url) : null;
+        return pageFetcher.fetch(url, validators)
+                .handle((page, error) -> {
+                    if (error != null) {
+                        throw new UncheckedIOException(fetchFailure(url, error));
+                    }
+                    return page;
+                })
+                .thenApplyAsync(page -> extract(url, page, validators, previous != null), executor);
+    }
+    
+    private ExtractedPage extract(String url, FetchedPage page, PageValidators validators, boolean refresh) {
+        if (page.getStatusCode() == 304) {
+            if (validators == null) {
+                throw new UncheckedIOException(new IOException("Unexpected 304 Not Modified for unconditional request: " + url));
             }
+            rememberValidators(url, page, validators.getContentHash());
+            countRefresh("not_modified");
+            return null;
         }
         
-        // Strategy 2: Find label as parent
-        Element parentLabel = input.parent().selectFirst("label");
-        if (parentLabel != null) {
-            return parentLabel.text().trim();
+        String contentHash = contentHash(page.getBody());
+        rememberValidators(url, page, contentHash);
+        if (validators != null && contentHash.equals(validators.getContentHash())) {
+            countRefresh("unchanged");
+            return null;
         }
-        
-        // Strategy 3: Find label as sibling
-        Element siblingLabel = input.parent().selectFirst("label");
-        if (siblingLabel != null) {
-            return siblingLabel.text().trim();
+        if (refresh) {
+            countRefresh("changed");
         }
         
-        // Strategy 4: Find label in nearby text
-        Element nearbyText = input.parent().selectFirst("span, div, p");
-        if (nearbyText != null && !nearbyText.text().trim().isEmpty()) {
-            return nearbyText.text().trim();
-        }
+        Document doc = pageFetcher.parse(page);
         
-        // Strategy 5: Use placeholder or name as fallback
-        String placeholder = input.attr("placeholder");
-        if (!placeholder.isEmpty()) {
-            return placeholder;
+        // Extract fields and comprehensive page content in a single pass for better AI analysis
+        ExtractedPage extracted = timeStage("extract", () -> pageExtractor.extract(doc));
+        extracted.setStatusCode(page.getStatusCode());
+        extractedBytes.record(estimateBytes(extracted));
+        return extracted;
+    }
+    
+    /**
+     * Whether the page summary has to be regenerated: the previous one is not a Gemini answer, the
+     * title changed, enough fields were added, removed or changed, or, for pages without fields,
+     * the page text itself changed.
+     */
+    private boolean structureChanged(PageAnalysisResponse previous, ExtractedPage extracted, FieldDiff diff) {
+        if (!previous.isSummaryAiGenerated() || previous.getPageSummary() == null || !Objects.equals(previous.getTitle(), extracted.getTitle())) {
+            return true;
         }
-        
-        String name = input.attr("name");
-        if (!name.isEmpty()) {
-            return name.replaceAll("[_-]", " ").trim();
+        if (extracted.getFields().isEmpty() && (previous.getFields() == null || previous.getFields().isEmpty())) {
+            return !Objects.equals(previous.getPageContent(), extracted.getPageContent());
         }
-        
-        return "Unnamed Field";
+        return diff.changeRatio() > summaryChangeRatio;
     }
     
-    private String getFieldContext(PageAnalysisResponse.FieldInfo field, Document doc) {
-        // Get surrounding context for better AI analysis
-        StringBuilder context = new StringBuilder();
+    private void countIncremental(String kind, String result, int count) {
+        if (count > 0) {
+            Counter.builder("scanner.incremental")
+                    .description("Page summaries and field explanations reused from the previous analysis or regenerated")
+                    .tag("kind", kind)
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+    
+    private void rememberValidators(String url, FetchedPage page, String contentHash) {
+        PageValidators known = pageValidators.getIfPresent(url);
+        // A 304 may omit validators the server sent before; keep those
+        pageValidators.put(url, PageValidators.builder()
+                .etag(page.getEtag() != null ? page.getEtag() : known != null ? known.getEtag() : null)
+                .lastModified(page.getLastModified() != null ? page.getLastModified() : known != null ? known.getLastModified() : null)
+                .contentHash(contentHash)
+                .build());
+    }
+    
+    private void countRefresh(String result) {
+        Counter.builder("scanner.refresh")
+                .description("Refreshes of cached analyses by whether the page had changed")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+    
+    private static String contentHash(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static IOException fetchFailure(String url, Throwable error) {
+        Throwable cause = error;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("Failed to retrieve page: " + url, cause);
+    }
+    
+    private CompletableFuture<List<PageAnalysisResponse.FieldInfo>> enhanceFieldsWithAI(List<PageAnalysisResponse.FieldInfo> fields, List<String> contexts) {
+        if (fieldBatchEnabled) {
+            return enhanceFieldsWithBatchedAI(fields, contexts);
+        }
         
-        // Find the field in the document
-        Elements fieldElements = doc.select(String.format("[name='%s'], [id='%s']", field.getName(), field.getName()));
-        if (!fieldElements.isEmpty()) {
-            Element fieldElement = fieldElements.first();
-            context.append("Field context: ");
-            
-            // Get parent form context
-            Element form = fieldElement.closest("form");
-            if (form != null) {
-                context.append("Located in form. ");
-                String formAction = form.attr("action");
-                if (!formAction.isEmpty()) {
-                    context.append("Form action: ").append(formAction).append(". ");
-                }
-            }
+        List<CompletableFuture<PageAnalysisResponse.FieldInfo>> enhancedFields = new ArrayList<>();
+        
+        for (int i = 0; i < fields.size(); i++) {
+            PageAnalysisResponse.FieldInfo field = fields.get(i);
+            CompletableFuture<PageAnalysisResponse.FieldInfo> enhancedField = geminiAIService
+                    .analyzeFieldWithAI(field.getName(), field.getType(), field.getLabel(), field.getPlaceholder(), contexts.get(i))
+                    .thenApply(aiExplanation -> withExplanation(field, aiExplanation));
             
-            // Get nearby text context
-            Element parent = fieldElement.parent();
-            if (parent != null) {
-                String parentText = parent.text().trim();
-                if (parentText.length() > 0 && parentText.length() < 200) {
-                    context.append("Nearby text: ").append(parentText).append(". ");
-                }
-            }
+            enhancedFields.add(enhancedField);
         }
         
-        return context.toString();
+        // Completes once every AI analysis has
+        return CompletableFuture.allOf(enhancedFields.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<PageAnalysisResponse.FieldInfo> result = new ArrayList<>(fields.size());
+                    for (CompletableFuture<PageAnalysisResponse.FieldInfo> future : enhancedFields) {
+                        result.add(future.join());
+                    }
+                    return result;
+                })
+                .exceptionally(e -> {
+                    log.error("Error enhancing fields with AI", e);
+                    return fields; // Return original fields if AI enhancement fails
+                });
     }
     
-    private String getFieldContext(Element input, Document doc) {
-        StringBuilder context = new StringBuilder();
-        
-        // Get parent form context
-        Element form = input.closest("form");
-        if (form != null) {
-            context.append("Located in form. ");
-            String formAction = form.attr("action");
-            if (!formAction.isEmpty()) {
-                context.append("Form action: ").append(formAction).append(". ");
+    /**
+     * Explains only the fields {@code diff} has no earlier explanation for and carries the rest over.
+     */
+    private CompletableFuture<List<PageAnalysisResponse.FieldInfo>> enhanceChangedFieldsWithAI(List<PageAnalysisResponse.FieldInfo> fields, List<String> contexts, FieldDiff diff) {
+        List<Integer> toExplain = diff.fieldsToExplain();
+        countIncremental("field", "reused", fields.size() - toExplain.size());
+        countIncremental("field", "regenerated", toExplain.size());
+        
+        CompletableFuture<List<PageAnalysisResponse.FieldInfo>> explained = CompletableFuture.completedFuture(List.of());
+        if (!toExplain.isEmpty()) {
+            List<PageAnalysisResponse.FieldInfo> changedFields = new ArrayList<>(toExplain.size());
+            List<String> changedContexts = new ArrayList<>(toExplain.size());
+            for (int index : toExplain) {
+                changedFields.add(fields.get(index));
+                changedContexts.add(contexts.get(index));
             }
+            explained = enhanceFieldsWithAI(changedFields, changedContexts);
         }
         
-        // Get nearby text context
-        Element parent = input.parent();
-        if (parent != null) {
-            String parentText = parent.text().trim();
-            if (parentText.length() > 0 && parentText.length() < 200) {
-                context.append("Nearby text: ").append(parentText).append(". ");
+        return explained.thenApply(explainedFields -> {
+            List<PageAnalysisResponse.FieldInfo> result = new ArrayList<>(fields.size());
+            int next = 0;
+            for (int i = 0; i < fields.size(); i++) {
+                String carried = diff.carriedExplanation(i);
+                result.add(carried != null ? withExplanation(fields.get(i), GeminiAnswer.fromGemini(carried)) : explainedFields.get(next++));
             }
-        }
-        
-        return context.toString();
+            return result;
+        });
+    }
+    
+    private CompletableFuture<List<PageAnalysisResponse.FieldInfo>> enhanceFieldsWithBatchedAI(List<PageAnalysisResponse.FieldInfo> fields, List<String> contexts) {
+        return geminiAIService.analyzeFieldsWithAI(fields, contexts)
+                .thenApply(explanations -> {
+                    List<PageAnalysisResponse.FieldInfo> result = new ArrayList<>(fields.size());
+                    for (int i = 0; i < fields.size(); i++) {
+                        result.add(withExplanation(fields.get(i), explanations.get(i)));
+                    }
+                    return result;
+                })
+                .exceptionally(e -> {
+                    log.error("Error enhancing fields with batched AI", e);
+                    return fields; // Return original fields if AI enhancement fails
+                });
     }
     
-    private String generateFallbackPageSummary(Document doc, List<PageAnalysisResponse.FieldInfo> fields) {
+    private PageAnalysisResponse.FieldInfo withExplanation(PageAnalysisResponse.FieldInfo field, GeminiAnswer aiExplanation) {
+        return PageAnalysisResponse.FieldInfo.builder()
+                .name(field.getName())
+                .label(field.getLabel())
+                .type(field.getType())
+                .placeholder(field.getPlaceholder())
+                .required(field.isRequired())
+                .aiExplanation(aiExplanation.getText())
+                .aiGenerated(aiExplanation.isGenerated())
+                .build();
+    }
+    
+    private String generateFallbackPageSummary(String pageTitle, String pageText, List<PageAnalysisResponse.FieldInfo> fields) {
         StringBuilder summary = new StringBuilder();
         
         summary.append("This page contains ").append(fields.size()).append(" form fields. ");
         
-        // Analyze page type based on content
-        String title = doc.title().toLowerCase();
-        String bodyText = doc.body().text().toLowerCase();
-        
-        if (title.contains("loan") || bodyText.contains("loan")) {
-            summary.append("This appears to be a loan application form. ");
-        } else if (title.contains("register") || bodyText.contains("register")) {
-            summary.append("This appears to be a registration form. ");
-        } else if (title.contains("contact") || bodyText.contains("contact")) {
-            summary.append("This appears to be a contact form. ");
-        } else if (title.contains("checkout") || bodyText.contains("checkout")) {
-            summary.append("This appears to be a checkout form. ");
+        // Analyze page type based on content, in one pass and without a lowercased copy of the page text
+        PageType type = PageType.detect(pageTitle, pageText);
+        if (type != null && type != PageType.SURVEY) {
+            summary.append("This appears to be a ").append(type.description()).append(" form. ");
         } else {
             summary.append("This appears to be a data collection form. ");
         }
@@ -347,113 +649,52 @@ public class ScannerService {
         return summary.toString();
     }
     
-    private String extractPageContent(Document doc) {
-        StringBuilder content = new StringBuilder();
-        
-        // Extract main text content
-        String bodyText = doc.body().text();
-        content.append("Page Text Content:\n").append(bodyText).append("\n\n");
-        
-        // Extract headings structure
-        Elements headings = doc.select("h1, h2, h3, h4, h5, h6");
-        if (!headings.isEmpty()) {
-            content.append("Page Structure (Headings):\n");
-            for (Element heading : headings) {
-                content.append("- ").append(heading.tagName().toUpperCase()).append(": ").append(heading.text()).append("\n");
-            }
-            content.append("\n");
-        }
-        
-        // Extract lists and important content
-        Elements lists = doc.select("ul, ol");
-        if (!lists.isEmpty()) {
-            content.append("Lists Found:\n");
-            for (Element list : lists) {
-                Elements items = list.select("li");
-                for (Element item : items) {
-                    content.append("• ").append(item.text()).append("\n");
-                }
-            }
-            content.append("\n");
-        }
-        
-        // Extract paragraphs
-        Elements paragraphs = doc.select("p");
-        if (!paragraphs.isEmpty()) {
-            content.append("Main Content Paragraphs:\n");
-            for (Element p : paragraphs) {
-                String text = p.text().trim();
-                if (text.length() > 20) { // Only include substantial paragraphs
-                    content.append("- ").append(text).append("\n");
-                }
+    private static int estimateBytes(String key, PageAnalysisResponse analysis) {
+        // Strings are UTF-16 on the heap in the worst case, so count two bytes per char
+        long chars = length(key)
+                + length(analysis.getUrl())
+                + length(analysis.getTitle())
+                + length(analysis.getPageSummary())
+                + length(analysis.getError())
+                + length(analysis.getDemoForm())
+                + length(analysis.getPageContent())
+                + length(analysis.getCodeContent())
+                + length(analysis.getQuestionsContent());
+        if (analysis.getFields() != null) {
+            for (PageAnalysisResponse.FieldInfo field : analysis.getFields()) {
+                chars += length(field.getName())
+                        + length(field.getLabel())
+                        + length(field.getType())
+                        + length(field.getDescription())
+                        + length(field.getPlaceholder())
+                        + length(field.getAiExplanation())
+                        + length(field.getValidationRules())
+                        + length(field.getBestPractices())
+                        + length(field.getSecurityNotes());
             }
         }
-        
-        return content.toString();
+        return (int) Math.min(Integer.MAX_VALUE, chars * 2);
     }
     
-    private String extractCodeContent(Document doc) {
-        StringBuilder codeContent = new StringBuilder();
-        
-        // Extract code blocks
-        Elements codeBlocks = doc.select("code, pre, .code, .highlight, script[type='text/javascript']");
-        if (!codeBlocks.isEmpty()) {
-            codeContent.append("Code Content Found:\n");
-            for (Element code : codeBlocks) {
-                String codeText = code.text().trim();
-                if (codeText.length() > 10) {
-                    codeContent.append("Code Block:\n```\n").append(codeText).append("\n```\n\n");
-                }
-            }
-        }
-        
-        // Extract programming-related content
-        Elements programmingElements = doc.select("[class*='java'], [class*='code'], [class*='program'], pre");
-        for (Element element : programmingElements) {
-            String text = element.text().trim();
-            if (text.contains("public") || text.contains("class") || text.contains("function") || 
-                text.contains("for") || text.contains("if") || text.contains("while")) {
-                codeContent.append("Programming Content:\n").append(text).append("\n\n");
-            }
+    private static long estimateBytes(ExtractedPage extracted) {
+        long chars = length(extracted.getTitle())
+                + length(extracted.getBodyText())
+                + length(extracted.getHeadings())
+                + length(extracted.getPageContent())
+                + length(extracted.getCodeContent())
+                + length(extracted.getQuestionsContent());
+        for (int i = 0; i < extracted.getFields().size(); i++) {
+            PageAnalysisResponse.FieldInfo field = extracted.getFields().get(i);
+            chars += length(field.getName())
+                    + length(field.getLabel())
+                    + length(field.getType())
+                    + length(field.getPlaceholder())
+                    + length(extracted.getFieldContexts().get(i));
         }
-        
-        return codeContent.toString();
+        return chars * 2;
     }
     
-    private String extractQuestionsContent(Document doc) {
-        StringBuilder questions = new StringBuilder();
-        
-        // Look for question patterns in text
-        String pageText = doc.body().text();
-        String[] sentences = pageText.split("[.!?]");
-        
-        questions.append("Questions/Prompts Found:\n");
-        for (String sentence : sentences) {
-            sentence = sentence.trim();
-            if (sentence.contains("?") || 
-                sentence.toLowerCase().startsWith("what") ||
-                sentence.toLowerCase().startsWith("how") ||
-                sentence.toLowerCase().startsWith("why") ||
-                sentence.toLowerCase().startsWith("when") ||
-                sentence.toLowerCase().startsWith("where") ||
-                sentence.toLowerCase().contains("answer") ||
-                sentence.toLowerCase().contains("question")) {
-                questions.append("Q: ").append(sentence).append("\n");
-            }
-        }
-        
-        // Extract form labels as questions
-        Elements labels = doc.select("label");
-        if (!labels.isEmpty()) {
-            questions.append("\nForm Questions/Labels:\n");
-            for (Element label : labels) {
-                String labelText = label.text().trim();
-                if (!labelText.isEmpty()) {
-                    questions.append("- ").append(labelText).append("\n");
-                }
-            }
-        }
-        
-        return questions.toString();
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
     }
 }
@@ -0,0 +1,65 @@
+package com.aiscanner.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket rate limit. Callers reserve a token and are told how long to wait for it,
+ * so the bucket itself never blocks.
+ */
+class TokenBucket {
+    
+    private final double tokensPerNano;
+    private final double capacity;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private double tokens;
+    private long lastRefillNanos;
+    
+    TokenBucket(double ratePerSecond, int burst) {
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+    
+    /**
+     * Reserves one token if it becomes available within {@code maxWaitNanos}.
+     *
+     * @return nanoseconds to wait before using the token, or -1 if none was reserved
+     */
+    long reserve(long maxWaitNanos) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            long waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            tokens -= 1; // Goes negative: later callers queue up behind this reservation
+            return waitNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gives back a token reserved with {@link #reserve} that was never used, so a call
+     * refused for another reason does not count against the rate.
+     */
+    void refund() {
+        lock.lock();
+        try {
+            tokens = Math.min(capacity, tokens + 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
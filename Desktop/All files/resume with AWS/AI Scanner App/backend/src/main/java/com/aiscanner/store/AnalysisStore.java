@@ -0,0 +1,453 @@
+package com.aiscanner.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable store for completed page analyses and the validators of the fetch behind them, so a
+ * restarted backend can serve pages it analyzed before without touching the network.
+ *
+ * <p>Analyses are appended to fixed-size, memory-mapped segment files. Each record is
+ * {@code [int payloadLength][int crc32][long writtenAt][int keyLength][key][json value]},
+ * where the CRC covers everything after itself. An in-memory index maps each key to the
+ * location of its latest record. On startup every segment is scanned in order; scanning a
+ * segment stops at the first zero length or checksum mismatch, which discards a record torn
+ * by a crash. Once enough of the sealed segments is superseded or expired, all live records
+ * are copied forward into fresh segments and every older file is deleted.
+ *
+ * <p>Reads share a read lock and never wait for a flush. Writers append under the write lock
+ * and return without syncing. A single flusher thread group-commits the newly written range of
+ * each segment every {@code scanner.store.flush.interval.ms}, so a machine crash loses at most
+ * that much of the cache and no scan waits on the disk.
+ */
+@Component
+@Slf4j
+public class AnalysisStore {
+    
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8; // payload length + crc32
+    private static final int PAYLOAD_PREFIX_BYTES = 12; // writtenAt + key length
+    
+    @Value("${scanner.store.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${scanner.store.dir:./data/analysis-store}")
+    private String directory;
+    
+    @Value("${scanner.store.segment.bytes:67108864}")
+    private int segmentBytes;
+    
+    @Value("${scanner.store.ttl.hours:24}")
+    private long ttlHours;
+    
+    @Value("${scanner.store.compaction.garbage.ratio:0.5}")
+    private double compactionGarbageRatio;
+    
+    @Value("${scanner.store.flush.interval.ms:1000}")
+    private long flushIntervalMs;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    // Guards segments and the active segment; a lock rather than a monitor so a writer never
+    // pins a virtual thread's carrier
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Path dir;
+    private Segment active;
+    private long totalBytes;
+    private ScheduledExecutorService flusher;
+    
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            log.info("Analysis store disabled");
+            return;
+        }
+        
+        dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(path -> segmentId(path) >= 0).sorted().toList();
+        }
+        for (Path file : files) {
+            Segment segment = Segment.open(file, segmentId(file), Math.max(segmentBytes, (int) Files.size(file)));
+            segments.put(segment.id, segment);
+            recover(segment);
+        }
+        
+        active = segments.isEmpty() ? rollSegment() : segments.lastEntry().getValue();
+        
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("analysis-store-flush-");
+        threadFactory.setDaemon(true);
+        flusher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        
+        Gauge.builder("scanner.store.entries", index, Map::size)
+                .description("Analyses currently retrievable from the on-disk store")
+                .register(meterRegistry);
+        Gauge.builder("scanner.store.bytes", this, store -> store.totalBytes)
+                .description("Bytes of records held in the on-disk store, including superseded ones")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        
+        log.info("Analysis store opened at {} with {} entries in {} segments", dir.toAbsolutePath(), index.size(), segments.size());
+    }
+    
+    @PreDestroy
+    void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.forceWritten();
+                segment.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * @return the latest unexpired analysis stored under {@code key}, with the time it was written
+     */
+    public Optional<StoredAnalysis> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        
+        Location location = index.get(key);
+        if (location == null || isExpired(location.writtenAt)) {
+            return Optional.empty();
+        }
+        
+        try {
+            byte[] value;
+            lock.readLock().lock();
+            try {
+                Segment segment = segments.get(location.segmentId);
+                if (segment == null) {
+                    return Optional.empty();
+                }
+                value = segment.read(location.valueOffset, location.valueLength);
+            } finally {
+                lock.readLock().unlock();
+            }
+            StoredAnalysis stored = objectMapper.readValue(value, StoredAnalysis.class);
+            stored.setWrittenAt(location.writtenAt);
+            return stored.getAnalysis() != null ? Optional.of(stored) : Optional.empty();
+        } catch (IOException e) {
+            log.warn("Could not read stored analysis for {}: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Stores {@code analysis} as the latest for {@code key}. Storing the same analysis again
+     * renews its age, which is how a refresh that found the page unchanged keeps it from expiring.
+     */
+    public void put(String key, StoredAnalysis analysis) {
+        if (!enabled) {
+            return;
+        }
+        
+        try {
+            byte[] value = objectMapper.writeValueAsBytes(analysis);
+            lock.writeLock().lock();
+            try {
+                append(key, value, System.currentTimeMillis());
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            log.warn("Could not store analysis for {}: {}", key, e.getMessage());
+        }
+    }
+    
+    private void append(String key, byte[] value, long writtenAt) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int payloadLength = PAYLOAD_PREFIX_BYTES + keyBytes.length + value.length;
+        int recordLength = HEADER_BYTES + payloadLength;
+        if (recordLength > segmentBytes) {
+            log.warn("Analysis for {} is {} bytes, larger than a store segment; not storing it", key, recordLength);
+            return;
+        }
+        
+        if (active.remaining() < recordLength) {
+            active = rollSegment(); // The flusher still syncs the tail of the sealed segment
+        }
+        
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        payload.putLong(writtenAt).putInt(keyBytes.length).put(keyBytes).put(value);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        
+        int offset = active.writePosition;
+        // Header last; on recovery the CRC rejects a record whose payload never reached the disk
+        active.buffer.put(offset + HEADER_BYTES, payload.array());
+        active.buffer.putInt(offset + 4, (int) crc.getValue());
+        active.buffer.putInt(offset, payloadLength);
+        active.writePosition += recordLength;
+        totalBytes += recordLength;
+        
+        Location location = new Location(active.id, recordLength,
+                offset + HEADER_BYTES + PAYLOAD_PREFIX_BYTES + keyBytes.length, value.length, writtenAt);
+        index.merge(key, location, (previous, current) -> current.writtenAt >= previous.writtenAt ? current : previous);
+    }
+    
+    private void recover(Segment segment) {
+        int position = 0;
+        while (position + HEADER_BYTES <= segment.capacity) {
+            int payloadLength = segment.buffer.getInt(position);
+            if (payloadLength < PAYLOAD_PREFIX_BYTES || position + HEADER_BYTES + payloadLength > segment.capacity) {
+                break;
+            }
+            
+            byte[] payload = new byte[payloadLength];
+            segment.buffer.get(position + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.buffer.getInt(position + 4)) {
+                log.warn("Discarding torn record at offset {} of {}", position, segment.file.getFileName());
+                break;
+            }
+            
+            ByteBuffer reader = ByteBuffer.wrap(payload);
+            long writtenAt = reader.getLong();
+            int keyLength = reader.getInt();
+            String key = new String(payload, PAYLOAD_PREFIX_BYTES, keyLength, StandardCharsets.UTF_8);
+            int recordLength = HEADER_BYTES + payloadLength;
+            Location location = new Location(segment.id, recordLength,
+                    position + HEADER_BYTES + PAYLOAD_PREFIX_BYTES + keyLength, payloadLength - PAYLOAD_PREFIX_BYTES - keyLength, writtenAt);
+            index.merge(key, location, (previous, current) -> current.writtenAt >= previous.writtenAt ? current : previous);
+            
+            position += recordLength;
+            totalBytes += recordLength;
+        }
+        
+        segment.writePosition = position;
+        segment.flushedPosition = position;
+        // Zero whatever follows the last valid record so a later append cannot be followed by stale bytes
+        for (int i = position; i < Math.min(segment.capacity, position + HEADER_BYTES); i++) {
+            segment.buffer.put(i, (byte) 0);
+        }
+    }
+    
+    private void compactIfNeeded() throws IOException {
+        if (segments.size() < 2) {
+            return;
+        }
+        
+        long sealedBytes = 0;
+        long liveSealedBytes = 0;
+        for (Segment segment : segments.headMap(active.id).values()) {
+            sealedBytes += segment.writePosition;
+        }
+        for (Location location : index.values()) {
+            if (location.segmentId != active.id && !isExpired(location.writtenAt)) {
+                liveSealedBytes += location.recordLength;
+            }
+        }
+        if (sealedBytes == 0 || (sealedBytes - liveSealedBytes) < sealedBytes * compactionGarbageRatio) {
+            return;
+        }
+        
+        log.info("Compacting analysis store: {} of {} sealed bytes are live", liveSealedBytes, sealedBytes);
+        // Copy into fresh segments: appends may roll more of them, and everything written before
+        // the first one, the current active segment included, is then superseded and deleted
+        List<Segment> compacted = new ArrayList<>(segments.values());
+        active = rollSegment();
+        long firstCopyId = active.id;
+        
+        Iterator<Map.Entry<String, Location>> entries = index.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Location> entry = entries.next();
+            Location location = entry.getValue();
+            if (location.segmentId >= firstCopyId) {
+                continue;
+            }
+            if (isExpired(location.writtenAt)) {
+                entries.remove();
+                continue;
+            }
+            byte[] value = segments.get(location.segmentId).read(location.valueOffset, location.valueLength);
+            append(entry.getKey(), value, location.writtenAt);
+        }
+        
+        for (Segment segment : compacted) {
+            segments.remove(segment.id);
+            totalBytes -= segment.writePosition;
+            segment.close();
+            try {
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                // Still-mapped files cannot be deleted on some platforms; their records are superseded anyway
+                log.warn("Could not delete compacted segment {}: {}", segment.file.getFileName(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Group commit: syncs whatever was appended to each segment since the last flush. Runs on
+     * the flusher thread only, outside the lock, so neither readers nor writers wait for it.
+     */
+    private void flush() {
+        List<Segment> dirty = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                if (segment.flushedPosition < segment.writePosition) {
+                    dirty.add(segment);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Segment segment : dirty) {
+            try {
+                segment.forceWritten();
+            } catch (RuntimeException e) {
+                // A segment compacted away meanwhile no longer needs its records on disk
+                log.debug("Could not flush segment {}: {}", segment.file.getFileName(), e.getMessage());
+            }
+        }
+    }
+    
+    private Segment rollSegment() throws IOException {
+        long id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Segment segment = Segment.open(dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)), id, segmentBytes);
+        segments.put(id, segment);
+        return segment;
+    }
+    
+    private boolean isExpired(long writtenAt) {
+        return System.currentTimeMillis() - writtenAt > Duration.ofHours(ttlHours).toMillis();
+    }
+    
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    private static final class Location {
+        private final long segmentId;
+        private final int recordLength;
+        private final int valueOffset;
+        private final int valueLength;
+        private final long writtenAt;
+        
+        private Location(long segmentId, int recordLength, int valueOffset, int valueLength, long writtenAt) {
+            this.segmentId = segmentId;
+            this.recordLength = recordLength;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.writtenAt = writtenAt;
+        }
+    }
+    
+    private static final class Segment {
+        private final Path file;
+        private final long id;
+        private final int capacity;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private volatile int writePosition; // Advanced under the write lock, read by the flusher
+        private int flushedPosition; // Only touched by the flusher, and by close() once it has stopped
+        
+        private Segment(Path file, long id, int capacity, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.id = id;
+            this.capacity = capacity;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+        
+        static Segment open(Path file, long id, int capacity) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new Segment(file, id, capacity, channel, buffer);
+        }
+        
+        int remaining() {
+            return capacity - writePosition;
+        }
+        
+        byte[] read(int offset, int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            return bytes;
+        }
+        
+        /**
+         * Syncs only the range written since the last call instead of the whole mapping.
+         */
+        void forceWritten() {
+            int end = writePosition;
+            if (end > flushedPosition) {
+                buffer.force(flushedPosition, end - flushedPosition);
+                flushedPosition = end;
+            }
+        }
+        
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close segment {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+    }
+}
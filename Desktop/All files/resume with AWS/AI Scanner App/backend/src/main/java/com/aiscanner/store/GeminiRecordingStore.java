@@ -0,0 +1,241 @@
+package com.aiscanner.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Records Gemini answers during a real session and replays them later, so performance runs of
+ * the full analysis and chat paths are repeatable and need neither network nor quota.
+ *
+ * <p>The recording is a single append-only file: an 8-byte header ({@code GMRC} and a format
+ * version) followed by records of {@code [int payloadLength][int crc32][32-byte prompt hash]
+ * [int latencyMillis][utf-8 answer]}, where the CRC covers the payload. The prompt hash is the
+ * same SHA-256 the response cache keys on, so a prompt only replays an answer given to exactly
+ * the same request. The first answer recorded for a prompt wins; delete the file to re-record.
+ * On open the file is scanned up to the first torn record, which is cut off.
+ */
+@Component
+@Slf4j
+public class GeminiRecordingStore {
+    
+    public enum Mode { OFF, RECORD, REPLAY }
+    
+    private static final int MAGIC = 0x474D5243; // "GMRC"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 8; // magic + version
+    private static final int RECORD_HEADER_BYTES = 8; // payload length + crc32
+    private static final int HASH_BYTES = 32;
+    private static final int PAYLOAD_PREFIX_BYTES = HASH_BYTES + 4; // prompt hash + latency
+    
+    @Value("${gemini.recording.mode:off}")
+    private String modeName;
+    
+    @Value("${gemini.recording.file:./data/gemini-recording.bin}")
+    private String file;
+    
+    // "recorded" waits as long as the original call took, "zero" answers immediately
+    @Value("${gemini.recording.replay.latency:recorded}")
+    private String replayLatency;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<String, Recorded> recordings = new ConcurrentHashMap<>();
+    // Guards the channel; a lock rather than a monitor so recording never pins a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private Mode mode = Mode.OFF;
+    private boolean replayWithLatency;
+    private FileChannel channel;
+    private Counter replayHits;
+    private Counter replayMisses;
+    
+    @PostConstruct
+    void open() throws IOException {
+        mode = Mode.valueOf(modeName.trim().toUpperCase(Locale.ROOT));
+        if (mode == Mode.OFF) {
+            return;
+        }
+        replayWithLatency = !"zero".equalsIgnoreCase(replayLatency.trim());
+        
+        Path path = Paths.get(file).toAbsolutePath();
+        if (mode == Mode.REPLAY) {
+            if (!Files.exists(path)) {
+                throw new IllegalStateException("Gemini replay mode needs a recording, but " + path + " does not exist");
+            }
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            load(path);
+        } else {
+            Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // New answers go right after the last intact record, overwriting a torn one
+            long end = load(path);
+            channel.truncate(end);
+            channel.position(end);
+        }
+        
+        Gauge.builder("gemini.recording.entries", recordings, Map::size)
+                .description("Prompts with a recorded Gemini answer")
+                .register(meterRegistry);
+        replayHits = Counter.builder("gemini.recording.replayed")
+                .description("Gemini calls answered from the recording")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        replayMisses = Counter.builder("gemini.recording.replayed")
+                .description("Gemini calls answered from the recording")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        
+        log.info("Gemini recording opened in {} mode at {} with {} answers", mode, path, recordings.size());
+    }
+    
+    @PreDestroy
+    void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (mode == Mode.RECORD) {
+                channel.force(false);
+            }
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public boolean isReplaying() {
+        return mode == Mode.REPLAY;
+    }
+    
+    /**
+     * @return the recorded answer for the prompt hash, or null when nothing was recorded for it
+     */
+    public Recorded replay(String promptHash) {
+        Recorded recorded = recordings.get(promptHash);
+        (recorded != null ? replayHits : replayMisses).increment();
+        return recorded;
+    }
+    
+    /** How long a replayed call waits before answering, according to the configured latency mode. */
+    public Duration replayDelay(Recorded recorded) {
+        return replayWithLatency ? Duration.ofMillis(recorded.latencyMillis) : Duration.ZERO;
+    }
+    
+    public void record(String promptHash, long latencyNanos, String answer) {
+        if (mode != Mode.RECORD || answer == null || answer.isBlank()) {
+            return;
+        }
+        Recorded recorded = new Recorded(answer, (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(latencyNanos)));
+        if (recordings.putIfAbsent(promptHash, recorded) != null) {
+            return;
+        }
+        
+        byte[] answerBytes = answer.getBytes(StandardCharsets.UTF_8);
+        int payloadLength = PAYLOAD_PREFIX_BYTES + answerBytes.length;
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        payload.put(HexFormat.of().parseHex(promptHash)).putInt(recorded.latencyMillis).put(answerBytes);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadLength);
+        record.putInt(payloadLength).putInt((int) crc.getValue()).put(payload.array()).flip();
+        lock.lock();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            log.warn("Could not record Gemini answer {}: {}", promptHash, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Reads every intact record into memory and returns the offset just past the last one,
+     * writing the file header first when a file opened for recording is new.
+     */
+    private long load(Path path) throws IOException {
+        long size = channel.size();
+        if (size < FILE_HEADER_BYTES && mode == Mode.RECORD) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+            return FILE_HEADER_BYTES;
+        }
+        
+        ByteBuffer contents = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        while (contents.hasRemaining() && channel.read(contents, contents.position()) > 0) {
+            // Keep reading until the buffer is full
+        }
+        contents.flip();
+        if (contents.remaining() < FILE_HEADER_BYTES || contents.getInt() != MAGIC || contents.getInt() != VERSION) {
+            throw new IllegalStateException(path + " is not a Gemini recording");
+        }
+        
+        while (contents.remaining() >= RECORD_HEADER_BYTES) {
+            int start = contents.position();
+            int payloadLength = contents.getInt();
+            int expectedCrc = contents.getInt();
+            if (payloadLength < PAYLOAD_PREFIX_BYTES || payloadLength > contents.remaining()) {
+                log.warn("Discarding torn Gemini recording at offset {}", start);
+                return start;
+            }
+            byte[] payload = new byte[payloadLength];
+            contents.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                log.warn("Discarding torn Gemini recording at offset {}", start);
+                return start;
+            }
+            
+            ByteBuffer reader = ByteBuffer.wrap(payload);
+            byte[] hash = new byte[HASH_BYTES];
+            reader.get(hash);
+            int latencyMillis = reader.getInt();
+            String answer = new String(payload, PAYLOAD_PREFIX_BYTES, payloadLength - PAYLOAD_PREFIX_BYTES, StandardCharsets.UTF_8);
+            recordings.putIfAbsent(HexFormat.of().formatHex(hash), new Recorded(answer, latencyMillis));
+        }
+        return contents.position();
+    }
+    
+    public static final class Recorded {
+        private final String answer;
+        private final int latencyMillis;
+        
+        private Recorded(String answer, int latencyMillis) {
+            this.answer = answer;
+            this.latencyMillis = latencyMillis;
+        }
+        
+        public String getAnswer() {
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.aiscanner.store;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A stored analysis together with the validators of the fetch it was built from, so the first
+ * refresh after a restart can still be a conditional request.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredAnalysis {
+    private PageAnalysisResponse analysis;
+    private String etag;
+    private String lastModified;
+    private String contentHash; // SHA-256 of the body bytes, hex encoded
+    @JsonIgnore
+    private long writtenAt; // Taken from the record header when read back
+}
@@ -0,0 +1,90 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+    
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+    
+    @Test
+    void refusesOverTheLimitAndAdmitsWhenASlotFrees() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 0.5, 2.0);
+        assertTrue(limit.acquire(0));
+        assertTrue(limit.acquire(0));
+        assertFalse(limit.acquire(TimeUnit.MILLISECONDS.toNanos(10)));
+        
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limit.acquire(TimeUnit.SECONDS.toNanos(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        limit.onIgnored();
+        
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(2, limit.getInFlight());
+    }
+    
+    @Test
+    void growsWhileBusyCallsStayNearTheBaseline() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 4, 0.5, 2.0);
+        for (int i = 0; i < 200; i++) {
+            fill(limit);
+            for (int j = limit.getInFlight(); j > 0; j--) {
+                limit.onSuccess(FAST);
+            }
+        }
+        assertEquals(4, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+    
+    @Test
+    void doesNotGrowWhileMostlyIdle() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 1, 20, 0.5, 2.0);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(limit.acquire(0));
+            limit.onSuccess(FAST);
+        }
+        assertEquals(8, limit.getLimit());
+    }
+    
+    @Test
+    void shrinksGentlyWhenLatencyRisesAboveTheBaseline() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 10, 0.5, 2.0);
+        assertTrue(limit.acquire(0));
+        limit.onSuccess(FAST);
+        
+        assertTrue(limit.acquire(0));
+        limit.onSuccess(SLOW);
+        assertEquals(9, limit.getLimit());
+    }
+    
+    @Test
+    void overloadCutsTheLimitButNotBelowTheMinimum() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 3, 10, 0.5, 2.0);
+        assertTrue(limit.acquire(0));
+        limit.onOverload();
+        assertEquals(4, limit.getLimit());
+        
+        assertTrue(limit.acquire(0));
+        limit.onOverload();
+        assertEquals(3, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+    
+    private static void fill(AdaptiveConcurrencyLimit limit) throws InterruptedException {
+        while (limit.acquire(0)) {
+            // Take every free slot
+        }
+    }
+}
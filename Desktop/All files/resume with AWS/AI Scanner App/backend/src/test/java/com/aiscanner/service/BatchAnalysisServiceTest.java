@@ -0,0 +1,68 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BatchAnalysisServiceTest {
+    
+    @Test
+    void missingUrlsYieldErrorLinesWithoutFailingTheBatch() {
+        BatchAnalysisService batch = service(url -> url.contains("broken")
+                ? CompletableFuture.failedFuture(new IOException("HTTP 500"))
+                : CompletableFuture.completedFuture(PageAnalysisResponse.builder().url(url).title("Title of " + url).build()));
+        
+        List<PageAnalysisResponse> results = batch.analyzeAll(Arrays.asList(
+                        "https://a.example/form", null, "  ", "https://b.example/broken", "https://a.example/other"))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        
+        assertEquals(5, results.size());
+        Map<String, String> errors = results.stream()
+                .filter(response -> response.getError() != null)
+                .collect(Collectors.toMap(response -> String.valueOf(response.getUrl()), PageAnalysisResponse::getError));
+        assertEquals(Map.of(
+                "null", "URL is required",
+                "  ", "URL is required",
+                "https://b.example/broken", "Failed to analyze page: HTTP 500"), errors);
+        results.stream()
+                .filter(response -> response.getUrl() != null && response.getUrl().startsWith("https://a.example"))
+                .forEach(response -> {
+                    assertNull(response.getError());
+                    assertEquals("Title of " + response.getUrl(), response.getTitle());
+                });
+    }
+    
+    private static BatchAnalysisService service(Function<String, CompletableFuture<PageAnalysisResponse>> analyses) {
+        ClusterRouter router = new ClusterRouter();
+        ReflectionTestUtils.setField(router, "enabled", false);
+        ReflectionTestUtils.setField(router, "meterRegistry", new SimpleMeterRegistry());
+        router.init();
+        
+        BatchAnalysisService batch = new BatchAnalysisService();
+        ReflectionTestUtils.setField(batch, "scannerService", new ScannerService() {
+            @Override
+            public CompletableFuture<PageAnalysisResponse> analyzePage(String url) {
+                return analyses.apply(url);
+            }
+        });
+        ReflectionTestUtils.setField(batch, "clusterRouter", router);
+        ReflectionTestUtils.setField(batch, "maxConcurrency", 4);
+        ReflectionTestUtils.setField(batch, "perHostConcurrency", 2);
+        batch.initLimiters();
+        return batch;
+    }
+}
@@ -0,0 +1,124 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CappedBodySubscriberTest {
+    
+    private static final byte[] BODY = "<html><body><form><input name=email></form></body></html>".getBytes(StandardCharsets.UTF_8);
+    
+    @Test
+    void bodyUnderOrAtTheCapIsReadWhole() throws Exception {
+        for (int max : new int[]{BODY.length, BODY.length + 1, 1 << 20}) {
+            for (int split = 0; split <= BODY.length; split++) {
+                Subscription subscription = new Subscription();
+                CappedBodySubscriber.Body body = deliver(new CappedBodySubscriber(max, -1), subscription, split, false);
+                
+                assertArrayEquals(BODY, body.bytes, "max " + max + ", split at " + split);
+                assertFalse(body.truncated);
+                assertFalse(subscription.cancelled);
+            }
+        }
+    }
+    
+    @Test
+    void bodyOverTheCapIsCutAtTheCapAndTheTransferCancelled() throws Exception {
+        for (int max = 0; max < BODY.length; max++) {
+            for (int split = 0; split <= BODY.length; split++) {
+                for (boolean direct : new boolean[]{false, true}) {
+                    Subscription subscription = new Subscription();
+                    CappedBodySubscriber.Body body = deliver(new CappedBodySubscriber(max, BODY.length), subscription, split, direct);
+                    
+                    String at = "max " + max + ", split at " + split + (direct ? ", direct" : "");
+                    assertArrayEquals(Arrays.copyOf(BODY, max), body.bytes, at);
+                    assertTrue(body.truncated, at);
+                    assertTrue(subscription.cancelled, at);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void buffersStillInFlightAfterTheCapAreIgnored() throws Exception {
+        CappedBodySubscriber subscriber = new CappedBodySubscriber(4, -1);
+        subscriber.onSubscribe(new Subscription());
+        subscriber.onNext(List.of(ByteBuffer.wrap(BODY, 0, 10)));
+        subscriber.onNext(List.of(ByteBuffer.wrap(BODY, 10, 10)));
+        subscriber.onComplete();
+        
+        CappedBodySubscriber.Body body = subscriber.getBody().toCompletableFuture().get();
+        assertEquals("<htm", new String(body.bytes, StandardCharsets.UTF_8));
+        assertTrue(body.truncated);
+    }
+    
+    @Test
+    void transferErrorFailsTheBody() {
+        CappedBodySubscriber subscriber = new CappedBodySubscriber(1024, -1);
+        subscriber.onSubscribe(new Subscription());
+        subscriber.onNext(List.of(ByteBuffer.wrap(BODY, 0, 10)));
+        subscriber.onError(new IOException("connection reset"));
+        
+        CompletableFuture<CappedBodySubscriber.Body> body = subscriber.getBody().toCompletableFuture();
+        ExecutionException failure = assertThrows(ExecutionException.class, body::get);
+        assertEquals("connection reset", failure.getCause().getMessage());
+    }
+    
+    /**
+     * Delivers {@link #BODY} as two lists of buffers split at {@code split}, the second list
+     * itself split in two so a cap can fall inside any buffer of a multi-buffer batch.
+     */
+    private static CappedBodySubscriber.Body deliver(CappedBodySubscriber subscriber, Subscription subscription,
+                                                     int split, boolean direct) throws Exception {
+        subscriber.onSubscribe(subscription);
+        assertEquals(Long.MAX_VALUE, subscription.requested);
+        
+        int middle = split + (BODY.length - split) / 2;
+        subscriber.onNext(List.of(buffer(0, split, direct)));
+        if (!subscription.cancelled) {
+            subscriber.onNext(List.of(buffer(split, middle, direct), buffer(middle, BODY.length, direct)));
+        }
+        if (!subscription.cancelled) {
+            subscriber.onComplete();
+        }
+        return subscriber.getBody().toCompletableFuture().get();
+    }
+    
+    private static ByteBuffer buffer(int from, int to, boolean direct) {
+        if (!direct) {
+            // A slice, so the backing array offset is not zero
+            return ByteBuffer.wrap(BODY).position(from).limit(to).slice();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(to - from);
+        buffer.put(BODY, from, to - from).flip();
+        return buffer;
+    }
+    
+    private static final class Subscription implements Flow.Subscription {
+        private long requested;
+        private boolean cancelled;
+        
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+        
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
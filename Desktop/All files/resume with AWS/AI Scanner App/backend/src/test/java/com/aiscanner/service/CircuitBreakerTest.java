@@ -0,0 +1,132 @@
+package com.aiscanner.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    
+    private static final long OPEN_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    @Test
+    void staysClosedUntilMinCallsAreRecorded() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 5, 0.5, OPEN_NANOS, 2);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryPass());
+            breaker.onResult(true);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        
+        breaker.onResult(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryPass());
+    }
+    
+    @Test
+    void opensOnFailureRateOverTheSlidingWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, OPEN_NANOS, 1);
+        breaker.onResult(true);
+        breaker.onResult(false);
+        breaker.onResult(false);
+        breaker.onResult(false);
+        // The failure slides out of the window, so one more failure is still under the threshold
+        breaker.onResult(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        
+        breaker.onResult(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+    
+    @Test
+    void halfOpenAdmitsTrialCallsAndClosesWhenAllSucceed() throws InterruptedException {
+        CircuitBreaker breaker = opened(2);
+        assertFalse(breaker.tryPass());
+        TimeUnit.NANOSECONDS.sleep(OPEN_NANOS * 2);
+        
+        assertTrue(breaker.tryPass());
+        assertTrue(breaker.tryPass());
+        assertFalse(breaker.tryPass());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        
+        breaker.onResult(false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        
+        // Closing starts a fresh window rather than reopening on the old failures
+        breaker.onResult(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+    
+    @Test
+    void failedTrialCallReopens() throws InterruptedException {
+        CircuitBreaker breaker = opened(2);
+        TimeUnit.NANOSECONDS.sleep(OPEN_NANOS * 2);
+        
+        assertTrue(breaker.tryPass());
+        breaker.onResult(true);
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryPass());
+    }
+    
+    @Test
+    void ignoredTrialCallGivesItsPassBack() throws InterruptedException {
+        CircuitBreaker breaker = opened(1);
+        TimeUnit.NANOSECONDS.sleep(OPEN_NANOS * 2);
+        
+        assertTrue(breaker.tryPass());
+        assertFalse(breaker.tryPass());
+        breaker.onIgnored();
+        
+        assertTrue(breaker.tryPass());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+    
+    @Test
+    void ignoredGuardReleasesDoNotCloseAHalfOpenBreaker() {
+        GeminiCallGuard guard = new GeminiCallGuard();
+        ReflectionTestUtils.setField(guard, "enabled", true);
+        ReflectionTestUtils.setField(guard, "initialConcurrency", 8);
+        ReflectionTestUtils.setField(guard, "minConcurrency", 1);
+        ReflectionTestUtils.setField(guard, "maxConcurrency", 8);
+        ReflectionTestUtils.setField(guard, "backoffRatio", 0.5);
+        ReflectionTestUtils.setField(guard, "latencyTolerance", 2.0);
+        ReflectionTestUtils.setField(guard, "breakerWindowSize", 4);
+        ReflectionTestUtils.setField(guard, "breakerMinCalls", 2);
+        ReflectionTestUtils.setField(guard, "breakerFailureRate", 0.5);
+        ReflectionTestUtils.setField(guard, "breakerOpenSeconds", 0L); // Probe again straight away
+        ReflectionTestUtils.setField(guard, "breakerHalfOpenCalls", 2);
+        ReflectionTestUtils.setField(guard, "meterRegistry", new SimpleMeterRegistry());
+        guard.initGuard();
+        CircuitBreaker breaker = (CircuitBreaker) ReflectionTestUtils.getField(guard, "circuitBreaker");
+        
+        guard.tryAcquire().release(GeminiCallGuard.CallResult.FAILED);
+        guard.tryAcquire().release(GeminiCallGuard.CallResult.FAILED);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        
+        // Bad requests and streamed answers say nothing about upstream health
+        for (int i = 0; i < 5; i++) {
+            guard.tryAcquire().release(GeminiCallGuard.CallResult.IGNORED);
+            assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        }
+        
+        guard.tryAcquire().release(GeminiCallGuard.CallResult.SUCCESS);
+        guard.tryAcquire().release(GeminiCallGuard.CallResult.SUCCESS);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+    
+    private static CircuitBreaker opened(int halfOpenCalls) {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, OPEN_NANOS, halfOpenCalls);
+        breaker.onResult(true);
+        breaker.onResult(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
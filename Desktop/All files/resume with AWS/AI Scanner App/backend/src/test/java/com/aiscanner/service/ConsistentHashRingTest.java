@@ -0,0 +1,86 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+    
+    private static final int VIRTUAL_NODES = 128;
+    private static final int KEYS = 20_000;
+    
+    @Test
+    void addingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing before = ConsistentHashRing.of(List.of("10.0.0.1:8054", "10.0.0.2:8054", "10.0.0.3:8054"), VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.of(List.of("10.0.0.1:8054", "10.0.0.2:8054", "10.0.0.3:8054", "10.0.0.4:8054"), VIRTUAL_NODES);
+        
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = key(i);
+            String owner = after.ownerOf(key);
+            if (!owner.equals(before.ownerOf(key))) {
+                assertEquals("10.0.0.4:8054", owner, key);
+                moved++;
+            }
+        }
+        // About a quarter of the keys move to the new node
+        double movedShare = (double) moved / KEYS;
+        assertTrue(movedShare > 0.18 && movedShare < 0.32, "moved share " + movedShare);
+    }
+    
+    @Test
+    void removingANodeOnlyMovesItsKeys() {
+        ConsistentHashRing before = ConsistentHashRing.of(List.of("a:1", "b:1", "c:1", "d:1"), VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.of(List.of("a:1", "b:1", "d:1"), VIRTUAL_NODES);
+        
+        for (int i = 0; i < KEYS; i++) {
+            String key = key(i);
+            String previousOwner = before.ownerOf(key);
+            if (!previousOwner.equals("c:1")) {
+                assertEquals(previousOwner, after.ownerOf(key), key);
+            } else {
+                assertTrue(after.nodes().contains(after.ownerOf(key)));
+            }
+        }
+    }
+    
+    @Test
+    void keysAreSpreadEvenlyOverNodes() {
+        List<String> nodes = List.of("a:1", "b:1", "c:1", "d:1", "e:1");
+        ConsistentHashRing ring = ConsistentHashRing.of(nodes, VIRTUAL_NODES);
+        
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owned.merge(ring.ownerOf(key(i)), 1, Integer::sum);
+        }
+        for (String node : nodes) {
+            double share = owned.getOrDefault(node, 0) / (double) KEYS;
+            assertTrue(share > 0.12 && share < 0.28, node + " owns " + share);
+        }
+    }
+    
+    @Test
+    void everyReplicaBuildsTheSameRingWhateverTheDiscoveryOrder() {
+        ConsistentHashRing one = ConsistentHashRing.of(List.of("a:1", "b:1", "c:1"), VIRTUAL_NODES);
+        ConsistentHashRing other = ConsistentHashRing.of(List.of("c:1", "a:1", "b:1"), VIRTUAL_NODES);
+        
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(one.ownerOf(key(i)), other.ownerOf(key(i)));
+        }
+    }
+    
+    @Test
+    void emptyRingHasNoOwner() {
+        assertNull(ConsistentHashRing.of(List.of(), VIRTUAL_NODES).ownerOf("https://example.com/"));
+    }
+    
+    private static String key(int i) {
+        return "https://site" + (i % 97) + ".example.com/page/" + i;
+    }
+}
@@ -0,0 +1,116 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FieldDiffTest {
+    
+    @Test
+    void unchangedFieldsCarryTheirGeminiExplanations() {
+        List<PageAnalysisResponse.FieldInfo> previous = List.of(
+                explained("email", "email", "Email", "Your email"),
+                explained("name", "text", "Full name", null));
+        List<PageAnalysisResponse.FieldInfo> current = List.of(
+                pending("name", "text", "Full name", null),
+                pending("email", "email", "Email", "Your email"));
+        
+        FieldDiff diff = FieldDiff.between(previous, current);
+        
+        assertEquals("Explains name", diff.carriedExplanation(0));
+        assertEquals("Explains email", diff.carriedExplanation(1));
+        assertEquals(List.of(), diff.fieldsToExplain());
+        assertEquals(0.0, diff.changeRatio());
+    }
+    
+    @Test
+    void changedAndAddedFieldsAreExplainedAgain() {
+        List<PageAnalysisResponse.FieldInfo> previous = List.of(
+                explained("email", "email", "Email", null),
+                explained("phone", "tel", "Phone", null),
+                explained("city", "text", "City", null));
+        List<PageAnalysisResponse.FieldInfo> current = List.of(
+                pending("email", "email", "Email", null),
+                pending("phone", "tel", "Mobile phone", null), // Label changed
+                pending("zip", "text", "ZIP code", null));
+        
+        FieldDiff diff = FieldDiff.between(previous, current);
+        
+        assertEquals("Explains email", diff.carriedExplanation(0));
+        assertEquals(List.of(1, 2), diff.fieldsToExplain());
+        // 2 of 3 current and 2 of 3 previous fields have no counterpart
+        assertEquals(4.0 / 6, diff.changeRatio(), 1e-9);
+    }
+    
+    @Test
+    void fallbackAndPendingExplanationsAreNotCarriedOver() {
+        PageAnalysisResponse.FieldInfo fallback = explained("email", "email", "Email", null);
+        fallback.setAiExplanation("AI analysis temporarily unavailable due to service issues.");
+        fallback.setAiGenerated(false);
+        List<PageAnalysisResponse.FieldInfo> previous = List.of(fallback, pending("name", "text", "Name", null));
+        List<PageAnalysisResponse.FieldInfo> current = List.of(
+                pending("email", "email", "Email", null),
+                pending("name", "text", "Name", null));
+        
+        FieldDiff diff = FieldDiff.between(previous, current);
+        
+        assertNull(diff.carriedExplanation(0));
+        assertNull(diff.carriedExplanation(1));
+        assertEquals(List.of(0, 1), diff.fieldsToExplain());
+        // Both fields matched, so the structure did not change even though both need explaining
+        assertEquals(0.0, diff.changeRatio());
+    }
+    
+    @Test
+    void repeatedKeysAreMatchedInDocumentOrder() {
+        PageAnalysisResponse.FieldInfo firstRadio = explained("plan", "radio", "Plan", null);
+        firstRadio.setAiExplanation("First radio");
+        PageAnalysisResponse.FieldInfo secondRadio = explained("plan", "radio", "Plan", null);
+        secondRadio.setAiExplanation("Second radio");
+        List<PageAnalysisResponse.FieldInfo> current = List.of(
+                pending("plan", "radio", "Plan", null),
+                pending("plan", "radio", "Plan", null),
+                pending("plan", "radio", "Plan", null));
+        
+        FieldDiff diff = FieldDiff.between(List.of(firstRadio, secondRadio), current);
+        
+        assertEquals("First radio", diff.carriedExplanation(0));
+        assertEquals("Second radio", diff.carriedExplanation(1));
+        assertEquals(List.of(2), diff.fieldsToExplain());
+        assertEquals(1.0 / 5, diff.changeRatio(), 1e-9);
+    }
+    
+    @Test
+    void noPreviousFieldsMeansEverythingChanged() {
+        FieldDiff diff = FieldDiff.between(null, List.of(pending("email", "email", "Email", null)));
+        
+        assertEquals(List.of(0), diff.fieldsToExplain());
+        assertEquals(1.0, diff.changeRatio());
+        assertEquals(0.0, FieldDiff.between(List.of(), List.of()).changeRatio());
+    }
+    
+    private static PageAnalysisResponse.FieldInfo explained(String name, String type, String label, String placeholder) {
+        return PageAnalysisResponse.FieldInfo.builder()
+                .name(name)
+                .type(type)
+                .label(label)
+                .placeholder(placeholder)
+                .aiExplanation("Explains " + name)
+                .aiGenerated(true)
+                .build();
+    }
+    
+    private static PageAnalysisResponse.FieldInfo pending(String name, String type, String label, String placeholder) {
+        return PageAnalysisResponse.FieldInfo.builder()
+                .name(name)
+                .type(type)
+                .label(label)
+                .placeholder(placeholder)
+                .aiExplanation("Analyzing with AI...")
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.aiscanner.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.NodeTraversor;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormOnlyPageParserTest {
+    
+    private static final String FORM = "<form action=\"/login\"><h2>Sign in</h2>"
+            + "<div class=\"row\"><label for=\"email\">Email</label><input id=\"email\" name=\"email\" required></div>"
+            + "<p>We never share your address.</p>"
+            + "<select name=\"lang\"><option>English</option></select><textarea name=\"note\"></textarea>"
+            + "<button type=\"submit\">Go</button></form>";
+    
+    private static final String HTML = "<html><head><title>Account</title><style>p { margin: 0 }</style>"
+            + "<script>window.__STATE__ = {\"html\": \"<form><input name=fake></form>\"};</script></head><body>"
+            + "<div id=\"intro\"><p>Alpha beta gamma delta</p><ul><li>epsilon</li><li>zeta</li></ul></div>"
+            + "<!-- <input name=\"commented-out\"> -->"
+            + "<noscript><input name=\"noscript-field\"></noscript>"
+            + FORM
+            + "<svg><text>icon</text></svg>"
+            + "<section><h3>Help</h3><p>Call us any time</p><script>track('help')</script></section>"
+            + "</body></html>";
+    
+    @Test
+    void keepsFormsAndHeadingsAndFlattensTheRest() {
+        Document doc = FormOnlyPageParser.parse(new StringReader(HTML), "https://bank.example/", 10_000);
+        
+        assertEquals("Account", doc.title());
+        assertTrue(doc.select("script, style, noscript, svg").isEmpty(), doc.html());
+        assertTrue(comments(doc).isEmpty(), doc.html());
+        assertEquals(List.of("email", "lang", "note"), names(doc));
+        
+        Element form = doc.selectFirst("form");
+        assertNotNull(form);
+        assertEquals(Jsoup.parse(FORM).selectFirst("form").outerHtml(), form.outerHtml());
+        
+        // Content outside forms survives as text only
+        assertTrue(doc.select("p, ul, li").stream().allMatch(element -> element.closest("form") != null), doc.html());
+        assertNotNull(doc.selectFirst("section > h3"));
+        String text = doc.body().text();
+        assertTrue(text.contains("Alpha beta gamma delta epsilon zeta"), text);
+        assertTrue(text.contains("Call us any time"), text);
+        assertFalse(text.contains("icon") || text.contains("track") || text.contains("__STATE__"), text);
+    }
+    
+    @Test
+    void sameDocumentWhenTheInputIsSplitAtEveryOffset() {
+        String expected = FormOnlyPageParser.parse(new StringReader(HTML), "https://bank.example/", 10_000).outerHtml();
+        for (int split = 0; split <= HTML.length(); split++) {
+            Document doc = FormOnlyPageParser.parse(new MarkupSkippingReaderTest.SplitReader(HTML, split), "https://bank.example/", 10_000);
+            assertEquals(expected, doc.outerHtml(), "split at " + split);
+        }
+        Document trickled = FormOnlyPageParser.parse(new MarkupSkippingReaderTest.SplitReader(HTML, 1, 1), "https://bank.example/", 10_000);
+        assertEquals(expected, trickled.outerHtml());
+    }
+    
+    @Test
+    void flattenedTextStopsAtTheBudgetButFormsAreKeptWhole() {
+        Document doc = FormOnlyPageParser.parse(new StringReader(HTML), "https://bank.example/", 10);
+        String text = doc.body().text();
+        assertTrue(text.startsWith("Alpha beta Sign in Email"), text);
+        assertFalse(text.contains("gamma") || text.contains("Call us"), text);
+        assertEquals(List.of("email", "lang", "note"), names(doc));
+        assertTrue(doc.selectFirst("form").text().contains("We never share your address."), text);
+        
+        Document none = FormOnlyPageParser.parse(new StringReader(HTML), "https://bank.example/", 0);
+        assertTrue(none.body().text().startsWith("Sign in Email"), none.body().text());
+        assertEquals("Help", none.selectFirst("section").text());
+    }
+    
+    private static List<String> names(Document doc) {
+        List<String> names = new ArrayList<>();
+        for (Element field : doc.select("input, select, textarea")) {
+            names.add(field.attr("name"));
+        }
+        return names;
+    }
+    
+    private static List<Comment> comments(Document doc) {
+        List<Comment> comments = new ArrayList<>();
+        NodeTraversor.traverse((node, depth) -> {
+            if (node instanceof Comment) {
+                comments.add((Comment) node);
+            }
+        }, doc);
+        return comments;
+    }
+}
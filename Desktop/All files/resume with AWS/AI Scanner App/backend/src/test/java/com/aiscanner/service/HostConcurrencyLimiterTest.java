@@ -0,0 +1,108 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostConcurrencyLimiterTest {
+    
+    @Test
+    void tasksOverTheCapWaitForASlotOnTheirHost() {
+        HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(2);
+        AtomicInteger started = new AtomicInteger();
+        List<Sinks.One<String>> running = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        
+        for (int i = 0; i < 3; i++) {
+            limiter.run("a.example", held(started, running)).subscribe(results::add);
+        }
+        limiter.run("b.example", () -> Mono.just("other host")).subscribe(results::add);
+        
+        assertEquals(2, started.get());
+        assertEquals(List.of("other host"), results);
+        
+        running.get(0).tryEmitValue("first");
+        assertEquals(3, started.get());
+        running.get(1).tryEmitValue("second");
+        running.get(2).tryEmitValue("third");
+        assertEquals(List.of("other host", "first", "second", "third"), results);
+        assertTrue(hosts(limiter).isEmpty());
+    }
+    
+    @Test
+    void taskCancelledWhileQueuedNeverStartsAndHandsItsSlotOn() {
+        HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1);
+        AtomicInteger started = new AtomicInteger();
+        List<Sinks.One<String>> running = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        
+        limiter.run("a.example", held(started, running)).subscribe(results::add);
+        Disposable cancelled = limiter.run("a.example", () -> {
+            started.incrementAndGet();
+            return Mono.just("cancelled");
+        }).subscribe(results::add);
+        limiter.run("a.example", held(started, running)).subscribe(results::add);
+        cancelled.dispose();
+        
+        running.get(0).tryEmitValue("first");
+        // The cancelled task's turn passed straight to the one queued behind it
+        assertEquals(2, started.get());
+        assertEquals(2, running.size());
+        running.get(1).tryEmitValue("third");
+        
+        assertEquals(List.of("first", "third"), results);
+        assertTrue(hosts(limiter).isEmpty());
+    }
+    
+    @Test
+    void runningTaskCancelledReleasesItsSlot() {
+        HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1);
+        Disposable stuck = limiter.run("a.example", () -> Mono.never()).subscribe();
+        List<String> results = new ArrayList<>();
+        limiter.run("a.example", () -> Mono.just("next")).subscribe(results::add);
+        assertEquals(List.of(), results);
+        
+        stuck.dispose();
+        
+        assertEquals(List.of("next"), results);
+        assertTrue(hosts(limiter).isEmpty());
+    }
+    
+    @Test
+    void failedTaskReleasesItsSlot() {
+        HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1);
+        String result = limiter.run("a.example", () -> Mono.<String>error(new IllegalStateException("boom")))
+                .onErrorReturn("failed")
+                .then(limiter.run("a.example", () -> Mono.just("next")))
+                .block(Duration.ofSeconds(5));
+        
+        assertEquals("next", result);
+        assertTrue(hosts(limiter).isEmpty());
+    }
+    
+    private static Supplier<Mono<String>> held(AtomicInteger started, List<Sinks.One<String>> running) {
+        return () -> {
+            started.incrementAndGet();
+            Sinks.One<String> sink = Sinks.one();
+            running.add(sink);
+            return sink.asMono();
+        };
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> hosts(HostConcurrencyLimiter limiter) {
+        return (Map<String, ?>) ReflectionTestUtils.getField(limiter, "hosts");
+    }
+}
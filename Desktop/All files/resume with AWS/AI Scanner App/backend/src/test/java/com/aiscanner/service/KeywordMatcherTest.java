@@ -0,0 +1,150 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks the matcher against the {@code toLowerCase().contains(keyword)} chains it replaced.
+ */
+class KeywordMatcherTest {
+    
+    private enum Topic { CONCEPT, GENERAL, LANGUAGE, HOW, WHAT }
+    
+    // Overlapping, nested and prefix-sharing keywords, as in the question heuristics
+    private static final Map<Topic, List<String>> KEYWORDS = new LinkedHashMap<>();
+    
+    static {
+        KEYWORDS.put(Topic.CONCEPT, List.of("what is", "explain"));
+        KEYWORDS.put(Topic.GENERAL, List.of("what is", "ai", "api", "java", "node.js", "how does", "data science"));
+        KEYWORDS.put(Topic.LANGUAGE, List.of("java", "javascript", "script", "python"));
+        KEYWORDS.put(Topic.HOW, List.of("how", "how to"));
+        KEYWORDS.put(Topic.WHAT, List.of("what"));
+    }
+    
+    private static final KeywordMatcher<Topic> MATCHER = build();
+    
+    @Test
+    void matchFindsTheSameCategoriesAsContainsChains() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            String text = randomText(random);
+            assertEquals(containsMatch(text), MATCHER.match(text), text);
+        }
+    }
+    
+    @Test
+    void firstAcrossTextsFollowsDeclarationOrderLikeElseIfChains() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            String title = randomText(random);
+            String body = randomText(random);
+            assertEquals(containsFirst(title, body), MATCHER.first(title, body), title + " | " + body);
+        }
+    }
+    
+    @Test
+    void keywordsNeverMatchAcrossTwoTexts() {
+        assertEquals(EnumSet.noneOf(Topic.class), MATCHER.match("ja", "va"));
+        assertEquals(EnumSet.of(Topic.GENERAL, Topic.LANGUAGE), MATCHER.match("ja", "JAVA"));
+    }
+    
+    @Test
+    void nullTextsAreSkipped() {
+        assertNull(MATCHER.first(null, null));
+        assertEquals(EnumSet.of(Topic.LANGUAGE), MATCHER.match(null, "Python 3"));
+    }
+    
+    @Test
+    void pageTypeDetectionMatchesTheFormTypeChain() {
+        Random random = new Random(11);
+        String[] words = {"loan", "Register", "CONTACT", "checkout", "survey", "apply", "form", "contract", "regis", "ter"};
+        for (int i = 0; i < 5_000; i++) {
+            String title = randomWords(random, words);
+            String summary = randomWords(random, words);
+            assertEquals(formTypeChain(title, summary), PageType.detect(title, summary), title + " | " + summary);
+        }
+    }
+    
+    private static KeywordMatcher<Topic> build() {
+        KeywordMatcher.Builder<Topic> builder = KeywordMatcher.builder(Topic.class);
+        KEYWORDS.forEach((topic, words) -> builder.add(topic, words.toArray(new String[0])));
+        return builder.build();
+    }
+    
+    private static EnumSet<Topic> containsMatch(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        EnumSet<Topic> topics = EnumSet.noneOf(Topic.class);
+        KEYWORDS.forEach((topic, words) -> {
+            if (words.stream().anyMatch(lower::contains)) {
+                topics.add(topic);
+            }
+        });
+        return topics;
+    }
+    
+    private static Topic containsFirst(String first, String second) {
+        String a = first.toLowerCase(Locale.ROOT);
+        String b = second.toLowerCase(Locale.ROOT);
+        for (Map.Entry<Topic, List<String>> entry : KEYWORDS.entrySet()) {
+            for (String word : entry.getValue()) {
+                if (a.contains(word) || b.contains(word)) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+    
+    // The determineFormType chain as it was before PageType
+    private static PageType formTypeChain(String title, String summary) {
+        String t = title.toLowerCase();
+        String s = summary.toLowerCase();
+        if (t.contains("loan") || s.contains("loan")) {
+            return PageType.LOAN;
+        } else if (t.contains("register") || s.contains("register")) {
+            return PageType.REGISTER;
+        } else if (t.contains("contact") || s.contains("contact")) {
+            return PageType.CONTACT;
+        } else if (t.contains("checkout") || s.contains("checkout")) {
+            return PageType.CHECKOUT;
+        } else if (t.contains("survey") || s.contains("survey")) {
+            return PageType.SURVEY;
+        }
+        return null;
+    }
+    
+    // Keyword fragments glued together with noise and random case, so matches start mid-keyword and overlap
+    private static String randomText(Random random) {
+        String[] pieces = {"what", " is", "wh", "at", "java", "script", "ja", "va", "how", " to", " does", "ai", "api", "p",
+                "node", ".js", "data ", "science", "expl", "ain", "python", "x", " ", "é", "K"};
+        StringBuilder text = new StringBuilder();
+        int count = random.nextInt(8);
+        for (int i = 0; i < count; i++) {
+            text.append(pieces[random.nextInt(pieces.length)]);
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (random.nextInt(3) == 0) {
+                text.setCharAt(i, Character.toUpperCase(text.charAt(i)));
+            }
+        }
+        return text.toString();
+    }
+    
+    private static String randomWords(Random random, String[] words) {
+        StringBuilder text = new StringBuilder();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "");
+        }
+        return text.toString();
+    }
+}
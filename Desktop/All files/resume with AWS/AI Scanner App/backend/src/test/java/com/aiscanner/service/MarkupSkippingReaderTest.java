@@ -0,0 +1,118 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MarkupSkippingReaderTest {
+    
+    private static final String HTML = "<html><head><title>Sign in</title>"
+            + "<style>.a<b { color: red }</style>"
+            + "<script type=\"module\">if (a <b && c > d) { x = '</scr' + 'ipt>'; }</SCRIPT >" // Split end tag in a string
+            + "</head><body><!-- <input name=\"hidden-in-comment\"> -->"
+            + "<p>Hello <b>there</b></p><scripts>kept</scripts>"
+            + "<noscript><img src=x></noscript><svg viewBox=\"0 0 1 1\"><path d=\"M0\"/></svg>"
+            + "<form><label>Email <input name=email></label><template><input name=t></template></form>"
+            + "<!----><p>a < b</p><svg/><p>after</p></body></html>";
+    
+    private static final String EXPECTED = "<html><head><title>Sign in</title>"
+            + "</head><body>"
+            + "<p>Hello <b>there</b></p><scripts>kept</scripts>"
+            + "<form><label>Email <input name=email></label></form>"
+            + "<p>a < b</p>";
+    
+    @Test
+    void dropsCommentsAndSkippedElementsInOneRead() throws IOException {
+        assertEquals(EXPECTED, readAll(new MarkupSkippingReader(new StringReader(HTML)), 1 << 16));
+    }
+    
+    @Test
+    void sameOutputWhenTheInputIsSplitAtEveryOffset() throws IOException {
+        for (int split = 0; split <= HTML.length(); split++) {
+            for (int readSize : new int[]{1, 3, 64}) {
+                Reader in = new MarkupSkippingReader(new SplitReader(HTML, split));
+                assertEquals(EXPECTED, readAll(in, readSize), "split at " + split + ", reads of " + readSize);
+            }
+        }
+    }
+    
+    @Test
+    void sameOutputWhenTheInputArrivesOneCharAtATime() throws IOException {
+        assertEquals(EXPECTED, readAll(new MarkupSkippingReader(new SplitReader(HTML, 1, 1)), 7));
+    }
+    
+    @Test
+    void skippedSpansCrossingTheInternalBufferAreDropped() throws IOException {
+        // Push the script and comment across the reader's 8K buffer boundary at every alignment
+        String script = "<script>var s = '" + "x".repeat(100) + "';</script>";
+        String comment = "<!-- " + "y".repeat(50) + " -->";
+        for (int padding = 8192 - script.length() - 20; padding <= 8192 + 20; padding++) {
+            String text = "z".repeat(padding);
+            String html = text + script + "<p>1</p>" + comment + "<p>2</p>";
+            String expected = text + "<p>1</p><p>2</p>";
+            assertEquals(expected, readAll(new MarkupSkippingReader(new StringReader(html)), 4096), "padding " + padding);
+            assertEquals(expected, readAll(new MarkupSkippingReader(new SplitReader(html, padding + 3)), 100), "padding " + padding);
+        }
+    }
+    
+    @Test
+    void unterminatedSpanDropsTheRestOfTheInput() throws IOException {
+        assertEquals("<p>before</p>", readAll(new MarkupSkippingReader(new StringReader("<p>before</p><script>var a = 1;")), 16));
+        assertEquals("<p>before</p>", readAll(new MarkupSkippingReader(new StringReader("<p>before</p><!-- open")), 16));
+        assertEquals("<p>x</p><", readAll(new MarkupSkippingReader(new StringReader("<p>x</p><")), 16));
+        assertEquals("<p>x</p><scrip", readAll(new MarkupSkippingReader(new StringReader("<p>x</p><scrip")), 16));
+    }
+    
+    private static String readAll(Reader in, int readSize) throws IOException {
+        StringBuilder out = new StringBuilder();
+        char[] chars = new char[readSize];
+        int read;
+        while ((read = in.read(chars, 0, chars.length)) != -1) {
+            out.append(chars, 0, read);
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Hands out the text in pieces the way a network stream delivers a page: no read crosses
+     * offset {@code split}, and none returns more than {@code pieceSize} characters.
+     */
+    static final class SplitReader extends Reader {
+        private final String text;
+        private final int split;
+        private final int pieceSize;
+        private int position;
+        
+        SplitReader(String text, int split) {
+            this(text, split, Integer.MAX_VALUE);
+        }
+        
+        SplitReader(String text, int split, int pieceSize) {
+            this.text = text;
+            this.split = split;
+            this.pieceSize = pieceSize;
+        }
+        
+        @Override
+        public int read(char[] target, int offset, int length) {
+            if (position == text.length()) {
+                return -1;
+            }
+            int end = position < split ? split : text.length();
+            end = (int) Math.min(end, Math.min((long) position + pieceSize, (long) position + length));
+            end = Math.max(end, position + 1);
+            text.getChars(position, end, target, offset);
+            int read = end - position;
+            position = end;
+            return read;
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
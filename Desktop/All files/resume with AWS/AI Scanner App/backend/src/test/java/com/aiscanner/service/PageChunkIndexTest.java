@@ -0,0 +1,97 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageChunkIndexTest {
+    
+    private static final int MAX_CHUNK_TOKENS = 40;
+    
+    private static final String PAGE = String.join("\n",
+            "Welcome to Example Bank. We offer current accounts, savings and personal loans to customers across the country.",
+            "Our branches are open Monday to Friday from nine until five, and on Saturday mornings in larger towns.",
+            "Mortgage rates are fixed for two or five years. An early repayment charge applies if you repay a fixed mortgage early.",
+            "Credit cards come with a contactless limit that you can lower or raise in the app at any time.",
+            "To reset your password, open the sign in page, choose forgot password and follow the link we email you.",
+            "Savings accounts pay interest monthly. Instant access savings let you withdraw without notice.");
+    private static final String CODE = "function checkPassword(password) { return password.length >= 12; }";
+    private static final String QUESTIONS = "Questions/Prompts Found:\nQ: How do I change my password\n\nForm Questions/Labels:\n- Email address\n- Password";
+    
+    @Test
+    void bestMatchingChunkRanksFirst() {
+        PageChunkIndex index = PageChunkIndex.build(PAGE, CODE, QUESTIONS, MAX_CHUNK_TOKENS);
+        assertTrue(index.size() > 4, index.size() + " chunks");
+        
+        assertEquals(List.of("Mortgage rates are fixed for two or five years. An early repayment charge applies if you repay a fixed mortgage early."),
+                texts(index.search("Is there a charge for repaying my mortgage early?", 1)));
+        assertTrue(texts(index.search("When are branches open on Saturday?", 1)).get(0).startsWith("Our branches are open"));
+        
+        // Every source mentions passwords, but only one chunk is about resetting them
+        assertEquals(List.of("To reset your password, open the sign in page, choose forgot password and follow the link we email you."),
+                texts(index.search("How do I reset my password?", 1)));
+        
+        // Results come back in page order, and always include the best chunk
+        List<PageChunkIndex.Chunk> passwordChunks = index.search("How do I reset my password?", 3);
+        assertEquals(3, passwordChunks.size());
+        assertTrue(texts(passwordChunks).contains("To reset your password, open the sign in page, choose forgot password and follow the link we email you."),
+                texts(passwordChunks).toString());
+        assertEquals(List.of(PageChunkIndex.SOURCE_PAGE, PageChunkIndex.SOURCE_CODE, PageChunkIndex.SOURCE_QUESTIONS),
+                passwordChunks.stream().map(PageChunkIndex.Chunk::getSource).collect(Collectors.toList()));
+    }
+    
+    @Test
+    void unmatchedQuestionFallsBackToTheLeadingChunks() {
+        PageChunkIndex index = PageChunkIndex.build(PAGE, CODE, QUESTIONS, MAX_CHUNK_TOKENS);
+        
+        List<PageChunkIndex.Chunk> chunks = index.search("zebra xylophone", 2);
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).getText().startsWith("Welcome to Example Bank."), chunks.get(0).getText());
+        assertEquals(List.of(), index.search("password", 0));
+        assertEquals(0, PageChunkIndex.build(" ", null, "", MAX_CHUNK_TOKENS).size());
+    }
+    
+    @Test
+    void chunksRespectTheTokenLimitWithoutLosingWords() {
+        String longLine = words("alpha", 300) + ". " + words("beta", 50) + ". " + words("gamma", 5);
+        String overlongWord = "x".repeat(500);
+        String page = PAGE + "\n" + longLine + "\n" + overlongWord;
+        
+        for (int maxTokens : new int[]{1, 5, 16, 40, 200}) {
+            PageChunkIndex index = PageChunkIndex.build(page, CODE, QUESTIONS, maxTokens);
+            List<PageChunkIndex.Chunk> chunks = index.search("no such term here", index.size());
+            assertEquals(index.size(), chunks.size());
+            
+            int maxChars = maxTokens * 4;
+            for (PageChunkIndex.Chunk chunk : chunks) {
+                assertTrue(chunk.getText().length() <= maxChars || !chunk.getText().contains(" "),
+                        maxTokens + " tokens: " + chunk.getText().length() + " chars in \"" + chunk.getText() + "\"");
+            }
+            assertEquals(words(page + " " + CODE + " " + QUESTIONS), words(joined(chunks)), maxTokens + " tokens");
+        }
+    }
+    
+    private static List<String> texts(List<PageChunkIndex.Chunk> chunks) {
+        return chunks.stream().map(PageChunkIndex.Chunk::getText).collect(Collectors.toList());
+    }
+    
+    private static String joined(List<PageChunkIndex.Chunk> chunks) {
+        return String.join(" ", texts(chunks));
+    }
+    
+    private static List<String> words(String text) {
+        return List.of(text.trim().split("\\s+"));
+    }
+    
+    private static String words(String word, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(word).append(i).append(' ');
+        }
+        return text.toString().trim();
+    }
+}
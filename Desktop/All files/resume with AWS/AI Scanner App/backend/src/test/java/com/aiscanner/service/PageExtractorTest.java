@@ -0,0 +1,242 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the single-pass extractor against the per-selector extraction it replaced, on a form
+ * page with every labelling style the label strategies handle.
+ */
+class PageExtractorTest {
+    
+    private final PageExtractor extractor = new PageExtractor();
+    
+    @Test
+    void extractionMatchesTheMultiSelectBaseline() throws IOException {
+        Document doc = fixture();
+        ExtractedPage page = extractor.extract(doc);
+        
+        List<PageAnalysisResponse.FieldInfo> baselineFields = baselineFields(doc);
+        assertEquals(baselineFields, page.getFields());
+        List<String> baselineContexts = baselineFields.stream().map(field -> baselineFieldContext(field, doc)).collect(Collectors.toList());
+        assertEquals(baselineContexts, page.getFieldContexts());
+        
+        assertEquals("Loan Application - Example Bank", page.getTitle());
+        assertEquals(doc.body().text(), page.getBodyText());
+        assertEquals(baselinePageContent(doc), page.getPageContent());
+        assertEquals(baselineCodeContent(doc), page.getCodeContent());
+        assertEquals(baselineQuestionsContent(doc), page.getQuestionsContent());
+    }
+    
+    @Test
+    void fieldsAreLabelledBySiblingForWrappingLabelNearbyTextPlaceholderAndName() throws IOException {
+        List<String> fields = extractor.extract(fixture()).getFields().stream()
+                .map(field -> field.getName() + "|" + field.getType() + "|" + field.getLabel() + "|" + field.isRequired())
+                .collect(Collectors.toList());
+        
+        assertEquals(List.of(
+                "full_name|text|Full name|true",               // label for= a sibling
+                "email|email|Email address|true",              // wrapping label
+                "phone_number|tel|Phone|false",                // nearby span
+                "middle_name|text|Middle name (optional)|false", // placeholder
+                "employer-name|input|employer name|false",     // name, without a type attribute
+                "|input|Unnamed Field|false",
+                "purpose|select|Purpose|false",
+                "amount|number|Amount|false",
+                "notes|textarea|Anything else we should know?|false",
+                "term|radio|12 months|false",                  // the wrapping label is the parent itself
+                "term|radio|24 months|false",
+                "consent|checkbox|I agree to the credit check|true",
+                "newsletter_email|email|Newsletter:|false"),  // the enclosing paragraph
+                fields);
+    }
+    
+    @Test
+    void contentSectionsKeepNestedListItemsAndCodeBlocks() throws IOException {
+        ExtractedPage page = extractor.extract(fixture());
+        
+        // Nested list items appear under their own list and again under the enclosing one
+        assertTrue(page.getPageContent().contains("• Partial repayments are allowed\n• Yes, without a fee\n• Partial repayments are allowed\n"),
+                page.getPageContent());
+        assertTrue(page.getHeadings().startsWith("- H1: Apply for a personal loan\n- H2: About you\n"), page.getHeadings());
+        assertTrue(page.getCodeContent().contains("Code Block:\n```\npublic class LoanCalculator"), page.getCodeContent());
+        assertTrue(page.getQuestionsContent().contains("- I agree to the credit check\n"), page.getQuestionsContent());
+    }
+    
+    private Document fixture() throws IOException {
+        try (InputStream html = getClass().getResourceAsStream("/pages/extractor-fixture.html")) {
+            return Jsoup.parse(html, "UTF-8", "https://bank.example/loans/apply");
+        }
+    }
+    
+    // The extractFields, getFieldContext, extractPageContent, extractCodeContent and
+    // extractQuestionsContent methods as they were before PageExtractor
+    
+    private List<PageAnalysisResponse.FieldInfo> baselineFields(Document doc) {
+        List<PageAnalysisResponse.FieldInfo> fields = new ArrayList<>();
+        for (Element input : doc.select("input, select, textarea, button[type=submit]")) {
+            String name = input.attr("name");
+            String type = input.attr("type");
+            if ("submit".equals(type) || "hidden".equals(type)) {
+                continue;
+            }
+            fields.add(PageAnalysisResponse.FieldInfo.builder()
+                    .name(name.isEmpty() ? input.attr("id") : name)
+                    .label(baselineLabel(input))
+                    .type(type.isEmpty() ? input.tagName() : type)
+                    .placeholder(input.attr("placeholder"))
+                    .required(input.hasAttr("required"))
+                    .aiExplanation("Analyzing with AI...")
+                    .build());
+        }
+        return fields;
+    }
+    
+    private static String baselineLabel(Element input) {
+        String id = input.attr("id");
+        if (!id.isEmpty()) {
+            Element label = input.parent().selectFirst("label[for=" + id + "]");
+            if (label != null) {
+                return label.text().trim();
+            }
+        }
+        Element parentLabel = input.parent().selectFirst("label");
+        if (parentLabel != null) {
+            return parentLabel.text().trim();
+        }
+        Element nearbyText = input.parent().selectFirst("span, div, p");
+        if (nearbyText != null && !nearbyText.text().trim().isEmpty()) {
+            return nearbyText.text().trim();
+        }
+        String placeholder = input.attr("placeholder");
+        if (!placeholder.isEmpty()) {
+            return placeholder;
+        }
+        String name = input.attr("name");
+        if (!name.isEmpty()) {
+            return name.replaceAll("[_-]", " ").trim();
+        }
+        return "Unnamed Field";
+    }
+    
+    private static String baselineFieldContext(PageAnalysisResponse.FieldInfo field, Document doc) {
+        StringBuilder context = new StringBuilder();
+        Elements fieldElements = doc.select(String.format("[name='%s'], [id='%s']", field.getName(), field.getName()));
+        if (!fieldElements.isEmpty()) {
+            Element fieldElement = fieldElements.first();
+            context.append("Field context: ");
+            Element form = fieldElement.closest("form");
+            if (form != null) {
+                context.append("Located in form. ");
+                String formAction = form.attr("action");
+                if (!formAction.isEmpty()) {
+                    context.append("Form action: ").append(formAction).append(". ");
+                }
+            }
+            Element parent = fieldElement.parent();
+            if (parent != null) {
+                String parentText = parent.text().trim();
+                if (parentText.length() > 0 && parentText.length() < 200) {
+                    context.append("Nearby text: ").append(parentText).append(". ");
+                }
+            }
+        }
+        return context.toString();
+    }
+    
+    private static String baselinePageContent(Document doc) {
+        StringBuilder content = new StringBuilder();
+        content.append("Page Text Content:\n").append(doc.body().text()).append("\n\n");
+        
+        Elements headings = doc.select("h1, h2, h3, h4, h5, h6");
+        if (!headings.isEmpty()) {
+            content.append("Page Structure (Headings):\n");
+            for (Element heading : headings) {
+                content.append("- ").append(heading.tagName().toUpperCase()).append(": ").append(heading.text()).append("\n");
+            }
+            content.append("\n");
+        }
+        
+        Elements lists = doc.select("ul, ol");
+        if (!lists.isEmpty()) {
+            content.append("Lists Found:\n");
+            for (Element list : lists) {
+                for (Element item : list.select("li")) {
+                    content.append("• ").append(item.text()).append("\n");
+                }
+            }
+            content.append("\n");
+        }
+        
+        Elements paragraphs = doc.select("p");
+        if (!paragraphs.isEmpty()) {
+            content.append("Main Content Paragraphs:\n");
+            for (Element p : paragraphs) {
+                String text = p.text().trim();
+                if (text.length() > 20) {
+                    content.append("- ").append(text).append("\n");
+                }
+            }
+        }
+        return content.toString();
+    }
+    
+    private static String baselineCodeContent(Document doc) {
+        StringBuilder codeContent = new StringBuilder();
+        Elements codeBlocks = doc.select("code, pre, .code, .highlight, script[type='text/javascript']");
+        if (!codeBlocks.isEmpty()) {
+            codeContent.append("Code Content Found:\n");
+            for (Element code : codeBlocks) {
+                String codeText = code.text().trim();
+                if (codeText.length() > 10) {
+                    codeContent.append("Code Block:\n```\n").append(codeText).append("\n```\n\n");
+                }
+            }
+        }
+        for (Element element : doc.select("[class*='java'], [class*='code'], [class*='program'], pre")) {
+            String text = element.text().trim();
+            if (text.contains("public") || text.contains("class") || text.contains("function")
+                    || text.contains("for") || text.contains("if") || text.contains("while")) {
+                codeContent.append("Programming Content:\n").append(text).append("\n\n");
+            }
+        }
+        return codeContent.toString();
+    }
+    
+    private static String baselineQuestionsContent(Document doc) {
+        StringBuilder questions = new StringBuilder();
+        questions.append("Questions/Prompts Found:\n");
+        for (String sentence : doc.body().text().split("[.!?]")) {
+            sentence = sentence.trim();
+            String lower = sentence.toLowerCase();
+            if (sentence.contains("?") || lower.startsWith("what") || lower.startsWith("how") || lower.startsWith("why")
+                    || lower.startsWith("when") || lower.startsWith("where") || lower.contains("answer") || lower.contains("question")) {
+                questions.append("Q: ").append(sentence).append("\n");
+            }
+        }
+        Elements labels = doc.select("label");
+        if (!labels.isEmpty()) {
+            questions.append("\nForm Questions/Labels:\n");
+            for (Element label : labels) {
+                String labelText = label.text().trim();
+                if (!labelText.isEmpty()) {
+                    questions.append("- ").append(labelText).append("\n");
+                }
+            }
+        }
+        return questions.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptAssemblerTest {
+    
+    private static final String INTRO = "You are a form analysis assistant.\n";
+    private static final String OUTRO = "Answer briefly.";
+    
+    @Test
+    void underBudgetKeepsEverySectionWhole() {
+        String prompt = new PromptAssembler(1000)
+                .fixed(INTRO)
+                .items("Fields:", List.of("- email (email)", "- password (password)"), 2)
+                .text("Page:", "  Sign in to your account.  ", 3)
+                .text("Code:", "   ", 1)
+                .items("Headings:", List.of(), 1)
+                .fixed(OUTRO)
+                .build();
+        
+        assertEquals(INTRO
+                + "Fields:\n- email (email)\n- password (password)\n\n"
+                + "Page:\nSign in to your account.\n\n"
+                + OUTRO, prompt);
+    }
+    
+    @Test
+    void overBudgetSharesTheRestByWeightAndStaysWithinTheBudget() {
+        int budget = 200;
+        String page = words("page", 400);
+        String code = words("code", 400);
+        List<String> fields = items("- field", 100);
+        
+        String prompt = new PromptAssembler(budget)
+                .fixed(INTRO)
+                .text("Page:", page, 4)
+                .text("Code:", code, 2)
+                .items("Fields:", fields, 2)
+                .fixed(OUTRO)
+                .build();
+        
+        assertTrue(PromptAssembler.estimateTokens(prompt) <= budget, PromptAssembler.estimateTokens(prompt) + " tokens");
+        assertTrue(prompt.startsWith(INTRO) && prompt.endsWith(OUTRO), prompt);
+        
+        String pageKept = section(prompt, "Page:\n", "\n\nCode:");
+        String codeKept = section(prompt, "Code:\n", "\n\nFields:");
+        assertTrue(pageKept.endsWith("...") && codeKept.endsWith("..."), prompt);
+        // Cut at a word boundary, so whatever is kept is a prefix made of whole words
+        assertTrue(page.startsWith(pageKept.substring(0, pageKept.length() - 3) + " "), pageKept);
+        assertTrue(code.startsWith(codeKept.substring(0, codeKept.length() - 3) + " "), codeKept);
+        assertTrue(pageKept.length() > codeKept.length() * 3 / 2, pageKept.length() + " vs " + codeKept.length());
+        
+        List<String> fieldLines = section(prompt, "Fields:\n", "\n\n" + OUTRO).lines().toList();
+        int included = fieldLines.size() - 1;
+        assertTrue(included > 0, prompt);
+        assertEquals(fields.subList(0, included), fieldLines.subList(0, included));
+        assertEquals("... and " + (fields.size() - included) + " more", fieldLines.get(included));
+    }
+    
+    @Test
+    void singleHugeSectionTakesWhatTheSmallSectionsLeave() {
+        int budget = 300;
+        List<String> fields = List.of("- email (email)", "- password (password)");
+        String headings = "Sign in";
+        String page = words("page", 5000);
+        
+        String prompt = new PromptAssembler(budget)
+                .fixed(INTRO)
+                .items("Fields:", fields, 3)
+                .text("Headings:", headings, 1)
+                .text("Page:", page, 4)
+                .fixed(OUTRO)
+                .build();
+        
+        assertTrue(PromptAssembler.estimateTokens(prompt) <= budget, PromptAssembler.estimateTokens(prompt) + " tokens");
+        assertTrue(prompt.contains("Fields:\n- email (email)\n- password (password)\n\n"), prompt);
+        assertTrue(prompt.contains("Headings:\nSign in\n\n"), prompt);
+        assertFalse(prompt.contains("more\n"), prompt);
+        
+        // The page section gets its own share plus everything the small sections did not need
+        String pageKept = section(prompt, "Page:\n", "\n\n" + OUTRO);
+        int pageShare = (budget - PromptAssembler.estimateTokens(INTRO) - PromptAssembler.estimateTokens(OUTRO)) * 4 / 8;
+        assertTrue(PromptAssembler.estimateTokens(pageKept) > pageShare, pageKept.length() + " chars");
+        assertTrue(pageKept.endsWith("..."), pageKept);
+    }
+    
+    @Test
+    void fixedPartsAloneOverBudgetLeaveNoRoomForSections() {
+        String intro = words("rule", 300);
+        String prompt = new PromptAssembler(100)
+                .fixed(intro)
+                .text("Page:", "Sign in to your account.", 4)
+                .items("Fields:", List.of("- email (email)"), 2)
+                .build();
+        
+        assertEquals(intro, prompt);
+    }
+    
+    private static String section(String prompt, String start, String end) {
+        int from = prompt.indexOf(start);
+        int to = prompt.indexOf(end, from);
+        assertTrue(from >= 0 && to > from, "no " + start.trim() + " section in\n" + prompt);
+        return prompt.substring(from + start.length(), to);
+    }
+    
+    private static String words(String word, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(word).append(i).append(' ');
+        }
+        return text.toString().trim();
+    }
+    
+    private static List<String> items(String prefix, int count) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(prefix + i + " (text)");
+        }
+        return items;
+    }
+}
@@ -0,0 +1,35 @@
+package com.aiscanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+    
+    @Test
+    void burstIsServedImmediatelyThenCallersWaitOrAreRefused() {
+        TokenBucket bucket = new TokenBucket(1, 2);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(0));
+        
+        assertEquals(-1, bucket.reserve(0));
+        long wait = bucket.reserve(2_000_000_000L);
+        assertTrue(wait > 0 && wait <= 1_000_000_000L, "wait " + wait);
+    }
+    
+    @Test
+    void refundedTokenCanBeReservedAgainButNeverExceedsTheBurst() {
+        TokenBucket bucket = new TokenBucket(0.001, 1);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(0));
+        
+        bucket.refund();
+        assertEquals(0, bucket.reserve(0));
+        
+        bucket.refund();
+        bucket.refund();
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(-1, bucket.reserve(0));
+    }
+}
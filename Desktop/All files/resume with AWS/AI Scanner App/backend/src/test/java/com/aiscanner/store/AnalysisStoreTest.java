@@ -0,0 +1,253 @@
+package com.aiscanner.store;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisStoreTest {
+    
+    private static final int SEGMENT_BYTES = 4096;
+    
+    @TempDir
+    Path dir;
+    
+    private final List<AnalysisStore> opened = new ArrayList<>();
+    
+    @AfterEach
+    void closeStores() {
+        opened.forEach(AnalysisStore::close);
+    }
+    
+    @Test
+    void reopenedStoreServesLatestAnalysisWithValidators() throws IOException {
+        AnalysisStore store = open();
+        store.put("https://example.com/a", stored("a", 1));
+        store.put("https://example.com/b", stored("b", 1));
+        store.put("https://example.com/a", stored("a", 2));
+        store.close();
+        
+        AnalysisStore reopened = open();
+        StoredAnalysis a = reopened.get("https://example.com/a").orElseThrow();
+        assertEquals("a v2", a.getAnalysis().getTitle());
+        assertEquals("\"a-2\"", a.getEtag());
+        assertEquals("hash-a-2", a.getContentHash());
+        assertTrue(a.getWrittenAt() > 0);
+        assertEquals("b v1", reopened.get("https://example.com/b").orElseThrow().getAnalysis().getTitle());
+        assertFalse(reopened.get("https://example.com/missing").isPresent());
+    }
+    
+    @Test
+    void recoveryDiscardsCorruptTailAndKeepsAppending() throws IOException {
+        AnalysisStore store = open();
+        store.put("a", stored("a", 1));
+        int endOfA = writePosition(store);
+        store.put("b", stored("b", 1));
+        store.close();
+        
+        // Flip a byte inside b's payload, as if the crash hit while it was being written
+        Path segment = onlySegment();
+        writeByte(segment, endOfA + 20, (byte) ~readByte(segment, endOfA + 20));
+        
+        AnalysisStore recovered = open();
+        assertTrue(recovered.get("a").isPresent());
+        assertFalse(recovered.get("b").isPresent());
+        assertEquals(endOfA, writePosition(recovered));
+        
+        recovered.put("c", stored("c", 1));
+        recovered.close();
+        
+        AnalysisStore reopened = open();
+        assertEquals("a v1", reopened.get("a").orElseThrow().getAnalysis().getTitle());
+        assertEquals("c v1", reopened.get("c").orElseThrow().getAnalysis().getTitle());
+        assertFalse(reopened.get("b").isPresent());
+    }
+    
+    @Test
+    void recoveryStopsAtTruncatedRecord() throws IOException {
+        AnalysisStore store = open();
+        store.put("a", stored("a", 1));
+        int endOfA = writePosition(store);
+        store.put("b", stored("b", 1));
+        int endOfB = writePosition(store);
+        store.close();
+        
+        // Zero the second half of b, as if only its first pages reached the disk
+        Path segment = onlySegment();
+        for (int i = (endOfA + endOfB) / 2; i < endOfB; i++) {
+            writeByte(segment, i, (byte) 0);
+        }
+        
+        AnalysisStore recovered = open();
+        assertTrue(recovered.get("a").isPresent());
+        assertFalse(recovered.get("b").isPresent());
+        assertEquals(endOfA, writePosition(recovered));
+    }
+    
+    @Test
+    void compactionCopiesLiveRecordsForwardAcrossSegmentRolls() throws IOException {
+        AnalysisStore store = open();
+        store.put("keep", stored("keep", 1));
+        // Each record takes about a quarter of a segment, so rewriting one key keeps rolling segments
+        for (int version = 1; version <= 40; version++) {
+            store.put("hot", stored("hot", version));
+        }
+        
+        assertTrue(segmentFiles().size() <= 3, "superseded segments should be compacted away, found " + segmentFiles());
+        assertEquals("keep v1", store.get("keep").orElseThrow().getAnalysis().getTitle());
+        assertEquals("hot v40", store.get("hot").orElseThrow().getAnalysis().getTitle());
+        store.close();
+        
+        AnalysisStore reopened = open();
+        assertEquals("keep v1", reopened.get("keep").orElseThrow().getAnalysis().getTitle());
+        assertEquals("hot v40", reopened.get("hot").orElseThrow().getAnalysis().getTitle());
+    }
+    
+    @Test
+    void compactionOutputSpanningSeveralSegmentsLeavesOnlyLiveRecords() throws IOException {
+        AnalysisStore store = open();
+        // More live records than fit in one segment, so copying them forward rolls mid-compaction
+        for (int page = 0; page < 7; page++) {
+            store.put("keep-" + page, stored("keep-" + page, 1));
+        }
+        int compactions = 0;
+        Path oldest = segmentFiles().get(0);
+        for (int version = 1; version <= 200; version++) {
+            store.put("hot", stored("hot", version));
+            List<Path> files = segmentFiles();
+            if (!files.get(0).equals(oldest)) {
+                // Every segment left behind, the old active one included, holds only the copied live records
+                compactions++;
+                assertTrue(files.size() >= 2, "compaction output should span segments, found " + files);
+                assertEquals(liveBytes(store), totalBytes(store), "after compaction " + compactions);
+                oldest = files.get(0);
+            }
+        }
+        assertTrue(compactions > 0);
+        store.close();
+        
+        AnalysisStore reopened = open();
+        for (int page = 0; page < 7; page++) {
+            assertEquals("keep-" + page + " v1", reopened.get("keep-" + page).orElseThrow().getAnalysis().getTitle());
+        }
+        assertEquals("hot v200", reopened.get("hot").orElseThrow().getAnalysis().getTitle());
+    }
+    
+    @Test
+    void appendsAreSyncedByTheBackgroundFlusher() throws Exception {
+        AnalysisStore store = open();
+        store.put("a", stored("a", 1));
+        store.put("b", stored("b", 1));
+        Object active = ReflectionTestUtils.getField(store, "active");
+        
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flushedPosition(active) < writePosition(store) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(writePosition(store), flushedPosition(active));
+    }
+    
+    @Test
+    void expiredAnalysesAreNotServed() throws IOException {
+        AnalysisStore store = open();
+        store.put("a", stored("a", 1));
+        ReflectionTestUtils.setField(store, "ttlHours", -1L);
+        
+        Optional<StoredAnalysis> expired = store.get("a");
+        assertFalse(expired.isPresent());
+    }
+    
+    private AnalysisStore open() throws IOException {
+        AnalysisStore store = new AnalysisStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", dir.toString());
+        ReflectionTestUtils.setField(store, "segmentBytes", SEGMENT_BYTES);
+        ReflectionTestUtils.setField(store, "ttlHours", 24L);
+        ReflectionTestUtils.setField(store, "compactionGarbageRatio", 0.5);
+        ReflectionTestUtils.setField(store, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        store.open();
+        opened.add(store);
+        return store;
+    }
+    
+    private static StoredAnalysis stored(String page, int version) {
+        return StoredAnalysis.builder()
+                .analysis(PageAnalysisResponse.builder()
+                        .url("https://example.com/" + page)
+                        .title(page + " v" + version)
+                        .pageSummary("Summary of " + page)
+                        .summaryAiGenerated(true)
+                        .pageContent("x".repeat(700))
+                        .build())
+                .etag("\"" + page + "-" + version + "\"")
+                .lastModified("Sat, 17 Oct 2026 07:00:00 GMT")
+                .contentHash("hash-" + page + "-" + version)
+                .build();
+    }
+    
+    private static int writePosition(AnalysisStore store) {
+        Object active = ReflectionTestUtils.getField(store, "active");
+        return (Integer) ReflectionTestUtils.getField(active, "writePosition");
+    }
+    
+    private static long totalBytes(AnalysisStore store) {
+        return (Long) ReflectionTestUtils.getField(store, "totalBytes");
+    }
+    
+    private static long liveBytes(AnalysisStore store) {
+        Map<?, ?> index = (Map<?, ?>) ReflectionTestUtils.getField(store, "index");
+        return index.values().stream()
+                .mapToLong(location -> (Integer) ReflectionTestUtils.getField(location, "recordLength"))
+                .sum();
+    }
+    
+    private static int flushedPosition(Object segment) {
+        return (Integer) ReflectionTestUtils.getField(segment, "flushedPosition");
+    }
+    
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+    
+    private Path onlySegment() throws IOException {
+        List<Path> files = segmentFiles();
+        assertEquals(1, files.size());
+        return files.get(0);
+    }
+    
+    private static byte readByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            return buffer.get(0);
+        }
+    }
+    
+    private static void writeByte(Path file, long position, byte value) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{value}), position);
+        }
+    }
+}
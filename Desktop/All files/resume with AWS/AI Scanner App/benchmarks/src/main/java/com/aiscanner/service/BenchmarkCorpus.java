@@ -0,0 +1,134 @@
+package com.aiscanner.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * HTML pages the benchmarks run against: the sample pages checked into {@code frontend/public}
+ * (copied onto the classpath under {@code corpus/} at build time) and synthetic forms generated
+ * from a fixed seed, so every run and every machine measures exactly the same input.
+ */
+final class BenchmarkCorpus {
+    
+    static final String TEST_FORMS_PAGE = "test-forms-page";
+    static final String TEST_PAGE = "test-page";
+    static final String SYNTHETIC_FORM_200 = "synthetic-form-200";
+    static final String SYNTHETIC_FORM_2000 = "synthetic-form-2000";
+    
+    static final String BASE_URL = "http://localhost/benchmark/";
+    
+    private static final String[] INPUT_TYPES = {"text", "email", "tel", "number", "date", "password", "checkbox", "radio", "url"};
+    private static final String[] LABEL_WORDS = {"First", "Last", "Name", "Email", "Phone", "Address", "City", "Postal", "Code",
+            "Country", "Company", "Loan", "Amount", "Income", "Employer", "Date", "Birth", "Account", "Number", "Reference"};
+    
+    private BenchmarkCorpus() {
+    }
+    
+    static String load(String page) {
+        switch (page) {
+            case SYNTHETIC_FORM_200:
+                return syntheticForm(200, 42L);
+            case SYNTHETIC_FORM_2000:
+                return syntheticForm(2000, 42L);
+            default:
+                return readResource("corpus/" + page + ".html");
+        }
+    }
+    
+    private static String readResource(String path) {
+        try (InputStream in = BenchmarkCorpus.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Corpus page not found on classpath: " + path);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Builds a long multi-section form mixing every labelling style the extractor handles
+     * ({@code label[for]}, wrapping labels, nearby text, placeholder/name only), with headings,
+     * paragraphs, nested lists and a code block between sections.
+     */
+    static String syntheticForm(int fieldCount, long seed) {
+        Random random = new Random(seed);
+        StringBuilder html = new StringBuilder(fieldCount * 256);
+        html.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"UTF-8\">\n");
+        html.append("<title>Synthetic Application Form (").append(fieldCount).append(" fields)</title>\n</head>\n<body>\n");
+        html.append("<h1>Synthetic Application Form</h1>\n");
+        html.append("<p>What information do we need from you? Please answer every question in the sections below.</p>\n");
+        html.append("<form action=\"/submit\" method=\"post\">\n");
+        
+        for (int i = 0; i < fieldCount; i++) {
+            if (i % 25 == 0) {
+                int section = i / 25 + 1;
+                if (i > 0) {
+                    html.append("</fieldset>\n");
+                }
+                html.append("<fieldset>\n<h2>Section ").append(section).append("</h2>\n");
+                html.append("<p>This section collects the details required for step ").append(section)
+                        .append(" of your application. How should you fill it in?</p>\n");
+                html.append("<ul><li>Fields marked with * are required</li><li>Dates use YYYY-MM-DD<ul><li>Nested hint</li></ul></li></ul>\n");
+                if (section % 4 == 0) {
+                    html.append("<pre class=\"code\">public class Step").append(section)
+                            .append(" { void validate() { if (valid) return; } }</pre>\n");
+                }
+            }
+            
+            String label = LABEL_WORDS[random.nextInt(LABEL_WORDS.length)] + " " + LABEL_WORDS[random.nextInt(LABEL_WORDS.length)];
+            String name = "field_" + i;
+            boolean required = random.nextInt(3) == 0;
+            html.append("<div class=\"form-group\">\n");
+            switch (i % 6) {
+                case 0:
+                    html.append("<label for=\"").append(name).append("\">").append(label).append(required ? " *" : "").append("</label>\n");
+                    appendInput(html, INPUT_TYPES[random.nextInt(INPUT_TYPES.length)], name, name, null, required);
+                    break;
+                case 1:
+                    html.append("<label>").append(label).append("</label>\n");
+                    appendInput(html, INPUT_TYPES[random.nextInt(INPUT_TYPES.length)], name, null, null, required);
+                    break;
+                case 2:
+                    html.append("<span>").append(label).append("</span>\n");
+                    appendInput(html, "text", name, null, "Enter " + label.toLowerCase(), required);
+                    break;
+                case 3:
+                    html.append("<label for=\"").append(name).append("\">").append(label).append("</label>\n");
+                    html.append("<select id=\"").append(name).append("\" name=\"").append(name).append("\">")
+                            .append("<option>One</option><option>Two</option><option>Three</option></select>\n");
+                    break;
+                case 4:
+                    html.append("<label for=\"").append(name).append("\">").append(label).append("</label>\n");
+                    html.append("<textarea id=\"").append(name).append("\" name=\"").append(name)
+                            .append("\" placeholder=\"Describe your ").append(label.toLowerCase()).append("\"></textarea>\n");
+                    break;
+                default:
+                    appendInput(html, "text", name, null, null, required);
+                    break;
+            }
+            html.append("</div>\n");
+        }
+        
+        html.append("</fieldset>\n<input type=\"hidden\" name=\"csrf\" value=\"token\">\n");
+        html.append("<button type=\"submit\">Submit Application</button>\n</form>\n</body>\n</html>\n");
+        return html.toString();
+    }
+    
+    private static void appendInput(StringBuilder html, String type, String name, String id, String placeholder, boolean required) {
+        html.append("<input type=\"").append(type).append("\" name=\"").append(name).append("\"");
+        if (id != null) {
+            html.append(" id=\"").append(id).append("\"");
+        }
+        if (placeholder != null) {
+            html.append(" placeholder=\"").append(placeholder).append("\"");
+        }
+        if (required) {
+            html.append(" required");
+        }
+        html.append(">\n");
+    }
+}
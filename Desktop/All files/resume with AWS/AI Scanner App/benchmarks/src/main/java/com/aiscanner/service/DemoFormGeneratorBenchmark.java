@@ -0,0 +1,69 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the demo form for an analyzed page, with fields and AI explanations shaped like
+ * the ones ScannerService passes in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DemoFormGeneratorBenchmark {
+    
+    private static final String EXPLANATION = "Enter the value exactly as it appears on your official documents. "
+            + "For example, if your bank statement lists your full name, use that spelling here. "
+            + "Double-check it before submitting, because mismatches can delay processing.";
+    private static final String SUMMARY = "This page is a multi-step application form. It collects personal, contact "
+            + "and financial details and validates required fields before submission.";
+    
+    @Param({BenchmarkCorpus.TEST_FORMS_PAGE, BenchmarkCorpus.TEST_PAGE,
+            BenchmarkCorpus.SYNTHETIC_FORM_200, BenchmarkCorpus.SYNTHETIC_FORM_2000})
+    private String page;
+    
+    private final DemoFormGeneratorService demoFormGenerator = new DemoFormGeneratorService();
+    private PageAnalysisResponse analysis;
+    
+    @Setup
+    public void setUp() {
+        ExtractedPage extracted = new PageExtractor().extract(
+                Jsoup.parse(BenchmarkCorpus.load(page), BenchmarkCorpus.BASE_URL));
+        
+        List<PageAnalysisResponse.FieldInfo> fields = new ArrayList<>(extracted.getFields().size());
+        for (PageAnalysisResponse.FieldInfo field : extracted.getFields()) {
+            field.setAiExplanation(EXPLANATION);
+            fields.add(field);
+        }
+        
+        analysis = PageAnalysisResponse.builder()
+                .url(BenchmarkCorpus.BASE_URL + page)
+                .title(extracted.getTitle())
+                .fields(fields)
+                .pageSummary(SUMMARY)
+                .build();
+    }
+    
+    @Benchmark
+    public String generateDummyForm() {
+        return demoFormGenerator.generateDummyForm(analysis);
+    }
+}
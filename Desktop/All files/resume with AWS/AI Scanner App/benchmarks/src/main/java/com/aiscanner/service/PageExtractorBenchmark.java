@@ -0,0 +1,75 @@
+package com.aiscanner.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and extraction hot paths of a page scan. {@code extract} is the single traversal that
+ * replaced the separate extractFields / extractPageContent / extractCodeContent /
+ * extractQuestionsContent passes; {@code findLabel} and {@code getFieldContext} are measured on
+ * their own because they run selector queries per form control.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageExtractorBenchmark {
+    
+    @Param({BenchmarkCorpus.TEST_FORMS_PAGE, BenchmarkCorpus.TEST_PAGE,
+            BenchmarkCorpus.SYNTHETIC_FORM_200, BenchmarkCorpus.SYNTHETIC_FORM_2000})
+    private String page;
+    
+    private final PageExtractor extractor = new PageExtractor();
+    private String html;
+    private Document doc;
+    private List<Element> controls;
+    
+    @Setup
+    public void setUp() {
+        html = BenchmarkCorpus.load(page);
+        doc = Jsoup.parse(html, BenchmarkCorpus.BASE_URL);
+        controls = doc.select("input, select, textarea");
+    }
+    
+    @Benchmark
+    public Document parse() {
+        return Jsoup.parse(html, BenchmarkCorpus.BASE_URL);
+    }
+    
+    @Benchmark
+    public ExtractedPage extract() {
+        return extractor.extract(doc);
+    }
+    
+    @Benchmark
+    public void findLabel(Blackhole blackhole) {
+        for (Element control : controls) {
+            blackhole.consume(extractor.findLabel(control));
+        }
+    }
+    
+    @Benchmark
+    public void getFieldContext(Blackhole blackhole) {
+        for (Element control : controls) {
+            blackhole.consume(extractor.getFieldContext(control));
+        }
+    }
+}
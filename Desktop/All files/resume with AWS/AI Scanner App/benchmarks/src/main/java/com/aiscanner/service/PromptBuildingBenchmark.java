@@ -0,0 +1,98 @@
+package com.aiscanner.service;
+
+import com.aiscanner.dto.PageAnalysisResponse;
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gemini prompt assembly for a scanned page: the token-budgeted page analysis and page question
+ * prompts, the chat chunk index and the retrieval-backed chat prompt, per-field and batched field
+ * prompts, and the JSON request body. No network calls are made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptBuildingBenchmark {
+    
+    private static final String QUESTION = "What documents do I need to complete this form?";
+    
+    @Param({BenchmarkCorpus.TEST_FORMS_PAGE, BenchmarkCorpus.TEST_PAGE,
+            BenchmarkCorpus.SYNTHETIC_FORM_200, BenchmarkCorpus.SYNTHETIC_FORM_2000})
+    private String page;
+    
+    private final GeminiAIService geminiAIService = new GeminiAIService();
+    private ExtractedPage extracted;
+    private String url;
+    private String pageContent;
+    private List<PageAnalysisResponse.FieldInfo> fields;
+    private List<String> fieldContexts;
+    private PageChunkIndex chunkIndex;
+    private String analysisPrompt;
+    
+    @Setup
+    public void setUp() {
+        url = BenchmarkCorpus.BASE_URL + page;
+        extracted = new PageExtractor().extract(Jsoup.parse(BenchmarkCorpus.load(page), BenchmarkCorpus.BASE_URL));
+        pageContent = extracted.getPageContent();
+        fields = extracted.getFields();
+        fieldContexts = extracted.getFieldContexts();
+        chunkIndex = chunkIndex();
+        analysisPrompt = analysisPrompt();
+    }
+    
+    @Benchmark
+    public String analysisPrompt() {
+        return geminiAIService.buildAnalysisPrompt(url, extracted.getTitle(), extracted.getHeadings(), extracted.getBodyText(), fields);
+    }
+    
+    @Benchmark
+    public void fieldPrompts(Blackhole blackhole) {
+        for (int i = 0; i < fields.size(); i++) {
+            PageAnalysisResponse.FieldInfo field = fields.get(i);
+            blackhole.consume(geminiAIService.buildFieldAnalysisPrompt(
+                    field.getName(), field.getType(), field.getLabel(), field.getPlaceholder(), fieldContexts.get(i)));
+        }
+    }
+    
+    @Benchmark
+    public String batchFieldPrompt() {
+        return geminiAIService.buildBatchFieldAnalysisPrompt(fields, fieldContexts);
+    }
+    
+    @Benchmark
+    public String questionAnsweringPrompt() {
+        return geminiAIService.buildQuestionAnsweringPrompt(QUESTION, pageContent, fields);
+    }
+    
+    @Benchmark
+    public PageChunkIndex chunkIndex() {
+        return PageChunkIndex.build(pageContent, extracted.getCodeContent(), extracted.getQuestionsContent(), 120);
+    }
+    
+    @Benchmark
+    public String chatPrompt() {
+        return geminiAIService.buildAdvancedQuestionAnsweringPrompt(QUESTION, pageContent, fields, chunkIndex);
+    }
+    
+    @Benchmark
+    public String geminiRequest() {
+        return geminiAIService.buildGeminiRequest(analysisPrompt);
+    }
+}
@@ -0,0 +1,84 @@
+package com.aiscanner.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the sample pages checked into {@code frontend/public} (copied onto the classpath under
+ * {@code corpus/} at build time) as static HTML. The query string is ignored, so the load
+ * generator can append a counter to get a distinct analysis cache key for the same page.
+ */
+final class CorpusServer {
+    
+    static final List<String> PAGES = List.of("test-forms-page.html", "test-page.html");
+    
+    private final Map<String, byte[]> pages = new LinkedHashMap<>();
+    
+    private HttpServer server;
+    private ExecutorService executor;
+    
+    CorpusServer() {
+        for (String page : PAGES) {
+            pages.put("/" + page, readResource("corpus/" + page));
+        }
+    }
+    
+    void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+    
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+    
+    /** Absolute URLs of every corpus page, for the load generator to request analyses of. */
+    List<String> pageUrls() {
+        List<String> urls = new ArrayList<>(pages.size());
+        for (String path : pages.keySet()) {
+            urls.add("http://localhost:" + server.getAddress().getPort() + path);
+        }
+        return urls;
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] page = pages.get(exchange.getRequestURI().getPath());
+            if (page == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, page.length);
+            exchange.getResponseBody().write(page);
+        }
+    }
+    
+    private static byte[] readResource(String path) {
+        try (InputStream in = CorpusServer.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Corpus page not found on classpath: " + path);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
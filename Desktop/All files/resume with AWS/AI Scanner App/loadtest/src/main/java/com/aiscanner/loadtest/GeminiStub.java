@@ -0,0 +1,192 @@
+package com.aiscanner.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the Gemini {@code generateContent} and {@code streamGenerateContent} endpoints
+ * that {@code GeminiAIService} calls. Every call waits for a delay drawn from the configured
+ * {@link LatencyDistribution}, then fails with 429 or 500 at the configured rates, or answers
+ * with one of the canned candidates.
+ *
+ * <p>Batched field prompts (the ones asking for a JSON array) are answered with one array entry
+ * per field, so the backend's batch parser sees the same shape the real model returns.
+ */
+final class GeminiStub {
+    
+    private static final Pattern BATCH_FIELD = Pattern.compile("(?m)^\\[(\\d+)] Name: ");
+    private static final String BATCH_MARKER = "Respond with ONLY a JSON array";
+    private static final int STREAM_CHUNKS = 4;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LatencyDistribution latency;
+    private final double rateLimitedRate;
+    private final double serverErrorRate;
+    private final List<String> candidates;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    
+    private HttpServer server;
+    private ExecutorService executor;
+    
+    GeminiStub(LatencyDistribution latency, double rateLimitedRate, double serverErrorRate, List<String> candidates) {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("At least one canned candidate is required");
+        }
+        this.latency = latency;
+        this.rateLimitedRate = rateLimitedRate;
+        this.serverErrorRate = serverErrorRate;
+        this.candidates = List.copyOf(candidates);
+    }
+    
+    void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        // Calls park in Thread.sleep for the sampled latency, so the pool must not cap concurrency
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+    
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+    
+    /** Base URL to pass to the backend as {@code gemini.api.base.url}. */
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1beta/models";
+    }
+    
+    String summary() {
+        return String.format("gemini stub: %d calls, %d answered 429, %d answered 500",
+                calls.get(), rateLimited.get(), serverErrors.get());
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            boolean streaming = path.endsWith(":streamGenerateContent");
+            if (!"POST".equals(exchange.getRequestMethod()) || !(streaming || path.endsWith(":generateContent"))) {
+                sendJson(exchange, 404, error(404, "Not found: " + path, "NOT_FOUND"));
+                return;
+            }
+            calls.incrementAndGet();
+            String prompt = promptOf(exchange.getRequestBody().readAllBytes());
+            
+            sleep(latency.sampleMillis());
+            
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < rateLimitedRate) {
+                rateLimited.incrementAndGet();
+                sendJson(exchange, 429, error(429, "Resource has been exhausted (e.g. check quota).", "RESOURCE_EXHAUSTED"));
+                return;
+            }
+            if (roll < rateLimitedRate + serverErrorRate) {
+                serverErrors.incrementAndGet();
+                sendJson(exchange, 500, error(500, "An internal error has occurred.", "INTERNAL"));
+                return;
+            }
+            
+            String answer = answerFor(prompt);
+            if (streaming) {
+                sendStream(exchange, answer);
+            } else {
+                sendJson(exchange, 200, candidateResponse(answer));
+            }
+        }
+    }
+    
+    private String promptOf(byte[] body) {
+        try {
+            JsonNode text = objectMapper.readTree(body).path("contents").path(0).path("parts").path(0).path("text");
+            return text.asText("");
+        } catch (IOException e) {
+            return "";
+        }
+    }
+    
+    private String answerFor(String prompt) {
+        String candidate = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        if (!prompt.contains(BATCH_MARKER)) {
+            return candidate;
+        }
+        ArrayNode explanations = objectMapper.createArrayNode();
+        Matcher field = BATCH_FIELD.matcher(prompt);
+        while (field.find()) {
+            explanations.addObject()
+                    .put("id", Integer.parseInt(field.group(1)))
+                    .put("explanation", candidate);
+        }
+        return explanations.toString();
+    }
+    
+    private ObjectNode candidateResponse(String text) {
+        ObjectNode response = objectMapper.createObjectNode();
+        ObjectNode candidate = response.putArray("candidates").addObject();
+        ObjectNode content = candidate.putObject("content");
+        content.putArray("parts").addObject().put("text", text);
+        content.put("role", "model");
+        candidate.put("finishReason", "STOP");
+        return response;
+    }
+    
+    private ObjectNode error(int code, String message, String status) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putObject("error")
+                .put("code", code)
+                .put("message", message)
+                .put("status", status);
+        return response;
+    }
+    
+    private void sendJson(HttpExchange exchange, int status, ObjectNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+    
+    private void sendStream(HttpExchange exchange, String answer) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int chunkLength = Math.max(1, (answer.length() + STREAM_CHUNKS - 1) / STREAM_CHUNKS);
+        for (int start = 0; start < answer.length(); start += chunkLength) {
+            String chunk = answer.substring(start, Math.min(answer.length(), start + chunkLength));
+            out.write(("data: " + objectMapper.writeValueAsString(candidateResponse(chunk)) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+    
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
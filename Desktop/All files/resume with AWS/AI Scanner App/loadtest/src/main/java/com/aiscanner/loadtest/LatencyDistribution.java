@@ -0,0 +1,81 @@
+package com.aiscanner.loadtest;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Artificial response delay of the Gemini stub, sampled once per call. Parsed from a spec string:
+ * <ul>
+ *   <li>{@code fixed:300} - always 300 ms</li>
+ *   <li>{@code uniform:100:900} - uniformly between 100 and 900 ms</li>
+ *   <li>{@code exponential:400} - exponential with a 400 ms mean</li>
+ *   <li>{@code lognormal:350:0.6} - log-normal with a 350 ms median and sigma 0.6, which gives the
+ *       long right tail real model latency has</li>
+ * </ul>
+ */
+abstract class LatencyDistribution {
+    
+    abstract long sampleMillis();
+    
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    return fixed(Long.parseLong(parts[1]));
+                case "uniform":
+                    return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                case "exponential":
+                    return exponential(Double.parseDouble(parts[1]));
+                case "lognormal":
+                    return logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                default:
+                    break;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            // Fall through to the usage message below
+        }
+        throw new IllegalArgumentException("Unsupported latency spec '" + spec
+                + "'; use fixed:MS, uniform:MIN:MAX, exponential:MEAN or lognormal:MEDIAN:SIGMA");
+    }
+    
+    static LatencyDistribution fixed(long millis) {
+        return new LatencyDistribution() {
+            @Override
+            long sampleMillis() {
+                return millis;
+            }
+        };
+    }
+    
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        if (maxMillis < minMillis) {
+            throw new IllegalArgumentException("uniform latency max must not be below min");
+        }
+        return new LatencyDistribution() {
+            @Override
+            long sampleMillis() {
+                return ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+            }
+        };
+    }
+    
+    static LatencyDistribution exponential(double meanMillis) {
+        return new LatencyDistribution() {
+            @Override
+            long sampleMillis() {
+                return Math.round(-meanMillis * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+            }
+        };
+    }
+    
+    static LatencyDistribution logNormal(double medianMillis, double sigma) {
+        double mu = Math.log(medianMillis);
+        return new LatencyDistribution() {
+            @Override
+            long sampleMillis() {
+                return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package com.aiscanner.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Open-loop load generator: sends one request every {@code 1/rps} seconds regardless of how many
+ * are still outstanding, so a slow backend shows up as higher latency instead of a lower request
+ * rate. Latency is measured from the request's scheduled send time rather than its actual send
+ * time, which keeps scheduler hiccups from hiding queueing delay (coordinated omission).
+ *
+ * <p>Requests scheduled during the warm-up are sent but not recorded.
+ */
+final class LoadGenerator {
+    
+    private final HttpClient client;
+    private final int maxInFlight;
+    
+    LoadGenerator(HttpClient client, int maxInFlight) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+    }
+    
+    /**
+     * @param requests builds the request with the given sequence number
+     * @param drain    how long to wait for outstanding requests after the last one was sent
+     */
+    Result run(String name, LongFunction<HttpRequest> requests, double rps, Duration warmup, Duration duration, Duration drain)
+            throws InterruptedException {
+        long periodNanos = Math.max(1L, Math.round(1_000_000_000L / rps));
+        long warmupNanos = warmup.toNanos();
+        long totalRequests = (warmupNanos + duration.toNanos()) / periodNanos;
+        Result result = new Result(name, duration, totalRequests);
+        if (totalRequests == 0) {
+            return result;
+        }
+        
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicLong sequence = new AtomicLong();
+        CountDownLatch finished = new CountDownLatch(1);
+        CountDownLatch allScheduled = new CountDownLatch(1);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long startNanos = System.nanoTime();
+        
+        ScheduledFuture<?> ticker = scheduler.scheduleAtFixedRate(() -> {
+            long seq = sequence.getAndIncrement();
+            if (seq >= totalRequests) {
+                allScheduled.countDown();
+                return;
+            }
+            long intendedNanos = startNanos + seq * periodNanos;
+            boolean measured = seq * periodNanos >= warmupNanos;
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                if (measured) {
+                    result.dropped.incrementAndGet();
+                }
+                return;
+            }
+            
+            HttpRequest request;
+            try {
+                request = requests.apply(seq);
+            } catch (RuntimeException e) {
+                inFlight.decrementAndGet();
+                if (measured) {
+                    result.recordFailure(e);
+                }
+                return;
+            }
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long latencyNanos = System.nanoTime() - intendedNanos;
+                if (measured) {
+                    if (error != null) {
+                        result.recordFailure(error);
+                    } else {
+                        result.record(response.statusCode(), latencyNanos);
+                    }
+                }
+                if (inFlight.decrementAndGet() == 0 && allScheduled.getCount() == 0) {
+                    finished.countDown();
+                }
+            });
+        }, 0L, periodNanos, TimeUnit.NANOSECONDS);
+        
+        allScheduled.await();
+        ticker.cancel(false);
+        scheduler.shutdown();
+        if (inFlight.get() > 0) {
+            finished.await(drain.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        result.unfinished = inFlight.get();
+        return result;
+    }
+    
+    static final class Result {
+        final String name;
+        final Duration duration;
+        final long scheduled;
+        final AtomicLong dropped = new AtomicLong();
+        private final Map<String, Long> outcomes = new TreeMap<>();
+        private long[] latencies = new long[1024];
+        private int count;
+        private long successes;
+        private volatile int unfinished;
+        
+        Result(String name, Duration duration, long scheduled) {
+            this.name = name;
+            this.duration = duration;
+            this.scheduled = scheduled;
+        }
+        
+        synchronized void record(int status, long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (status >= 200 && status < 300) {
+                successes++;
+            }
+            outcomes.merge(String.valueOf(status), 1L, Long::sum);
+        }
+        
+        synchronized void recordFailure(Throwable error) {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            outcomes.merge(cause.getClass().getSimpleName(), 1L, Long::sum);
+        }
+        
+        synchronized String report() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            double seconds = duration.toMillis() / 1000.0;
+            return String.format("%-8s sent=%d completed=%d ok=%d dropped=%d unfinished=%d  throughput=%.1f req/s  "
+                            + "p50=%s p99=%s max=%s  outcomes=%s",
+                    name, scheduled, count, successes, dropped.get(), unfinished, successes / seconds,
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                    millis(count > 0 ? sorted[count - 1] : -1), outcomes);
+        }
+        
+        /** Nearest-rank percentile; -1 when nothing was recorded. */
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return -1;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+        
+        private static String millis(long nanos) {
+            return nanos < 0 ? "n/a" : String.format("%.1fms", nanos / 1_000_000.0);
+        }
+    }
+}
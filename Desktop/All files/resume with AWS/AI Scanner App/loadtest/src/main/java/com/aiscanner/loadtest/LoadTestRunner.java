@@ -0,0 +1,214 @@
+package com.aiscanner.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.function.LongFunction;
+
+/**
+ * Entry point of {@code loadtest.jar}.
+ *
+ * <pre>
+ * java -jar loadtest.jar serve [options]   start the Gemini stub and the corpus server until interrupted
+ * java -jar loadtest.jar run [options]     start both, then drive the backend and print a report
+ * </pre>
+ *
+ * Options are {@code --name value} pairs; see {@link #usage()} for the list and defaults.
+ */
+public final class LoadTestRunner {
+    
+    private static final List<String> DEFAULT_CANDIDATES = List.of(
+            "This page is a sample form that collects personal and contact details. Fill in each required field "
+                    + "and review the optional ones before submitting.",
+            "Enter the value exactly as it appears on your official documents. For example, use your full legal "
+                    + "name rather than a nickname.",
+            "The answer depends on the context of the page, but in short: read the question carefully, check the "
+                    + "examples given, and keep the response concise.");
+    
+    private static final List<String> QUESTIONS = List.of(
+            "What is this page about?",
+            "Which fields are required?",
+            "How should I fill in the date of birth?",
+            "What is a good way to explain recursion?",
+            "Summarize the main points.");
+    
+    private LoadTestRunner() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || (!"serve".equals(args[0]) && !"run".equals(args[0]))) {
+            System.out.println(usage());
+            System.exit(args.length == 0 ? 0 : 2);
+        }
+        Map<String, String> options = parseOptions(args);
+        
+        GeminiStub stub = new GeminiStub(
+                LatencyDistribution.parse(options.getOrDefault("latency", "lognormal:350:0.6")),
+                Double.parseDouble(options.getOrDefault("rate-limited", "0")),
+                Double.parseDouble(options.getOrDefault("server-errors", "0")),
+                loadCandidates(options.get("candidates")));
+        CorpusServer corpus = new CorpusServer();
+        stub.start(Integer.parseInt(options.getOrDefault("stub-port", "18090")));
+        corpus.start(Integer.parseInt(options.getOrDefault("corpus-port", "18091")));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stub.stop();
+            corpus.stop();
+        }));
+        
+        System.out.println("Gemini stub:   " + stub.baseUrl());
+        System.out.println("Corpus pages:  " + corpus.pageUrls());
+        System.out.println("Start the backend with:");
+        System.out.println("  --gemini.api.base.url=" + stub.baseUrl() + " --gemini.api.key=loadtest");
+        
+        if ("serve".equals(args[0])) {
+            new CountDownLatch(1).await();
+            return;
+        }
+        
+        String backend = options.getOrDefault("backend", "http://localhost:8054");
+        double rps = Double.parseDouble(options.getOrDefault("rps", "5"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        Duration drain = Duration.ofSeconds(Long.parseLong(options.getOrDefault("drain", "120")));
+        boolean unique = Boolean.parseBoolean(options.getOrDefault("unique", "true"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-inflight", "2000"));
+        List<String> scenarios = List.of(options.getOrDefault("scenarios", "analyze,chat,ask").split(","));
+        
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+        LoadGenerator generator = new LoadGenerator(client, maxInFlight);
+        Requests requests = new Requests(URI.create(backend), corpus.pageUrls(), unique);
+        
+        System.out.printf("Driving %s at %.1f req/s each for %ds after a %ds warm-up%n",
+                scenarios, rps, duration.getSeconds(), warmup.getSeconds());
+        List<CompletableFuture<LoadGenerator.Result>> runs = new ArrayList<>();
+        for (String scenario : scenarios) {
+            LongFunction<HttpRequest> builder = requests.forScenario(scenario.trim());
+            runs.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return generator.run(scenario.trim(), builder, rps, warmup, duration, drain);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }, Executors.newSingleThreadExecutor()));
+        }
+        
+        System.out.println();
+        for (CompletableFuture<LoadGenerator.Result> run : runs) {
+            System.out.println(run.join().report());
+        }
+        System.out.println(stub.summary());
+        System.exit(0);
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value, got: " + args[i] + "\n" + usage());
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+    
+    private static List<String> loadCandidates(String path) throws IOException {
+        if (path == null) {
+            return DEFAULT_CANDIDATES;
+        }
+        return new ObjectMapper().readValue(new File(path), new TypeReference<List<String>>() {});
+    }
+    
+    private static String usage() {
+        return String.join("\n",
+                "Usage: java -jar loadtest.jar serve|run [--name value ...]",
+                "",
+                "Gemini stub and corpus server (serve and run):",
+                "  --stub-port 18090          port of the generateContent stand-in",
+                "  --corpus-port 18091        port of the static page server",
+                "  --latency lognormal:350:0.6  fixed:MS | uniform:MIN:MAX | exponential:MEAN | lognormal:MEDIAN:SIGMA",
+                "  --rate-limited 0           fraction of Gemini calls answered with 429",
+                "  --server-errors 0          fraction of Gemini calls answered with 500",
+                "  --candidates FILE          JSON array of canned answer texts",
+                "",
+                "Load (run only):",
+                "  --backend http://localhost:8054",
+                "  --scenarios analyze,chat,ask",
+                "  --rps 5                    requests per second, per scenario",
+                "  --warmup 10                seconds sent but not recorded",
+                "  --duration 60              seconds recorded",
+                "  --drain 120                seconds to wait for outstanding requests",
+                "  --unique true              vary URLs and questions so backend caches do not absorb the load",
+                "  --max-inflight 2000        outstanding requests per scenario before new ones are dropped");
+    }
+    
+    /** Request bodies for each scenario; the sequence number makes them unique when asked to. */
+    private static final class Requests {
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final URI backend;
+        private final List<String> pageUrls;
+        private final boolean unique;
+        
+        Requests(URI backend, List<String> pageUrls, boolean unique) {
+            this.backend = backend;
+            this.pageUrls = pageUrls;
+            this.unique = unique;
+        }
+        
+        LongFunction<HttpRequest> forScenario(String scenario) {
+            switch (scenario) {
+                case "analyze":
+                    return seq -> post("/api/scanner/analyze", body()
+                            .put("url", unique ? page(seq) + "?n=" + seq : page(seq)));
+                case "chat":
+                    // Reuses the pages' analyses, so the load lands on retrieval and the Gemini call
+                    return seq -> post("/api/scanner/chat", body()
+                            .put("url", page(seq))
+                            .put("question", question(seq)));
+                case "ask":
+                    return seq -> post("/api/scanner/ask", body()
+                            .put("question", question(seq)));
+                default:
+                    throw new IllegalArgumentException("Unknown scenario '" + scenario + "'; use analyze, chat or ask");
+            }
+        }
+        
+        private String page(long seq) {
+            return pageUrls.get((int) (seq % pageUrls.size()));
+        }
+        
+        private String question(long seq) {
+            String question = QUESTIONS.get((int) (seq % QUESTIONS.size()));
+            return unique ? question + " (request " + seq + ")" : question;
+        }
+        
+        private ObjectNode body() {
+            return objectMapper.createObjectNode();
+        }
+        
+        private HttpRequest post(String path, ObjectNode body) {
+            return HttpRequest.newBuilder(backend.resolve(path))
+                    .timeout(Duration.ofSeconds(120))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+        }
+    }
+}